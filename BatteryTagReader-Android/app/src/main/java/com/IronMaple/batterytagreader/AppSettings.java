@@ -0,0 +1,123 @@
+package com.IronMaple.batterytagreader;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * User-tunable settings, stored in SharedPreferences.
+ */
+public final class AppSettings {
+
+    private static final String PREF_NAME = "AppSettings";
+
+    // --- Log retention ---
+    private static final String KEY_LIVE_MAX_AGE_DAYS = "log_live_max_age_days";
+    private static final String KEY_LIVE_MAX_ENTRIES = "log_live_max_entries";
+    private static final String KEY_ARCHIVE_MAX_AGE_DAYS = "log_archive_max_age_days";
+
+    static final int DEFAULT_LIVE_MAX_AGE_DAYS = 30;
+    static final int DEFAULT_LIVE_MAX_ENTRIES = 5000;
+    static final int DEFAULT_ARCHIVE_MAX_AGE_DAYS = 0; // 0 = keep archives forever
+
+    // --- Tag encoding ---
+    private static final String KEY_COMPACT_TAGS = "tag_compact_encoding";
+
+    // --- Charger entries ---
+    private static final String KEY_DUPLICATE_CHARGER = "duplicate_charger_policy";
+
+    /** What to do when the last usage entry is already a charger. */
+    static final int DUPLICATE_CHARGER_ASK = 0;   // dialog (station mode: skip)
+    static final int DUPLICATE_CHARGER_ADD = 1;
+    static final int DUPLICATE_CHARGER_SKIP = 2;
+
+    // --- NFC reader mode ---
+    private static final String KEY_READER_MODE = "nfc_reader_mode";
+    private static final String KEY_PRESENCE_DELAY_MS = "nfc_presence_check_delay_ms";
+
+    static final int DEFAULT_PRESENCE_DELAY_MS = 250;
+
+    // --- Duplicate reads ---
+    private static final String KEY_DEDUP_WINDOW_MINUTES = "log_dedup_window_minutes";
+
+    static final int DEFAULT_DEDUP_WINDOW_MINUTES = 0; // 0 = an unchanged tag is never logged again
+
+    private AppSettings() {}
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+    }
+
+    /** Entries older than this many days move from the live log into compressed archives. */
+    public static int getLiveMaxAgeDays(Context context) {
+        return prefs(context).getInt(KEY_LIVE_MAX_AGE_DAYS, DEFAULT_LIVE_MAX_AGE_DAYS);
+    }
+
+    /** The live log keeps at most this many entries; older ones are archived. */
+    public static int getLiveMaxEntries(Context context) {
+        return prefs(context).getInt(KEY_LIVE_MAX_ENTRIES, DEFAULT_LIVE_MAX_ENTRIES);
+    }
+
+    /** Archive segments older than this many days are deleted; 0 keeps them forever. */
+    public static int getArchiveMaxAgeDays(Context context) {
+        return prefs(context).getInt(KEY_ARCHIVE_MAX_AGE_DAYS, DEFAULT_ARCHIVE_MAX_AGE_DAYS);
+    }
+
+    public static void setRetention(Context context, int liveMaxAgeDays, int liveMaxEntries,
+                                    int archiveMaxAgeDays) {
+        prefs(context).edit()
+                .putInt(KEY_LIVE_MAX_AGE_DAYS, Math.max(1, liveMaxAgeDays))
+                .putInt(KEY_LIVE_MAX_ENTRIES, Math.max(100, liveMaxEntries))
+                .putInt(KEY_ARCHIVE_MAX_AGE_DAYS, Math.max(0, archiveMaxAgeDays))
+                .apply();
+    }
+
+    /**
+     * Write tags in the compact binary encoding ({@link TagCodec}). Off by default:
+     * older app versions can only read JSON tags. Reading accepts both either way.
+     */
+    public static boolean isCompactTagEncoding(Context context) {
+        return prefs(context).getBoolean(KEY_COMPACT_TAGS, false);
+    }
+
+    public static void setCompactTagEncoding(Context context, boolean compact) {
+        prefs(context).edit().putBoolean(KEY_COMPACT_TAGS, compact).apply();
+    }
+
+    /** One of the {@code DUPLICATE_CHARGER_*} policies. */
+    public static int getDuplicateChargerPolicy(Context context) {
+        return prefs(context).getInt(KEY_DUPLICATE_CHARGER, DUPLICATE_CHARGER_ASK);
+    }
+
+    public static void setDuplicateChargerPolicy(Context context, int policy) {
+        prefs(context).edit().putInt(KEY_DUPLICATE_CHARGER, policy).apply();
+    }
+
+    /** Use NFC reader mode (no system sound, cached NDEF) instead of foreground dispatch. */
+    public static boolean isReaderMode(Context context) {
+        return prefs(context).getBoolean(KEY_READER_MODE, false);
+    }
+
+    /** How often reader mode checks the tag is still present, in ms. */
+    public static int getPresenceCheckDelayMs(Context context) {
+        return prefs(context).getInt(KEY_PRESENCE_DELAY_MS, DEFAULT_PRESENCE_DELAY_MS);
+    }
+
+    public static void setReaderMode(Context context, boolean enabled, int presenceCheckDelayMs) {
+        prefs(context).edit()
+                .putBoolean(KEY_READER_MODE, enabled)
+                .putInt(KEY_PRESENCE_DELAY_MS, Math.max(50, presenceCheckDelayMs))
+                .apply();
+    }
+
+    /**
+     * A tag read with the same content as one logged for that battery within
+     * this many minutes is not logged again; 0 means no time limit.
+     */
+    public static int getDedupWindowMinutes(Context context) {
+        return prefs(context).getInt(KEY_DEDUP_WINDOW_MINUTES, DEFAULT_DEDUP_WINDOW_MINUTES);
+    }
+
+    public static void setDedupWindowMinutes(Context context, int minutes) {
+        prefs(context).edit().putInt(KEY_DEDUP_WINDOW_MINUTES, Math.max(0, minutes)).apply();
+    }
+}
@@ -0,0 +1,52 @@
+package com.IronMaple.batterytagreader;
+
+import java.util.List;
+
+/**
+ * Reads several cursors back to back (archive segments, then the live store),
+ * optionally stopping after {@code limit} rows.
+ */
+final class ChainedLogCursor extends LogCursor {
+
+    private final List<LogCursor> parts;
+    private final long limit;
+    private int index = 0;
+    private long returned = 0;
+
+    ChainedLogCursor(List<LogCursor> parts, long limit) {
+        this.parts = parts;
+        this.limit = limit;
+    }
+
+    @Override
+    public boolean moveToNext() {
+        if (returned >= limit) return false;
+        while (index < parts.size()) {
+            if (parts.get(index).moveToNext()) {
+                returned++;
+                return true;
+            }
+            parts.get(index).close();
+            index++;
+        }
+        return false;
+    }
+
+    private LogCursor current() {
+        return parts.get(index);
+    }
+
+    @Override public long getId()          { return current().getId(); }
+    @Override public long getTimeMillis()  { return current().getTimeMillis(); }
+    @Override public String getType()      { return current().getType(); }
+    @Override public String getSerial()    { return current().getSerial(); }
+    @Override public int getCycleCount()   { return current().getCycleCount(); }
+    @Override public int getNote()         { return current().getNote(); }
+    @Override public String getDataJson()  { return current().getDataJson(); }
+
+    @Override
+    public void close() {
+        for (int i = index; i < parts.size(); i++) parts.get(i).close();
+        index = parts.size();
+    }
+}
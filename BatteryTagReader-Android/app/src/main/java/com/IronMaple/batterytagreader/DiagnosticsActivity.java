@@ -0,0 +1,166 @@
+package com.IronMaple.batterytagreader;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.Typeface;
+import android.net.Uri;
+import android.os.Bundle;
+import android.util.Log;
+import android.view.Gravity;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.LinearLayout;
+import android.widget.ScrollView;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.core.content.FileProvider;
+import androidx.core.graphics.Insets;
+import androidx.core.view.ViewCompat;
+import androidx.core.view.WindowInsetsCompat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Timings recorded in {@link MetricsRegistry} since the app started (or the
+ * last reset): p50/p95/p99/max per operation, and the counters. Shows where a
+ * slow tap goes: tag.connect/read/write are the radio, tag.parse the JSON,
+ * ui.render the result view, log.commit storage. Counters and live gauges
+ * (log.queue_depth) follow the table.
+ */
+public class DiagnosticsActivity extends Activity {
+
+    private static final String TAG = "DiagnosticsActivity";
+    private static final String METRICS_FILE = "metrics.json";
+
+    private TextView table;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        LinearLayout root = new LinearLayout(this);
+        root.setOrientation(LinearLayout.VERTICAL);
+        root.setPadding(16, 16, 16, 16);
+        ViewCompat.setOnApplyWindowInsetsListener(root, (v, insets) -> {
+            Insets sysBars = insets.getInsets(WindowInsetsCompat.Type.systemBars());
+            v.setPadding(16 + sysBars.left, 16 + sysBars.top,
+                    16 + sysBars.right, 16 + sysBars.bottom);
+            return insets;
+        });
+
+        setContentView(root);
+
+        // ===== Refresh / Reset / Share =====
+        LinearLayout buttons = new LinearLayout(this);
+        buttons.setOrientation(LinearLayout.HORIZONTAL);
+        buttons.setGravity(Gravity.CENTER);
+        buttons.setPadding(0, 0, 0, 16);
+
+        LinearLayout.LayoutParams btnParams = new LinearLayout.LayoutParams(0, ViewGroup.LayoutParams.WRAP_CONTENT, 1f);
+
+        Button refresh = new Button(this);
+        refresh.setText(getString(R.string.diagnostics_refresh));
+        refresh.setOnClickListener(v -> refresh());
+        buttons.addView(refresh, btnParams);
+
+        Button reset = new Button(this);
+        reset.setText(getString(R.string.diagnostics_reset));
+        reset.setOnClickListener(v -> {
+            MetricsRegistry.reset();
+            refresh();
+        });
+        buttons.addView(reset, btnParams);
+
+        Button share = new Button(this);
+        share.setText(getString(R.string.diagnostics_share));
+        share.setOnClickListener(v -> shareMetrics());
+        buttons.addView(share, btnParams);
+
+        root.addView(buttons);
+
+        // ===== Metrics table =====
+        table = new TextView(this);
+        table.setTypeface(Typeface.MONOSPACE);
+        table.setTextSize(13f);
+        table.setTextIsSelectable(true);
+        ScrollView scroll = new ScrollView(this);
+        scroll.addView(table);
+        root.addView(scroll, new LinearLayout.LayoutParams(
+                LinearLayout.LayoutParams.MATCH_PARENT, 0, 1f));
+
+        refresh();
+    }
+
+    private void refresh() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "%-20s %6s %8s %8s %8s %8s%n",
+                "ms", "n", "p50", "p95", "p99", "max"));
+        for (LatencyHistogram.Snapshot s : MetricsRegistry.histograms()) {
+            if (s.count == 0) continue;
+            sb.append(String.format(Locale.US, "%-20s %6d %8s %8s %8s %8s%n",
+                    s.name, s.count, ms(s.percentileMicros(0.50)), ms(s.percentileMicros(0.95)),
+                    ms(s.percentileMicros(0.99)), ms(s.maxMicros)));
+        }
+
+        appendValues(sb, MetricsRegistry.counters());
+        appendValues(sb, MetricsRegistry.gauges());
+        table.setText(sb);
+    }
+
+    private static void appendValues(StringBuilder sb, Map<String, Long> values) {
+        if (values.isEmpty()) return;
+        sb.append('\n');
+        for (Map.Entry<String, Long> e : values.entrySet()) {
+            sb.append(String.format(Locale.US, "%-20s %6d%n", e.getKey(), e.getValue()));
+        }
+    }
+
+    private static String ms(long micros) {
+        return String.format(Locale.US, "%.1f", micros / 1000.0);
+    }
+
+    private void shareMetrics() {
+        File file = writeMetricsFile(this);
+        if (file == null) {
+            Toast.makeText(this, R.string.diagnostics_write_failed, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        Uri uri = FileProvider.getUriForFile(this, getPackageName() + ".provider", file);
+        Intent share = new Intent(Intent.ACTION_SEND);
+        share.setType("application/json");
+        share.putExtra(Intent.EXTRA_STREAM, uri);
+        share.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        startActivity(Intent.createChooser(share, getString(R.string.diagnostics_share_title)));
+    }
+
+    // ------------------------------------------------------------------------
+    // Export (also used by the log export)
+    // ------------------------------------------------------------------------
+
+    /** Where {@link #writeMetricsFile} puts the snapshot. */
+    static File metricsFile(Context context) {
+        return new File(context.getCacheDir(), METRICS_FILE);
+    }
+
+    /** Write the current metrics as JSON to {@link #metricsFile}; null if that failed. */
+    static File writeMetricsFile(Context context) {
+        File file = metricsFile(context);
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            out.write(MetricsRegistry.toJson());
+            return file;
+        } catch (IOException e) {
+            Log.w(TAG, "Writing metrics failed", e);
+            file.delete();
+            return null;
+        }
+    }
+}
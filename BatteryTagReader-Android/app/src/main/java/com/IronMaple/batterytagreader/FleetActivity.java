@@ -0,0 +1,285 @@
+package com.IronMaple.batterytagreader;
+
+import android.app.Activity;
+import android.app.AlertDialog;
+import android.content.Intent;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.net.Uri;
+import android.os.Bundle;
+import android.util.Log;
+import android.util.TypedValue;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.BaseAdapter;
+import android.widget.Button;
+import android.widget.LinearLayout;
+import android.widget.ListView;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.core.content.ContextCompat;
+import androidx.core.content.FileProvider;
+import androidx.core.graphics.Insets;
+import androidx.core.view.ViewCompat;
+import androidx.core.view.WindowInsetsCompat;
+
+import org.json.JSONException;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Overview of every battery in the {@link FleetIndex}, one row each, sortable,
+ * and a printable report of the whole fleet.
+ */
+public class FleetActivity extends Activity {
+
+    private static final String TAG = "FleetActivity";
+
+    /** Batteries used in a robot since their last charge come first. */
+    private static final Comparator<FleetIndex.Battery> BY_NEEDS_CHARGE = (a, b) -> {
+        if (a.needsCharge() != b.needsCharge()) return a.needsCharge() ? -1 : 1;
+        return FleetIndex.BY_LAST_ROBOT.compare(a, b);
+    };
+
+    private final ExecutorService loader = Executors.newSingleThreadExecutor();
+    private final FleetAdapter adapter = new FleetAdapter();
+    private Comparator<FleetIndex.Battery> order = BY_NEEDS_CHARGE;
+    private TextView summary;
+
+    private int rowTextColor;
+    private int rowBackgroundColor;
+    private boolean hasRowBackground;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        LinearLayout root = new LinearLayout(this);
+        root.setOrientation(LinearLayout.VERTICAL);
+        root.setPadding(16, 16, 16, 16);
+        ViewCompat.setOnApplyWindowInsetsListener(root, (v, insets) -> {
+            Insets sysBars = insets.getInsets(WindowInsetsCompat.Type.systemBars());
+            v.setPadding(16 + sysBars.left, 16 + sysBars.top,
+                    16 + sysBars.right, 16 + sysBars.bottom);
+            return insets;
+        });
+
+        setContentView(root);
+
+        // ===== Sort buttons =====
+        LinearLayout sortRow = new LinearLayout(this);
+        sortRow.setOrientation(LinearLayout.HORIZONTAL);
+        sortRow.setGravity(Gravity.CENTER);
+        sortRow.setPadding(0, 0, 0, 16);
+
+        LinearLayout.LayoutParams btnParams = new LinearLayout.LayoutParams(0, ViewGroup.LayoutParams.WRAP_CONTENT, 1f);
+        addSortButton(sortRow, btnParams, getString(R.string.fleet_sort_needs_charge), BY_NEEDS_CHARGE);
+        addSortButton(sortRow, btnParams, getString(R.string.fleet_sort_serial), FleetIndex.BY_SERIAL);
+        addSortButton(sortRow, btnParams, getString(R.string.fleet_sort_cycles), FleetIndex.BY_CYCLES);
+        addSortButton(sortRow, btnParams, getString(R.string.fleet_sort_last_scan), FleetIndex.BY_LAST_SCAN);
+        root.addView(sortRow);
+
+        Button report = new Button(this);
+        report.setText(getString(R.string.fleet_report));
+        report.setOnClickListener(v -> promptFleetReport());
+        root.addView(report, new LinearLayout.LayoutParams(
+                LinearLayout.LayoutParams.MATCH_PARENT, LinearLayout.LayoutParams.WRAP_CONTENT));
+
+        summary = new TextView(this);
+        summary.setPadding(8, 0, 8, 16);
+        summary.setText(getString(R.string.fleet_loading));
+        root.addView(summary);
+
+        resolveThemeColors();
+        ListView list = new ListView(this);
+        list.setDivider(new ColorDrawable(Color.TRANSPARENT));
+        list.setDividerHeight(20);
+        list.setAdapter(adapter);
+        root.addView(list, new LinearLayout.LayoutParams(
+                LinearLayout.LayoutParams.MATCH_PARENT, 0, 1f));
+
+        refresh();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        loader.shutdown();
+    }
+
+    private void addSortButton(LinearLayout row, LinearLayout.LayoutParams params, String label,
+                               Comparator<FleetIndex.Battery> sortOrder) {
+        Button b = new Button(this);
+        b.setText(label);
+        b.setOnClickListener(v -> {
+            order = sortOrder;
+            refresh();
+        });
+        row.addView(b, params);
+    }
+
+    /** Load (first time: build) the index off the UI thread, then show it in the current order. */
+    private void refresh() {
+        Comparator<FleetIndex.Battery> sortOrder = order;
+        loader.execute(() -> {
+            LogHelper.flush(this);
+            List<FleetIndex.Battery> batteries = FleetIndex.get(this).list(sortOrder);
+            int needCharge = 0;
+            for (FleetIndex.Battery b : batteries) if (b.needsCharge()) needCharge++;
+            final int flagged = needCharge;
+            runOnUiThread(() -> {
+                if (isFinishing()) return;
+                summary.setText(getString(R.string.fleet_summary, batteries.size(), flagged));
+                adapter.setRows(batteries);
+            });
+        });
+    }
+
+    // ------------------------------------------------------------------------
+    // Fleet report
+    // ------------------------------------------------------------------------
+
+    private void promptFleetReport() {
+        final String[] items = {getString(R.string.fleet_report_html), getString(R.string.fleet_report_zip)};
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.fleet_report)
+                .setItems(items, (dialog, which) -> buildFleetReport(which == 1))
+                .show();
+    }
+
+    /**
+     * Render the newest logged state of every battery into one file in the cache
+     * dir, sections in parallel, then open (HTML) or share (ZIP) it.
+     */
+    private void buildFleetReport(boolean zip) {
+        Toast.makeText(this, R.string.fleet_report_building, Toast.LENGTH_SHORT).show();
+        File outFile = new File(getCacheDir(), zip ? "fleet_report.zip" : "fleet_report.html");
+
+        loader.execute(() -> {
+            ExecutorService renderers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+            Exception error = null;
+            long start = System.nanoTime();
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outFile), 64 * 1024)) {
+                List<BatteryDoc> docs = latestDocs();
+                if (zip) {
+                    FleetReport.writeZip(docs, out, renderers);
+                } else {
+                    FleetReport.writeHtml(docs, new OutputStreamWriter(out, StandardCharsets.UTF_8), renderers);
+                }
+                MetricsRegistry.histogram(zip ? "report.fleet_zip" : "report.fleet_html").recordSince(start);
+            } catch (Exception e) {
+                e.printStackTrace();
+                error = e;
+            } finally {
+                renderers.shutdownNow();
+            }
+
+            final Exception failure = error;
+            runOnUiThread(() -> {
+                if (isFinishing()) return;
+                if (failure != null) {
+                    Toast.makeText(this, getString(R.string.fleet_report_failed, failure.getMessage()),
+                            Toast.LENGTH_SHORT).show();
+                } else if (zip) {
+                    shareReport(outFile);
+                } else {
+                    openReport(outFile);
+                }
+            });
+        });
+    }
+
+    /** Newest logged document of every battery, by serial. */
+    private List<BatteryDoc> latestDocs() {
+        LogHelper.flush(this);
+        List<BatteryDoc> docs = new ArrayList<>();
+        for (FleetIndex.Battery b : FleetIndex.get(this).list(FleetIndex.BY_SERIAL)) {
+            String json = LogHelper.loadEntryJson(this, b.entryId);
+            if (json == null) continue;
+            try {
+                docs.add(BatteryDoc.parse(json));
+            } catch (JSONException e) {
+                Log.w(TAG, "Skipping unreadable log entry " + b.entryId + " for " + b.sn);
+            }
+        }
+        return docs;
+    }
+
+    private void openReport(File file) {
+        Uri uri = FileProvider.getUriForFile(this, getPackageName() + ".provider", file);
+        Intent intent = new Intent(Intent.ACTION_VIEW);
+        intent.setDataAndType(uri, "text/html");
+        intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        startActivity(intent);
+    }
+
+    private void shareReport(File file) {
+        Uri uri = FileProvider.getUriForFile(this, getPackageName() + ".provider", file);
+        Intent share = new Intent(Intent.ACTION_SEND);
+        share.setType("application/zip");
+        share.putExtra(Intent.EXTRA_STREAM, uri);
+        share.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        startActivity(Intent.createChooser(share, getString(R.string.fleet_report_share)));
+    }
+
+    private void resolveThemeColors() {
+        TypedValue tvColor = new TypedValue();
+        getTheme().resolveAttribute(android.R.attr.textColorPrimary, tvColor, true);
+        rowTextColor = ContextCompat.getColor(this, tvColor.resourceId);
+
+        TypedValue bgColor = new TypedValue();
+        hasRowBackground = getTheme().resolveAttribute(android.R.attr.colorBackgroundFloating, bgColor, true);
+        if (hasRowBackground) rowBackgroundColor = ContextCompat.getColor(this, bgColor.resourceId);
+    }
+
+    private String formatTime(long millis) {
+        return millis == 0 ? getString(R.string.fleet_never) : LogTimeFormatter.formatLocal(millis);
+    }
+
+    private final class FleetAdapter extends BaseAdapter {
+        private List<FleetIndex.Battery> rows = new ArrayList<>();
+
+        void setRows(List<FleetIndex.Battery> rows) {
+            this.rows = rows;
+            notifyDataSetChanged();
+        }
+
+        @Override public int getCount()              { return rows.size(); }
+        @Override public Object getItem(int position) { return rows.get(position); }
+        @Override public long getItemId(int position) { return position; }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            TextView tv = (TextView) convertView;
+            if (tv == null) {
+                tv = new TextView(FleetActivity.this);
+                tv.setTextSize(15f);
+                tv.setPadding(24, 20, 24, 20);
+                tv.setTextColor(rowTextColor);
+                if (hasRowBackground) tv.setBackgroundColor(rowBackgroundColor);
+                tv.setLayoutParams(new AbsListView.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+            }
+
+            FleetIndex.Battery b = rows.get(position);
+            tv.setText(getString(R.string.fleet_row,
+                    b.sn, b.needsCharge() ? getString(R.string.fleet_needs_charge_flag) : "", b.cc, b.note,
+                    formatTime(b.lastChargeMillis), formatTime(b.lastRobotMillis),
+                    formatTime(b.lastScanMillis), b.scans));
+            return tv;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.IronMaple.batterytagreader;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Latest known state of every battery serial seen in the log.
+ *
+ * Kept in memory and updated by {@link LogWriter} as entries are committed.
+ * A JSON snapshot (with the last log id it covers) is saved every
+ * {@link #SAVE_EVERY} entries; on first use the snapshot is loaded and only
+ * the log rows after it are replayed.
+ */
+final class FleetIndex {
+
+    private static final String TAG = "FleetIndex";
+    private static final String SNAPSHOT_FILE = "fleet_index.json";
+    private static final int SAVE_EVERY = 32;
+
+    private static FleetIndex instance;
+
+    private final File file;
+    private final Map<String, Battery> batteries = new HashMap<>();
+    private long lastId = 0;
+    private int unsaved = 0;
+
+    /** Immutable copy of one battery's state. */
+    static final class Battery {
+        final String sn;
+        final int cc;
+        final int note;
+        final long lastChargeMillis;  // 0 = never seen
+        final long lastRobotMillis;   // 0 = never seen
+        final long lastScanMillis;
+        final int scans;
+        final long entryId;           // log id of the newest entry, for loading its document
+
+        Battery(String sn, int cc, int note, long lastChargeMillis, long lastRobotMillis,
+                long lastScanMillis, int scans, long entryId) {
+            this.sn = sn;
+            this.cc = cc;
+            this.note = note;
+            this.lastChargeMillis = lastChargeMillis;
+            this.lastRobotMillis = lastRobotMillis;
+            this.lastScanMillis = lastScanMillis;
+            this.scans = scans;
+            this.entryId = entryId;
+        }
+
+        /** Used in a robot since it was last charged. */
+        boolean needsCharge() {
+            return lastRobotMillis > lastChargeMillis;
+        }
+
+        JSONObject toJson() throws Exception {
+            JSONObject o = new JSONObject();
+            o.put("sn", sn);
+            o.put("cc", cc);
+            o.put("n", note);
+            o.put("charge", lastChargeMillis);
+            o.put("robot", lastRobotMillis);
+            o.put("scan", lastScanMillis);
+            o.put("scans", scans);
+            o.put("id", entryId);
+            return o;
+        }
+
+        static Battery fromJson(JSONObject o) {
+            return new Battery(o.optString("sn"), o.optInt("cc"), o.optInt("n"),
+                    o.optLong("charge"), o.optLong("robot"), o.optLong("scan"), o.optInt("scans"),
+                    o.optLong("id"));
+        }
+    }
+
+    // --- Sort orders for the fleet screen ---
+    static final Comparator<Battery> BY_SERIAL = (a, b) -> a.sn.compareTo(b.sn);
+    static final Comparator<Battery> BY_CYCLES = (a, b) -> Integer.compare(b.cc, a.cc);
+    static final Comparator<Battery> BY_LAST_CHARGE = (a, b) -> Long.compare(a.lastChargeMillis, b.lastChargeMillis);
+    static final Comparator<Battery> BY_LAST_ROBOT = (a, b) -> Long.compare(b.lastRobotMillis, a.lastRobotMillis);
+    static final Comparator<Battery> BY_LAST_SCAN = (a, b) -> Long.compare(b.lastScanMillis, a.lastScanMillis);
+
+    private FleetIndex(File file) {
+        this.file = file;
+    }
+
+    /** The index, loaded and caught up with the log on first call. Don't call on the UI thread. */
+    static synchronized FleetIndex get(Context context) {
+        if (instance == null) {
+            FleetIndex index = new FleetIndex(new File(context.getApplicationContext().getFilesDir(), SNAPSHOT_FILE));
+            index.load();
+            index.replay(context);
+            instance = index;
+        }
+        return instance;
+    }
+
+    /** Forget everything (log was cleared). */
+    static synchronized void reset(Context context) {
+        if (instance != null) {
+            synchronized (instance) {
+                instance.batteries.clear();
+                instance.lastId = 0;
+                instance.unsaved = 0;
+            }
+        }
+        new File(context.getApplicationContext().getFilesDir(), SNAPSHOT_FILE).delete();
+    }
+
+    // ------------------------------------------------------------------------
+    // Updates
+    // ------------------------------------------------------------------------
+
+    /** Fold one committed log entry into the index; entries already covered are ignored. */
+    synchronized void apply(long id, long timeMillis, String sn, BatteryDoc doc) {
+        if (id <= lastId) return;
+        lastId = id;
+        if (sn == null || sn.isEmpty()) return;
+
+        long charge = 0, robot = 0;
+        for (int k = 0; k < doc.getUsageCount(); k++) {
+            long t = TagTime.toMillis(doc.getUsageTime(k));
+            int device = doc.getUsageDevice(k);
+            if (device == BatteryDoc.DEVICE_CHARGER) charge = Math.max(charge, t);
+            else if (device == BatteryDoc.DEVICE_ROBOT) robot = Math.max(robot, t);
+        }
+
+        Battery prev = batteries.get(sn);
+        batteries.put(sn, new Battery(sn, doc.getCycleCount(), doc.getNote(),
+                Math.max(charge, prev == null ? 0 : prev.lastChargeMillis),
+                Math.max(robot, prev == null ? 0 : prev.lastRobotMillis),
+                Math.max(timeMillis, prev == null ? 0 : prev.lastScanMillis),
+                prev == null ? 1 : prev.scans + 1,
+                id));
+        unsaved++;
+    }
+
+    /** Write the snapshot if enough has changed since the last one. */
+    void saveIfDirty() {
+        boolean due;
+        synchronized (this) {
+            due = unsaved >= SAVE_EVERY;
+        }
+        if (due) save();
+    }
+
+    // ------------------------------------------------------------------------
+    // Queries
+    // ------------------------------------------------------------------------
+
+    synchronized Battery find(String sn) {
+        return batteries.get(sn);
+    }
+
+    synchronized int size() {
+        return batteries.size();
+    }
+
+    /** Copy of all batteries in the given order. */
+    synchronized List<Battery> list(Comparator<Battery> order) {
+        List<Battery> result = new ArrayList<>(batteries.values());
+        result.sort(order);
+        return result;
+    }
+
+    // ------------------------------------------------------------------------
+    // Snapshot
+    // ------------------------------------------------------------------------
+
+    /** Write the snapshot to a temp file and rename it over the old one. */
+    void save() {
+        String json;
+        synchronized (this) {
+            try {
+                JSONArray list = new JSONArray();
+                for (Battery b : batteries.values()) list.put(b.toJson());
+                json = new JSONObject().put("lastId", lastId).put("batteries", list).toString();
+            } catch (Exception e) {
+                Log.e(TAG, "Cannot serialize fleet index", e);
+                return;
+            }
+            unsaved = 0;
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+             Writer out = new OutputStreamWriter(fos, StandardCharsets.UTF_8)) {
+            out.write(json);
+            out.flush();
+            fos.getFD().sync();
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot write fleet index", e);
+            return;
+        }
+        if (!tmp.renameTo(file)) Log.e(TAG, "Cannot replace fleet index snapshot");
+    }
+
+    private void load() {
+        if (!file.exists()) return;
+        StringBuilder sb = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) sb.append(line);
+            JSONObject root = new JSONObject(sb.toString());
+            JSONArray list = root.optJSONArray("batteries");
+            if (list != null) {
+                for (int i = 0; i < list.length(); i++) {
+                    JSONObject o = list.getJSONObject(i);
+                    // Snapshots from before entry ids were kept: rebuild from the whole log
+                    if (!o.has("id")) throw new IOException("Fleet index snapshot without entry ids");
+                    Battery b = Battery.fromJson(o);
+                    batteries.put(b.sn, b);
+                }
+            }
+            lastId = root.optLong("lastId");
+        } catch (Exception e) {
+            // Corrupt snapshot: rebuild from the whole log
+            Log.w(TAG, "Ignoring unreadable fleet index snapshot", e);
+            batteries.clear();
+            lastId = 0;
+        }
+    }
+
+    /** Catch up with log entries newer than the snapshot. */
+    private void replay(Context context) {
+        long start = System.nanoTime();
+        int replayed = 0;
+        try (LogCursor c = LogHelper.queryPage(context, lastId, Integer.MAX_VALUE)) {
+            while (c.moveToNext()) {
+                String json = c.getDataJson();
+                if (json == null) {
+                    Log.w(TAG, "Skipping unreadable log entry " + c.getId());
+                    continue;
+                }
+                try {
+                    apply(c.getId(), c.getTimeMillis(), c.getSerial(), BatteryDoc.parse(json));
+                    replayed++;
+                } catch (Exception e) {
+                    Log.w(TAG, "Skipping unreadable log entry " + c.getId());
+                }
+            }
+        }
+        if (replayed > 0) save();
+        Log.i(TAG, "Replayed " + replayed + " log entries in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+}
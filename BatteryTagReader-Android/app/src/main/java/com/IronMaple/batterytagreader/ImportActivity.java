@@ -6,7 +6,6 @@ import android.app.PendingIntent;
 import android.content.Intent;
 import android.net.Uri;
 import android.nfc.NdefMessage;
-import android.nfc.NdefRecord;
 import android.nfc.NfcAdapter;
 import android.nfc.Tag;
 import android.nfc.tech.Ndef;
@@ -18,12 +17,10 @@ import android.widget.Button;
 import android.widget.FrameLayout;
 import android.widget.Toast;
 
-import org.json.JSONObject;
 
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.nio.charset.Charset;
 
 public class ImportActivity extends Activity {
 
@@ -145,24 +142,19 @@ public class ImportActivity extends Activity {
         try {
             Ndef ndef = Ndef.get(tag);
             if (ndef != null && ndef.isWritable()) {
+                BatteryDoc doc = BatteryDoc.parse(loadedJson);
+                NdefMessage message = TagCodec.fit(doc, AppSettings.isCompactTagEncoding(this), ndef.getMaxSize());
+                if (message == null) {
+                    Toast.makeText(this, "Data too large for this tag (" + ndef.getMaxSize() + " bytes).",
+                            Toast.LENGTH_LONG).show();
+                    return;
+                }
                 ndef.connect();
-                byte[] lang = "en".getBytes(Charset.forName("US-ASCII"));
-                byte[] text = loadedJson.getBytes(Charset.forName("UTF-8"));
-                byte[] payload = new byte[1 + lang.length + text.length];
-                payload[0] = (byte) lang.length;
-                System.arraycopy(lang, 0, payload, 1, lang.length);
-                System.arraycopy(text, 0, payload, 1 + lang.length, text.length);
-                NdefRecord record = new NdefRecord(
-                        NdefRecord.TNF_WELL_KNOWN,
-                        NdefRecord.RTD_TEXT,
-                        new byte[0],
-                        payload
-                );
-                ndef.writeNdefMessage(new NdefMessage(new NdefRecord[]{record}));
+                ndef.writeNdefMessage(message);
                 ndef.close();
 
                 Toast.makeText(this, "Write successful.", Toast.LENGTH_LONG).show();
-                LogHelper.log(this, "import_write", new JSONObject(loadedJson));
+                LogHelper.log(this, "import_write", doc);
                 finish();
             } else {
                 Toast.makeText(this, "Tag not writable or not NDEF.", Toast.LENGTH_SHORT).show();
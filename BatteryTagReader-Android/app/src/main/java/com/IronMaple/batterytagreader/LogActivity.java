@@ -4,32 +4,48 @@ import android.app.Activity;
 import android.app.AlertDialog;
 import android.content.Intent;
 import android.net.Uri;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
 import android.os.Bundle;
 import android.os.Environment;
 import android.os.Handler;
 import android.os.Looper;
+import android.text.InputType;
 import android.view.Gravity;
+import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.ArrayAdapter;
+import android.widget.BaseAdapter;
 import android.widget.Button;
+import android.widget.CheckBox;
+import android.widget.EditText;
 import android.widget.LinearLayout;
-import android.widget.ScrollView;
+import android.widget.ListView;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.core.content.FileProvider;
 
-import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.FileWriter;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
-import java.util.TimeZone;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import android.util.Log;
 import android.util.TypedValue;
 import androidx.core.content.ContextCompat;
 import androidx.core.graphics.Insets;
@@ -39,6 +55,8 @@ import androidx.core.view.WindowInsetsCompat;
 
 public class LogActivity extends Activity {
 
+    private static final String TAG = "LogActivity";
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -93,7 +111,7 @@ public class LogActivity extends Activity {
 
         root.addView(row1);
 
-        // ===== Row 2: Export JSON / Export CSV / Clear =====
+        // ===== Row 2: Export JSON / Export CSV / Clear / Fleet =====
         LinearLayout row2 = new LinearLayout(this);
         row2.setOrientation(LinearLayout.HORIZONTAL);
         row2.setGravity(Gravity.CENTER);
@@ -101,12 +119,12 @@ public class LogActivity extends Activity {
 
         Button exportJson = new Button(this);
         exportJson.setText(getString(R.string.btn_export_json));
-        exportJson.setOnClickListener(v -> exportFile("log.json", "application/json", true));
+        exportJson.setOnClickListener(v -> promptJsonExport());
         row2.addView(exportJson, btnParams);
 
         Button exportCsv = new Button(this);
         exportCsv.setText(getString(R.string.btn_export_csv));
-        exportCsv.setOnClickListener(v -> exportFile("log.csv", "text/csv", false));
+        exportCsv.setOnClickListener(v -> exportCsvFile());
         row2.addView(exportCsv, btnParams);
 
         Button clear = new Button(this);
@@ -114,9 +132,14 @@ public class LogActivity extends Activity {
         clear.setOnClickListener(v -> showClearConfirm());
         row2.addView(clear, btnParams);
 
+        Button fleet = new Button(this);
+        fleet.setText(getString(R.string.btn_fleet));
+        fleet.setOnClickListener(v -> startActivity(new Intent(this, FleetActivity.class)));
+        row2.addView(fleet, btnParams);
+
         root.addView(row2);
 
-        // ===== Row 3: Demo / Privacy / Help =====
+        // ===== Row 3: Demo / Privacy / Help / Settings / Diagnostics =====
         LinearLayout row3 = new LinearLayout(this);
         row3.setOrientation(LinearLayout.HORIZONTAL);
         row3.setGravity(Gravity.CENTER);
@@ -150,108 +173,272 @@ public class LogActivity extends Activity {
         });
         row3.addView(helpBtn, btnParams);
 
+        Button settingsBtn = new Button(this);
+        settingsBtn.setText(getString(R.string.btn_settings));
+        settingsBtn.setOnClickListener(v -> showSettings());
+        row3.addView(settingsBtn, btnParams);
+
+        Button diagnosticsBtn = new Button(this);
+        diagnosticsBtn.setText(getString(R.string.btn_diagnostics));
+        diagnosticsBtn.setOnClickListener(v -> startActivity(new Intent(this, DiagnosticsActivity.class)));
+        row3.addView(diagnosticsBtn, btnParams);
+
         root.addView(row3);
 
-        // Scrollable log entries
-        ScrollView scroll = new ScrollView(this);
-        LinearLayout logList = new LinearLayout(this);
-        logList.setOrientation(LinearLayout.VERTICAL);
-        scroll.addView(logList);
-        root.addView(scroll);
-
-        JSONArray log = LogHelper.getLog(this);
-        for (int i = 0; i < log.length(); i++) {
-            JSONObject entry = log.optJSONObject(i);
-            if (entry == null) continue;
-
-            String info = String.format(Locale.US,
-                    "[%s] %s\n\n%s",
-                    entry.optString("time"),
-                    entry.optString("type").toUpperCase(Locale.US),
-                    formatJsonPretty(entry.optJSONObject("data"))
-            );
-
-            TextView tv = new TextView(this);
-            tv.setText(info);
-            tv.setTextSize(15f);
-            tv.setPadding(24, 20, 24, 20);
-            tv.setTextIsSelectable(true);
+        // Log entries: recycled rows, loaded a page at a time, pretty-printed only when expanded
+        resolveThemeColors();
+        ListView logList = new ListView(this);
+        logList.setDivider(new ColorDrawable(Color.TRANSPARENT)); // 20px gap between entries
+        logList.setDividerHeight(20);
+        logAdapter = new LogAdapter();
+        logList.setAdapter(logAdapter);
+        root.addView(logList, new LinearLayout.LayoutParams(
+                LinearLayout.LayoutParams.MATCH_PARENT, 0, 1f));
+    }
+
+    private static final int PAGE_SIZE = 50;
+
+    /** Log pages and expanded entries are read here, never on the UI thread. */
+    private final ExecutorService pageExecutor = Executors.newSingleThreadExecutor();
+    private LogAdapter logAdapter;
+
+    private int rowTextColor;
+    private int rowBackgroundColor;
+    private boolean hasRowBackground;
 
-            // Dynamically resolve text color based on theme
-            TypedValue tvColor = new TypedValue();
-            getTheme().resolveAttribute(android.R.attr.textColorPrimary, tvColor, true);
-            tv.setTextColor(ContextCompat.getColor(this, tvColor.resourceId));
+    private void resolveThemeColors() {
+        // Dynamically resolve text color based on theme
+        TypedValue tvColor = new TypedValue();
+        getTheme().resolveAttribute(android.R.attr.textColorPrimary, tvColor, true);
+        rowTextColor = ContextCompat.getColor(this, tvColor.resourceId);
 
-            // Optional: use theme background
-            TypedValue bgColor = new TypedValue();
-            if (getTheme().resolveAttribute(android.R.attr.colorBackgroundFloating, bgColor, true)) {
-                tv.setBackgroundColor(ContextCompat.getColor(this, bgColor.resourceId));
+        // Optional: use theme background
+        TypedValue bgColor = new TypedValue();
+        hasRowBackground = getTheme().resolveAttribute(android.R.attr.colorBackgroundFloating, bgColor, true);
+        if (hasRowBackground) rowBackgroundColor = ContextCompat.getColor(this, bgColor.resourceId);
+    }
+
+    /** Summary of one log row; the tag document itself is only loaded when expanded. */
+    private static final class LogRow {
+        final long id;
+        final String time;
+        final String type;
+        final String sn;
+        final int cc;
+        final int note;
+
+        LogRow(LogCursor c) {
+            id = c.getId();
+            time = c.getTimeUtc();
+            type = c.getType().toUpperCase(Locale.US);
+            sn = c.getSerial();
+            cc = c.getCycleCount();
+            note = c.getNote();
+        }
+    }
+
+    private final class LogAdapter extends BaseAdapter {
+        private final List<LogRow> rows = new ArrayList<>();
+        private final Map<Long, String> expanded = new HashMap<>(); // id -> pretty JSON
+        private final LogPager pager = new LogPager(LogActivity.this); // pageExecutor only
+        private boolean flushed = false;                               // pageExecutor only
+        private boolean exhausted = false;
+        private boolean loading = false;
+
+        LogAdapter() {
+            loadNextPage();
+        }
+
+        private void loadNextPage() {
+            if (exhausted || loading) return;
+            loading = true;
+            pageExecutor.execute(() -> {
+                // Queued entries first, so the first page includes the latest taps
+                if (!flushed) {
+                    LogHelper.flush(LogActivity.this);
+                    flushed = true;
+                }
+                List<LogRow> page = new ArrayList<>(PAGE_SIZE);
+                while (page.size() < PAGE_SIZE && pager.moveToNext()) page.add(new LogRow(pager));
+                runOnUiThread(() -> {
+                    loading = false;
+                    if (page.size() < PAGE_SIZE) exhausted = true;
+                    if (page.isEmpty()) return;
+                    rows.addAll(page);
+                    notifyDataSetChanged();
+                });
+            });
+        }
+
+        void close() {
+            pageExecutor.execute(pager::close);
+        }
+
+        @Override public int getCount()              { return rows.size(); }
+        @Override public Object getItem(int position) { return rows.get(position); }
+        @Override public long getItemId(int position) { return rows.get(position).id; }
+        @Override public boolean hasStableIds()       { return true; }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            // Prefetch before the user reaches the end of what is loaded
+            if (position >= rows.size() - 10) loadNextPage();
+
+            TextView tv = (TextView) convertView;
+            if (tv == null) tv = newRowView(parent);
+
+            LogRow row = rows.get(position);
+            String pretty = expanded.get(row.id);
+            String summary = String.format(Locale.US, "[%s] %s  %s  cc=%d  n=%d",
+                    row.time, row.type, row.sn, row.cc, row.note);
+            tv.setText(pretty == null ? summary : summary + "\n\n" + pretty);
+            tv.setOnClickListener(v -> toggle(row));
+            return tv;
+        }
+
+        private void toggle(LogRow row) {
+            if (expanded.remove(row.id) != null) {
+                notifyDataSetChanged();
+                return;
             }
+            // Archived entries are decompressed to expand them; keep that off the UI thread
+            pageExecutor.execute(() -> {
+                String pretty = formatJsonPretty(LogHelper.loadEntryData(LogActivity.this, row.id));
+                runOnUiThread(() -> {
+                    expanded.put(row.id, pretty);
+                    notifyDataSetChanged();
+                });
+            });
+        }
 
-            LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(
-                    LinearLayout.LayoutParams.MATCH_PARENT,
-                    LinearLayout.LayoutParams.WRAP_CONTENT
-            );
-            params.setMargins(0, 0, 0, 20);
-            logList.addView(tv, params);
+        private TextView newRowView(ViewGroup parent) {
+            TextView tv = new TextView(LogActivity.this);
+            tv.setTextSize(15f);
+            tv.setPadding(24, 20, 24, 20);
+            tv.setTextColor(rowTextColor);
+            if (hasRowBackground) tv.setBackgroundColor(rowBackgroundColor);
+            tv.setLayoutParams(new AbsListView.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+            return tv;
         }
     }
 
-    private void exportFile(String filename, String mime, boolean asJson) {
-        try {
-            // Build the file in cache first
-            File cacheFile = new File(getCacheDir(), filename);
-            FileWriter writer = new FileWriter(cacheFile);
+    /** Export work for one file format; runs on {@link #exportExecutor}. */
+    private interface ExportTask {
+        boolean run(File outFile, LogExporter.ProgressListener listener, AtomicBoolean cancelled)
+                throws Exception;
+    }
 
-            JSONArray log = LogHelper.getLog(this);
-            if (asJson) {
-                writer.write(log.toString(2));
-            } else {
-                // Fixed CSV header (do NOT localize)
-                writer.write("Time,Type,Data\n");
-                for (int i = 0; i < log.length(); i++) {
-                    JSONObject entry = log.getJSONObject(i);
-                    String utcString = entry.optString("time", "");
-                    String localTime = utcString;
-
-                    try {
-                        SimpleDateFormat utcFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.US);
-                        utcFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-
-                        SimpleDateFormat localFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.ROOT);
-                        localFormat.setTimeZone(TimeZone.getDefault());
-
-                        Date parsedUtcDate = utcFormat.parse(utcString);
-                        if (parsedUtcDate != null) {
-                            localTime = localFormat.format(parsedUtcDate);
-                        }
-                    } catch (Exception e) {
-                        e.printStackTrace();
+    private final ExecutorService exportExecutor = Executors.newSingleThreadExecutor();
+
+    private void promptJsonExport() {
+        final String[] items = {getString(R.string.export_format_json_indented),
+                getString(R.string.export_format_json_compact), getString(R.string.export_format_ndjson)};
+        new AlertDialog.Builder(this)
+                .setTitle(getString(R.string.btn_export_json))
+                .setItems(items, (dialog, which) -> {
+                    switch (which) {
+                        case 0:
+                            exportJsonFile(true);
+                            break;
+                        case 1:
+                            exportJsonFile(false);
+                            break;
+                        default:
+                            runExport("log.ndjson", "application/x-ndjson", getString(R.string.export_title_ndjson),
+                                    (outFile, listener, cancelled) ->
+                                            LogExporter.exportNdjson(this, outFile, listener, cancelled));
+                            break;
                     }
+                })
+                .show();
+    }
+
+    private void exportJsonFile(boolean indent) {
+        runExport("log.json", "application/json", getString(R.string.export_title_json),
+                (outFile, listener, cancelled) ->
+                        LogExporter.exportJson(this, outFile, indent, listener, cancelled));
+    }
 
-                    String type = entry.optString("type", "");
-                    String data = entry.optJSONObject("data").toString().replace("\"", "'");
-                    writer.write(String.format(Locale.ROOT, "\"%s\",\"%s\",\"%s\"\n", localTime, type, data));
+    private void exportCsvFile() {
+        runExport("log.csv", "text/csv", getString(R.string.export_title_csv),
+                (outFile, listener, cancelled) ->
+                        LogExporter.exportCsv(this, outFile, listener, cancelled));
+    }
+
+    /** Run an export off the UI thread behind a cancellable progress dialog. */
+    private void runExport(String filename, String mime, String title, ExportTask task) {
+        // Build the file in cache first
+        File cacheFile = new File(getCacheDir(), filename);
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+
+        TextView progressText = new TextView(this);
+        progressText.setPadding(48, 32, 48, 16);
+        progressText.setText(R.string.export_preparing);
+
+        AlertDialog progress = new AlertDialog.Builder(this)
+                .setTitle(title)
+                .setView(progressText)
+                .setNegativeButton(android.R.string.cancel, (d, w) -> cancelled.set(true))
+                .setCancelable(false)
+                .show();
+
+        LogExporter.ProgressListener listener = (done, total) -> runOnUiThread(() ->
+                progressText.setText(getString(R.string.export_progress, done, total)));
+
+        exportExecutor.execute(() -> {
+            boolean completed;
+            Exception error = null;
+            try {
+                long start = System.nanoTime();
+                completed = task.run(cacheFile, listener, cancelled);
+                if (completed) {
+                    String format = filename.substring(filename.lastIndexOf('.') + 1);
+                    MetricsRegistry.histogram("export." + format).recordSince(start);
+                    DiagnosticsActivity.writeMetricsFile(this); // shared and saved with the log
                 }
+            } catch (Exception e) {
+                Log.e(TAG, "Export to " + filename + " failed", e);
+                completed = false;
+                error = e;
             }
-            writer.close();
-
-            // 🔹 Ask user: Save to Downloads or Share
-            new AlertDialog.Builder(this)
-                    .setTitle(asJson ? "Export Log (JSON)" : "Export Log (CSV)")
-                    .setMessage("Choose how you want to export the log file:")
-                    .setPositiveButton("Share via apps", (dialog, which) -> {
-                        shareFile(cacheFile, mime);
-                    })
-                    .setNegativeButton("Save to Downloads", (dialog, which) -> {
-                        saveToDownloads(cacheFile, filename);
-                    })
-                    .setNeutralButton("Cancel", null)
-                    .show();
 
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+            final boolean ok = completed;
+            final Exception failure = error;
+            runOnUiThread(() -> {
+                if (isFinishing()) return;
+                progress.dismiss();
+                if (failure != null) {
+                    Toast.makeText(this, getString(R.string.export_failed, failure.getMessage()),
+                            Toast.LENGTH_SHORT).show();
+                } else if (ok) {
+                    showExportChoice(title, cacheFile, filename, mime);
+                }
+            });
+        });
+    }
+
+    private void showExportChoice(String title, File cacheFile, String filename, String mime) {
+        // 🔹 Ask user: Save to Downloads or Share
+        new AlertDialog.Builder(this)
+                .setTitle(title)
+                .setMessage("Choose how you want to export the log file:")
+                .setPositiveButton("Share via apps", (dialog, which) -> {
+                    shareFile(cacheFile, mime);
+                })
+                .setNegativeButton("Save to Downloads", (dialog, which) -> {
+                    saveToDownloads(cacheFile, filename);
+                })
+                .setNeutralButton("Cancel", null)
+                .show();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        exportExecutor.shutdown();
+        if (logAdapter != null) logAdapter.close();
+        pageExecutor.shutdown();
     }
 
     private void shareFile(File file, String mime) {
@@ -261,9 +448,21 @@ public class LogActivity extends Activity {
                 file
         );
 
-        Intent share = new Intent(Intent.ACTION_SEND);
-        share.setType(mime);
-        share.putExtra(Intent.EXTRA_STREAM, uri);
+        // The metrics snapshot taken with the export goes along with it
+        File metrics = DiagnosticsActivity.metricsFile(this);
+        Intent share;
+        if (metrics.isFile()) {
+            ArrayList<Uri> uris = new ArrayList<>();
+            uris.add(uri);
+            uris.add(FileProvider.getUriForFile(this, getPackageName() + ".provider", metrics));
+            share = new Intent(Intent.ACTION_SEND_MULTIPLE);
+            share.setType("*/*");
+            share.putParcelableArrayListExtra(Intent.EXTRA_STREAM, uris);
+        } else {
+            share = new Intent(Intent.ACTION_SEND);
+            share.setType(mime);
+            share.putExtra(Intent.EXTRA_STREAM, uri);
+        }
         share.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
         startActivity(Intent.createChooser(share, getString(R.string.chooser_share_log_title)));
     }
@@ -287,18 +486,14 @@ public class LogActivity extends Activity {
             String newName = "BatteryReader_" + timeStamp + ".log" + extension;
 
             File outFile = new File(downloads, newName);
+            copyToDownloads(source, outFile);
 
-            // --- Copy the file ---
-            try (FileInputStream in = new FileInputStream(source);
-                 FileOutputStream out = new FileOutputStream(outFile)) {
-                byte[] buf = new byte[4096];
-                int len;
-                while ((len = in.read(buf)) > 0) out.write(buf, 0, len);
+            // --- Metrics snapshot taken with the export, same timestamp ---
+            File metrics = DiagnosticsActivity.metricsFile(this);
+            if (metrics.isFile()) {
+                copyToDownloads(metrics, new File(downloads, "BatteryReader_" + timeStamp + ".metrics.json"));
             }
 
-            // --- Make visible in Files app immediately ---
-            sendBroadcast(new Intent(Intent.ACTION_MEDIA_SCANNER_SCAN_FILE, Uri.fromFile(outFile)));
-
             Toast.makeText(this, "Saved to Downloads: " + outFile.getName(), Toast.LENGTH_SHORT).show();
         } catch (Exception e) {
             Toast.makeText(this, "Save failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
@@ -307,6 +502,118 @@ public class LogActivity extends Activity {
 
 
 
+    private void copyToDownloads(File source, File outFile) throws IOException {
+        // --- Copy the file ---
+        try (FileInputStream in = new FileInputStream(source);
+             FileOutputStream out = new FileOutputStream(outFile)) {
+            byte[] buf = new byte[4096];
+            int len;
+            while ((len = in.read(buf)) > 0) out.write(buf, 0, len);
+        }
+
+        // --- Make visible in Files app immediately ---
+        sendBroadcast(new Intent(Intent.ACTION_MEDIA_SCANNER_SCAN_FILE, Uri.fromFile(outFile)));
+    }
+
+    private void showSettings() {
+        LinearLayout layout = new LinearLayout(this);
+        layout.setOrientation(LinearLayout.VERTICAL);
+        layout.setPadding(40, 30, 40, 10);
+
+        // --- Log retention ---
+        EditText liveDays = addNumberField(layout, getString(R.string.settings_live_days),
+                AppSettings.getLiveMaxAgeDays(this));
+        EditText liveEntries = addNumberField(layout, getString(R.string.settings_live_entries),
+                AppSettings.getLiveMaxEntries(this));
+        EditText archiveDays = addNumberField(layout, getString(R.string.settings_archive_days),
+                AppSettings.getArchiveMaxAgeDays(this));
+
+        TextView archiveInfo = new TextView(this);
+        archiveInfo.setPadding(0, 20, 0, 10);
+        archiveInfo.setText(R.string.settings_archive_loading);
+        layout.addView(archiveInfo);
+        // Counting the archive lists and stats its segment files; keep that off the UI thread
+        exportExecutor.execute(() -> {
+            LogArchive archive = LogArchive.get(this);
+            String info = getString(R.string.settings_archive_info,
+                    archive.count(), archive.segments().size(), archive.sizeBytes() / 1024);
+            runOnUiThread(() -> archiveInfo.setText(info));
+        });
+
+        EditText dedupWindow = addNumberField(layout, getString(R.string.settings_dedup_window),
+                AppSettings.getDedupWindowMinutes(this));
+
+        // --- Tag encoding ---
+        CheckBox compactTags = new CheckBox(this);
+        compactTags.setText(getString(R.string.settings_compact_tags));
+        compactTags.setChecked(AppSettings.isCompactTagEncoding(this));
+        layout.addView(compactTags);
+
+        // --- Duplicate charger entries ---
+        TextView dupLabel = new TextView(this);
+        dupLabel.setText(getString(R.string.settings_duplicate_charger));
+        layout.addView(dupLabel);
+        Spinner dupPolicy = new Spinner(this);
+        dupPolicy.setAdapter(new ArrayAdapter<>(this, android.R.layout.simple_spinner_dropdown_item,
+                new String[]{getString(R.string.settings_duplicate_ask),
+                        getString(R.string.settings_duplicate_add), getString(R.string.settings_duplicate_skip)}));
+        dupPolicy.setSelection(AppSettings.getDuplicateChargerPolicy(this));
+        layout.addView(dupPolicy);
+
+        // --- NFC reader mode ---
+        CheckBox readerMode = new CheckBox(this);
+        readerMode.setText(getString(R.string.settings_reader_mode));
+        readerMode.setChecked(AppSettings.isReaderMode(this));
+        layout.addView(readerMode);
+        EditText presenceDelay = addNumberField(layout, getString(R.string.settings_presence_delay),
+                AppSettings.getPresenceCheckDelayMs(this));
+
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.btn_settings)
+                .setView(layout)
+                .setPositiveButton(R.string.btn_save, (d, w) -> {
+                    AppSettings.setRetention(this,
+                            parseIntOr(liveDays, AppSettings.DEFAULT_LIVE_MAX_AGE_DAYS),
+                            parseIntOr(liveEntries, AppSettings.DEFAULT_LIVE_MAX_ENTRIES),
+                            parseIntOr(archiveDays, AppSettings.DEFAULT_ARCHIVE_MAX_AGE_DAYS));
+                    AppSettings.setDedupWindowMinutes(this,
+                            parseIntOr(dedupWindow, AppSettings.DEFAULT_DEDUP_WINDOW_MINUTES));
+                    AppSettings.setCompactTagEncoding(this, compactTags.isChecked());
+                    AppSettings.setDuplicateChargerPolicy(this, dupPolicy.getSelectedItemPosition());
+                    AppSettings.setReaderMode(this, readerMode.isChecked(),
+                            parseIntOr(presenceDelay, AppSettings.DEFAULT_PRESENCE_DELAY_MS));
+                })
+                .setNeutralButton(R.string.btn_compact_now, (d, w) -> exportExecutor.execute(() -> {
+                    long moved = LogCompactor.compact(this);
+                    runOnUiThread(() -> {
+                        Toast.makeText(this, getString(R.string.toast_archived_entries, moved), Toast.LENGTH_SHORT).show();
+                        recreate();
+                    });
+                }))
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    private EditText addNumberField(LinearLayout layout, String label, int value) {
+        TextView tv = new TextView(this);
+        tv.setText(label);
+        layout.addView(tv);
+
+        EditText input = new EditText(this);
+        input.setInputType(InputType.TYPE_CLASS_NUMBER);
+        input.setText(String.valueOf(value));
+        layout.addView(input);
+        return input;
+    }
+
+    private static int parseIntOr(EditText input, int fallback) {
+        try {
+            return Integer.parseInt(input.getText().toString().trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
     private void showClearConfirm() {
         final AlertDialog dialog = new AlertDialog.Builder(this)
                 .setTitle(R.string.dialog_clear_logs_title)
@@ -336,17 +643,34 @@ public class LogActivity extends Activity {
             h.postDelayed(tick, 1000);
 
             positive.setOnClickListener(v -> {
-                LogHelper.clearLog(this);
-                Toast.makeText(this, R.string.toast_logs_cleared, Toast.LENGTH_SHORT).show();
                 dialog.dismiss();
-                recreate();
+                clearLogInBackground();
             });
         });
 
         dialog.show();
     }
 
+    /** Clearing waits for a running compaction to finish, so it must not block the UI thread. */
+    private void clearLogInBackground() {
+        AlertDialog progress = new AlertDialog.Builder(this)
+                .setMessage(R.string.progress_clearing_logs)
+                .setCancelable(false)
+                .show();
+
+        exportExecutor.execute(() -> {
+            LogHelper.clearLog(this);
+            runOnUiThread(() -> {
+                if (isFinishing()) return;
+                progress.dismiss();
+                Toast.makeText(this, R.string.toast_logs_cleared, Toast.LENGTH_SHORT).show();
+                recreate();
+            });
+        });
+    }
+
     private String formatJsonPretty(JSONObject obj) {
+        if (obj == null) return "";
         try {
             return obj.toString(2);
         } catch (Exception e) {
@@ -0,0 +1,308 @@
+package com.IronMaple.batterytagreader;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Immutable, gzip-compressed segments of log entries that were rolled out of
+ * the live {@link LogStore}.
+ *
+ * Each segment is NDJSON (one {"id","time","type","sn","cc","n","data"} object
+ * per line) and is written to a temp file and renamed, so a segment either
+ * exists complete or not at all. The id/time range and row count are encoded
+ * in the file name, so queries can skip segments without opening them.
+ */
+final class LogArchive {
+
+    private static final String TAG = "LogArchive";
+    private static final String DIR_NAME = "log_archive";
+    private static final String PREFIX = "seg_";
+    private static final String SUFFIX = ".ndjson.gz";
+
+    private static LogArchive instance;
+
+    private final File dir;
+
+    /** One segment file and the ranges parsed from its name. */
+    static final class Segment {
+        final File file;
+        final long firstId, lastId, count, minTime, maxTime;
+
+        Segment(File file, long firstId, long lastId, long count, long minTime, long maxTime) {
+            this.file = file;
+            this.firstId = firstId;
+            this.lastId = lastId;
+            this.count = count;
+            this.minTime = minTime;
+            this.maxTime = maxTime;
+        }
+
+        static String fileName(long firstId, long lastId, long count, long minTime, long maxTime) {
+            return String.format(Locale.US, PREFIX + "%d_%d_%d_%d_%d" + SUFFIX,
+                    firstId, lastId, count, minTime, maxTime);
+        }
+
+        static Segment parse(File file) {
+            String name = file.getName();
+            if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) return null;
+            String[] parts = name.substring(PREFIX.length(), name.length() - SUFFIX.length()).split("_");
+            if (parts.length != 5) return null;
+            try {
+                return new Segment(file, Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                        Long.parseLong(parts[2]), Long.parseLong(parts[3]), Long.parseLong(parts[4]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    private LogArchive(File dir) {
+        this.dir = dir;
+    }
+
+    static synchronized LogArchive get(Context context) {
+        if (instance == null) {
+            File dir = new File(context.getApplicationContext().getFilesDir(), DIR_NAME);
+            if (!dir.exists()) dir.mkdirs();
+            instance = new LogArchive(dir);
+        }
+        return instance;
+    }
+
+    /** All segments, oldest first. */
+    List<Segment> segments() {
+        List<Segment> result = new ArrayList<>();
+        File[] files = dir.listFiles();
+        if (files == null) return result;
+        for (File f : files) {
+            Segment s = Segment.parse(f);
+            if (s != null) result.add(s);
+        }
+        result.sort((a, b) -> Long.compare(a.firstId, b.firstId));
+        return result;
+    }
+
+    /** Highest log id already archived, or 0. */
+    long maxArchivedId() {
+        long max = 0;
+        for (Segment s : segments()) max = Math.max(max, s.lastId);
+        return max;
+    }
+
+    long count() {
+        long n = 0;
+        for (Segment s : segments()) n += s.count;
+        return n;
+    }
+
+    long sizeBytes() {
+        long n = 0;
+        for (Segment s : segments()) n += s.file.length();
+        return n;
+    }
+
+    // ------------------------------------------------------------------------
+    // Writing
+    // ------------------------------------------------------------------------
+
+    /**
+     * Write every row of {@code rows} (in id order) into a new segment.
+     * @return the segment, or null if there were no rows
+     */
+    Segment write(LogCursor rows) throws IOException {
+        File tmp = new File(dir, "segment.tmp");
+        long firstId = -1, lastId = -1, count = 0;
+        long minTime = Long.MAX_VALUE, maxTime = Long.MIN_VALUE;
+
+        FileOutputStream fos = new FileOutputStream(tmp, false);
+        GZIPOutputStream gzip = new GZIPOutputStream(fos, 64 * 1024);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8))) {
+            while (rows.moveToNext()) {
+                long id = rows.getId();
+                long time = rows.getTimeMillis();
+                if (firstId < 0) firstId = id;
+                lastId = id;
+                count++;
+                minTime = Math.min(minTime, time);
+                maxTime = Math.max(maxTime, time);
+
+                out.write("{\"id\":" + id
+                        + ",\"time\":" + time
+                        + ",\"type\":" + JSONObject.quote(rows.getType())
+                        + ",\"sn\":" + JSONObject.quote(rows.getSerial())
+                        + ",\"cc\":" + rows.getCycleCount()
+                        + ",\"n\":" + rows.getNote()
+                        + ",\"data\":" + dataOrNull(rows) + "}\n");
+            }
+            out.flush();
+            gzip.finish();
+            fos.getFD().sync();
+        }
+
+        if (count == 0) {
+            tmp.delete();
+            return null;
+        }
+
+        File target = new File(dir, Segment.fileName(firstId, lastId, count, minTime, maxTime));
+        if (!tmp.renameTo(target)) throw new IOException("Could not finalize archive segment " + target);
+        return new Segment(target, firstId, lastId, count, minTime, maxTime);
+    }
+
+    /** Unreadable entries keep their row in the archive, with null data. */
+    private static String dataOrNull(LogCursor rows) {
+        String json = rows.getDataJson();
+        return json == null ? "null" : json;
+    }
+
+    /** Delete whole segments whose newest entry is older than {@code cutoffMillis}. */
+    int deleteOlderThan(long cutoffMillis) {
+        int deleted = 0;
+        for (Segment s : segments()) {
+            if (s.maxTime < cutoffMillis && s.file.delete()) deleted++;
+        }
+        return deleted;
+    }
+
+    void clear() {
+        for (Segment s : segments()) s.file.delete();
+    }
+
+    // ------------------------------------------------------------------------
+    // Reading
+    // ------------------------------------------------------------------------
+
+    /**
+     * Cursors over the segments that can contain matching rows, oldest first.
+     * Filters are the same as {@link LogStore#query}; {@code afterId} skips rows with id <= afterId.
+     */
+    List<LogCursor> query(String sn, long fromMillis, long toMillis, long afterId) {
+        List<LogCursor> cursors = new ArrayList<>();
+        for (Segment s : segments()) {
+            if (s.lastId <= afterId) continue;
+            if (s.maxTime < fromMillis || s.minTime >= toMillis) continue;
+            cursors.add(new ArchiveLogCursor(s.file, sn, fromMillis, toMillis, afterId));
+        }
+        return cursors;
+    }
+
+    /** Document JSON for one archived entry, or null. */
+    String loadData(long id) {
+        for (Segment s : segments()) {
+            if (id < s.firstId || id > s.lastId) continue;
+            try (LogCursor c = new ArchiveLogCursor(s.file, null, Long.MIN_VALUE, Long.MAX_VALUE, id - 1)) {
+                if (c.moveToNext() && c.getId() == id) return c.getDataJson();
+            }
+        }
+        return null;
+    }
+
+    /** Sequential, filtered reader over one segment; the file is opened on first use. */
+    private static final class ArchiveLogCursor extends LogCursor {
+        private final File file;
+        private final String sn;
+        private final long fromMillis, toMillis, afterId;
+        private BufferedReader reader;
+        private boolean opened = false;
+        private JSONObject row;
+
+        ArchiveLogCursor(File file, String sn, long fromMillis, long toMillis, long afterId) {
+            this.file = file;
+            this.sn = sn;
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+            this.afterId = afterId;
+        }
+
+        @Override
+        public boolean moveToNext() {
+            if (!opened) {
+                opened = true;
+                try {
+                    reader = new BufferedReader(new InputStreamReader(
+                            new GZIPInputStream(new FileInputStream(file), 64 * 1024), StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    Log.e(TAG, "Cannot open archive segment " + file, e);
+                }
+            }
+            if (reader == null) return false;
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty() || leadingId(line) <= afterId) continue;
+                    JSONObject r;
+                    try {
+                        r = new JSONObject(line);
+                    } catch (Exception e) {
+                        continue;
+                    }
+                    long time = r.optLong("time");
+                    if (r.optLong("id") <= afterId) continue;
+                    if (time < fromMillis || time >= toMillis) continue;
+                    if (sn != null && !sn.equals(r.optString("sn"))) continue;
+                    row = r;
+                    return true;
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Archive read failed", e);
+            }
+            close();
+            return false;
+        }
+
+        /** Lines start with {"id":N — read N without parsing the whole row. */
+        private static long leadingId(String line) {
+            final String head = "{\"id\":";
+            if (!line.startsWith(head)) return Long.MAX_VALUE;
+            long id = 0;
+            for (int i = head.length(); i < line.length(); i++) {
+                char ch = line.charAt(i);
+                if (ch < '0' || ch > '9') break;
+                id = id * 10 + (ch - '0');
+            }
+            return id;
+        }
+
+        @Override public long getId()          { return row.optLong("id"); }
+        @Override public long getTimeMillis()  { return row.optLong("time"); }
+        @Override public String getType()      { return row.optString("type"); }
+        @Override public String getSerial()    { return row.optString("sn"); }
+        @Override public int getCycleCount()   { return row.optInt("cc"); }
+        @Override public int getNote()         { return row.optInt("n"); }
+
+        /** @return null for an entry that was already unreadable when it was archived */
+        @Override
+        public String getDataJson() {
+            JSONObject data = row.optJSONObject("data");
+            return data == null ? null : data.toString();
+        }
+
+        @Override
+        public void close() {
+            opened = true;
+            if (reader == null) return;
+            try {
+                reader.close();
+            } catch (IOException ignored) {}
+            reader = null;
+        }
+    }
+}
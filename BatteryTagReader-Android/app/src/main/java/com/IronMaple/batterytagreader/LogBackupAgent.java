@@ -0,0 +1,39 @@
+package com.IronMaple.batterytagreader;
+
+import android.app.backup.BackupAgent;
+import android.app.backup.BackupDataInput;
+import android.app.backup.BackupDataOutput;
+import android.app.backup.FullBackupDataOutput;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import java.io.IOException;
+
+/**
+ * Auto Backup with one extra step: checkpoint the log database first, so the
+ * backed-up battery_log.db holds every committed entry without its -wal file.
+ * Which files go in is still decided by backup_rules.xml / data_extraction_rules.xml.
+ */
+public class LogBackupAgent extends BackupAgent {
+
+    private static final String TAG = "LogBackupAgent";
+
+    @Override
+    public void onFullBackup(FullBackupDataOutput data) throws IOException {
+        try {
+            LogStore.get(this).checkpoint();
+        } catch (RuntimeException e) {
+            // Back up what the main file has; entries still in the WAL miss this backup
+            Log.w(TAG, "Log checkpoint failed before backup", e);
+        }
+        super.onFullBackup(data);
+    }
+
+    // Key/value backup is unused (fullBackupOnly)
+
+    @Override
+    public void onBackup(ParcelFileDescriptor oldState, BackupDataOutput data, ParcelFileDescriptor newState) {}
+
+    @Override
+    public void onRestore(BackupDataInput data, int appVersionCode, ParcelFileDescriptor newState) {}
+}
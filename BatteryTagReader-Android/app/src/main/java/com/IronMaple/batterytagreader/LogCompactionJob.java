@@ -0,0 +1,46 @@
+package com.IronMaple.batterytagreader;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Daily log compaction, run by JobScheduler only while the device is idle so
+ * it never competes with scanning.
+ */
+public class LogCompactionJob extends JobService {
+
+    private static final int JOB_ID = 1001;
+
+    /** Schedule the periodic job if it isn't already pending. */
+    public static void schedule(Context context) {
+        JobScheduler scheduler = context.getSystemService(JobScheduler.class);
+        if (scheduler == null || scheduler.getPendingJob(JOB_ID) != null) return;
+
+        JobInfo job = new JobInfo.Builder(JOB_ID, new ComponentName(context, LogCompactionJob.class))
+                .setRequiresDeviceIdle(true)
+                .setPeriodic(TimeUnit.DAYS.toMillis(1))
+                .build();
+        scheduler.schedule(job);
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        Thread worker = new Thread(() -> {
+            LogCompactor.compact(getApplicationContext());
+            jobFinished(params, false);
+        }, "log-compaction");
+        worker.start();
+        return true; // work continues on the worker thread
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        return true; // idle ended; retry later
+    }
+}
@@ -0,0 +1,64 @@
+package com.IronMaple.batterytagreader;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies log retention: rolls old entries out of the live {@link LogStore}
+ * into compressed {@link LogArchive} segments and drops expired segments.
+ * Runs from {@link LogCompactionJob}; safe to call from any background thread.
+ */
+final class LogCompactor {
+
+    private static final String TAG = "LogCompactor";
+
+    /** Rows per archive segment; keeps single segments quick to scan. */
+    private static final int SEGMENT_ROWS = 2000;
+
+    private LogCompactor() {}
+
+    /** @return number of entries moved into the archive */
+    static synchronized long compact(Context context) {
+        LogHelper.flush(context);
+        LogStore store = LogStore.get(context);
+        LogArchive archive = LogArchive.get(context);
+
+        long now = System.currentTimeMillis();
+        long cutoff = now - TimeUnit.DAYS.toMillis(AppSettings.getLiveMaxAgeDays(context));
+        long upToId = store.retentionCutoffId(cutoff, AppSettings.getLiveMaxEntries(context));
+
+        // A crash between writing a segment and deleting its rows leaves rows that
+        // are already archived; never archive them twice.
+        long archivedId = archive.maxArchivedId();
+        long moved = 0;
+        try {
+            while (archivedId < upToId) {
+                LogArchive.Segment segment;
+                try (LogCursor rows = store.range(archivedId, upToId, SEGMENT_ROWS)) {
+                    segment = archive.write(rows);
+                }
+                if (segment == null) break;
+                archivedId = segment.lastId;
+                moved += segment.count;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Archiving failed; live log left as is", e);
+        }
+
+        int deleted = archivedId > 0 ? LogWriter.get(context).deleteUpTo(archivedId) : 0;
+        if (deleted > 0) store.vacuum();
+
+        int archiveDays = AppSettings.getArchiveMaxAgeDays(context);
+        if (archiveDays > 0) {
+            archive.deleteOlderThan(now - TimeUnit.DAYS.toMillis(archiveDays));
+        }
+
+        FleetIndex.get(context).save();
+
+        Log.i(TAG, "Compaction: archived " + moved + ", removed " + deleted + " live rows");
+        return moved;
+    }
+}
@@ -0,0 +1,59 @@
+package com.IronMaple.batterytagreader;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.Closeable;
+
+/**
+ * Forward-only view over log query results. Always close it (try-with-resources).
+ *
+ * <pre>
+ * try (LogCursor c = LogHelper.query(ctx, "00254-012", from, to)) {
+ *     while (c.moveToNext()) { ... c.getCycleCount() ... }
+ * }
+ * </pre>
+ *
+ * Results may span compressed archive segments and the live store; see {@link LogArchive}.
+ */
+public abstract class LogCursor implements Closeable {
+
+    public abstract boolean moveToNext();
+
+    public abstract long getId();
+    public abstract long getTimeMillis();
+    public abstract String getType();
+    public abstract String getSerial();
+    public abstract int getCycleCount();
+    public abstract int getNote();
+
+    /**
+     * The logged tag document as JSON text, or null if the entry is unreadable
+     * (e.g. a delta whose base is gone). Callers skip such entries.
+     */
+    public abstract String getDataJson();
+
+    @Override
+    public abstract void close();
+
+    /** @throws JSONException also if the entry is unreadable ({@link #getDataJson()} is null) */
+    public JSONObject getData() throws JSONException {
+        String json = getDataJson();
+        if (json == null) throw new JSONException("Unreadable log entry " + getId());
+        return new JSONObject(json);
+    }
+
+    /** Entry time as "yyyy-MM-dd HH:mm" in UTC (the format the log has always used). */
+    public String getTimeUtc() {
+        return LogTimeFormatter.formatUtc(getTimeMillis());
+    }
+
+    /** Current row in the legacy {"time","type","data"} shape. */
+    public JSONObject toEntry() throws JSONException {
+        JSONObject entry = new JSONObject();
+        entry.put("time", getTimeUtc());
+        entry.put("type", getType());
+        entry.put("data", getData());
+        return entry;
+    }
+}
@@ -0,0 +1,126 @@
+package com.IronMaple.batterytagreader;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Which tag contents were logged recently, per battery, so re-reading an
+ * unchanged tag doesn't add another log entry.
+ *
+ * Documents are compared by {@link BatteryDoc#fingerprint()}. For each of the
+ * {@link #MAX_BATTERIES} most recently logged serials the last
+ * {@link #PER_BATTERY} fingerprints are kept with the time they were logged,
+ * so a cart of batteries read in any order is deduplicated, not just the
+ * previous tap. The table is small and saved to prefs after every change.
+ */
+final class LogDedup {
+
+    private static final String TAG = "LogDedup";
+    private static final String PREF_NAME = "BatteryTagLog";
+    private static final String KEY_RECENT = "recent_fingerprints";
+    private static final String LEGACY_KEY = "last_logged_raw";
+
+    static final int MAX_BATTERIES = 64;
+    static final int PER_BATTERY = 4;
+
+    private static LogDedup instance;
+
+    private final SharedPreferences prefs;
+
+    /** Serial → {fingerprint, loggedAt} pairs, newest first; access order, so the eldest is least recent. */
+    private final LinkedHashMap<String, long[]> recent = new LinkedHashMap<String, long[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+            return size() > MAX_BATTERIES;
+        }
+    };
+
+    private LogDedup(SharedPreferences prefs) {
+        this.prefs = prefs;
+    }
+
+    static synchronized LogDedup get(Context context) {
+        if (instance == null) {
+            LogDedup dedup = new LogDedup(context.getApplicationContext()
+                    .getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE));
+            dedup.load();
+            instance = dedup;
+        }
+        return instance;
+    }
+
+    /**
+     * Note {@code doc} as logged at {@code now} and return true, or return false
+     * if the same content was logged for its serial within {@code windowMillis}
+     * (0 = at any time still remembered).
+     */
+    synchronized boolean record(BatteryDoc doc, long now, long windowMillis) {
+        long fingerprint = doc.fingerprint();
+        long[] slots = recent.get(doc.getSerial());
+        if (slots == null) {
+            slots = new long[2 * PER_BATTERY];
+            recent.put(doc.getSerial(), slots);
+        }
+
+        // Find it, or take the oldest slot; then move it to the front
+        int at = slots.length - 2;
+        for (int k = 0; k < slots.length; k += 2) {
+            if (slots[k + 1] != 0 && slots[k] == fingerprint) {
+                if (windowMillis <= 0 || now - slots[k + 1] < windowMillis) return false;
+                at = k;
+                break;
+            }
+        }
+        System.arraycopy(slots, 0, slots, 2, at);
+        slots[0] = fingerprint;
+        slots[1] = now;
+
+        save();
+        return true;
+    }
+
+    /** Forget everything (log was cleared). */
+    synchronized void clear() {
+        recent.clear();
+        save();
+    }
+
+    // ------------------------------------------------------------------------
+    // Persistence: [sn, fingerprint, loggedAt, fingerprint, loggedAt, ...] per battery, eldest first
+    // ------------------------------------------------------------------------
+
+    private void load() {
+        String text = prefs.getString(KEY_RECENT, null);
+        if (prefs.contains(LEGACY_KEY)) prefs.edit().remove(LEGACY_KEY).apply();
+        if (text == null) return;
+        try {
+            JSONArray all = new JSONArray(text);
+            for (int i = 0; i < all.length(); i++) {
+                JSONArray row = all.getJSONArray(i);
+                long[] slots = new long[2 * PER_BATTERY];
+                for (int k = 0; k < slots.length && k + 1 < row.length(); k++) slots[k] = row.getLong(k + 1);
+                recent.put(row.getString(0), slots);
+            }
+        } catch (JSONException e) {
+            Log.w(TAG, "Ignoring unreadable duplicate table", e);
+            recent.clear();
+        }
+    }
+
+    private void save() {
+        JSONArray all = new JSONArray();
+        for (Map.Entry<String, long[]> e : recent.entrySet()) {
+            JSONArray row = new JSONArray().put(e.getKey());
+            for (long v : e.getValue()) row.put(v);
+            all.put(row);
+        }
+        prefs.edit().putString(KEY_RECENT, all.toString()).apply();
+    }
+}
@@ -0,0 +1,131 @@
+package com.IronMaple.batterytagreader;
+
+import android.content.Context;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Streams the scan log from a {@link LogCursor} straight into an export file.
+ * Only the current row is held in memory, so export size is bounded by disk, not heap.
+ * Call from a background thread.
+ */
+final class LogExporter {
+
+    /** Progress callback; invoked on the exporting thread. */
+    interface ProgressListener {
+        void onProgress(long done, long total);
+    }
+
+    private static final int PROGRESS_EVERY = 100;
+
+    private LogExporter() {}
+
+    /**
+     * Write the log as RFC 4180 CSV, one row per usage entry (entries with no
+     * usage records get a single row with empty usage columns). The time column is device-local.
+     *
+     * @return false if cancelled; the partial file is deleted in that case
+     */
+    static boolean exportCsv(Context context, File outFile, ProgressListener listener,
+                             AtomicBoolean cancelled) throws IOException {
+        long total = LogHelper.count(context);
+        long done = 0;
+
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(outFile), StandardCharsets.UTF_8), 64 * 1024);
+             LogCursor c = LogHelper.query(context)) {
+
+            out.write(LogExportFormat.CSV_HEADER);
+            out.write("\r\n");
+
+            StringBuilder prefix = new StringBuilder();
+            while (c.moveToNext()) {
+                if (cancelled.get()) break;
+
+                LogExportFormat.writeCsvRows(out, prefix, LogTimeFormatter.formatLocal(c.getTimeMillis()),
+                        c.getType(), c.getSerial(), c.getCycleCount(), c.getNote(), c.getDataJson());
+
+                done++;
+                if (listener != null && done % PROGRESS_EVERY == 0) listener.onProgress(done, total);
+            }
+        }
+
+        return finish(outFile, done, total, listener, cancelled);
+    }
+
+    /**
+     * Write the log as a JSON array of {"time","type","data"} entries, optionally
+     * indented. Same shape as the old in-memory export; see {@link LogExportFormat#writeJsonElement}.
+     *
+     * @return false if cancelled; the partial file is deleted in that case
+     */
+    static boolean exportJson(Context context, File outFile, boolean indent, ProgressListener listener,
+                              AtomicBoolean cancelled) throws IOException {
+        long total = LogHelper.count(context);
+        long done = 0;
+
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(outFile), StandardCharsets.UTF_8), 64 * 1024);
+             LogCursor c = LogHelper.query(context)) {
+
+            StringBuilder scratch = new StringBuilder();
+            while (c.moveToNext()) {
+                if (cancelled.get()) break;
+
+                LogExportFormat.writeJsonElement(out, scratch, done == 0, indent,
+                        c.getTimeUtc(), c.getType(), c.getDataJson());
+
+                done++;
+                if (listener != null && done % PROGRESS_EVERY == 0) listener.onProgress(done, total);
+            }
+            LogExportFormat.endJsonArray(out, done == 0, indent);
+        }
+
+        return finish(outFile, done, total, listener, cancelled);
+    }
+
+    /**
+     * Write the log as NDJSON: one compact {"time","type","data"} object per line.
+     * The stored document text is copied through as-is, without re-parsing.
+     *
+     * @return false if cancelled; the partial file is deleted in that case
+     */
+    static boolean exportNdjson(Context context, File outFile, ProgressListener listener,
+                                AtomicBoolean cancelled) throws IOException {
+        long total = LogHelper.count(context);
+        long done = 0;
+
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(outFile), StandardCharsets.UTF_8), 64 * 1024);
+             LogCursor c = LogHelper.query(context)) {
+
+            while (c.moveToNext()) {
+                if (cancelled.get()) break;
+
+                LogExportFormat.writeNdjsonLine(out, c.getTimeUtc(), c.getType(), c.getDataJson());
+
+                done++;
+                if (listener != null && done % PROGRESS_EVERY == 0) listener.onProgress(done, total);
+            }
+        }
+
+        return finish(outFile, done, total, listener, cancelled);
+    }
+
+    private static boolean finish(File outFile, long done, long total, ProgressListener listener,
+                                  AtomicBoolean cancelled) {
+        if (cancelled.get()) {
+            outFile.delete();
+            return false;
+        }
+        if (listener != null) listener.onProgress(done, total);
+        return true;
+    }
+}
@@ -1,71 +1,98 @@
 package com.IronMaple.batterytagreader;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 
-import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
 
 public class LogHelper {
 
-    private static final String PREF_NAME = "BatteryTagLog";
-    private static final String LOG_KEY = "log_data";
-    private static final String LAST_LOGGED_KEY = "last_logged_raw";
-
     /**
-     * Save a new log entry in SharedPreferences, avoiding duplicates.
+     * Queue a new log entry for the background writer, unless the same content
+     * was logged for this battery recently ({@link LogDedup}).
+     * Returns immediately; the entry is serialized here so later changes to
+     * {@code data} by the caller do not leak into the log.
      */
-    public static void log(Context context, String type, JSONObject data) {
+    static void log(Context context, String type, BatteryDoc data) {
         if (data == null) return;
 
-        String raw = data.toString();
-
-        SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        String lastRaw = prefs.getString(LAST_LOGGED_KEY, null);
-        if (raw.equals(lastRaw)) return;  // skip duplicate
+        long windowMillis = TimeUnit.MINUTES.toMillis(AppSettings.getDedupWindowMinutes(context));
+        if (!LogDedup.get(context).record(data, System.currentTimeMillis(), windowMillis)) return;
 
-        try {
-            JSONArray log = new JSONArray(prefs.getString(LOG_KEY, "[]"));
+        String raw = data.toJson();
+        LogWriter.get(context).enqueue(new LogStore.Record(System.currentTimeMillis(), type,
+                data.getSerial(), data.getCycleCount(), data.getNote(), raw));
+    }
 
-            JSONObject entry = new JSONObject();
-            SimpleDateFormat utcFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.US);
-            utcFormat.setTimeZone(java.util.TimeZone.getTimeZone("UTC"));
-            entry.put("time", utcFormat.format(new Date()));
+    /** Block until all queued entries are on disk (export, clear, tests). */
+    public static void flush(Context context) {
+        LogWriter.get(context).flush();
+    }
 
-            entry.put("type", type);
-            entry.put("data", data);
+    /** Every entry, oldest first. Caller must close the cursor. */
+    public static LogCursor query(Context context) {
+        return query(context, null, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
 
-            log.put(entry);
+    /**
+     * Entries for one battery (or all when {@code sn} is null) with
+     * {@code fromMillis <= time < toMillis}, oldest first, including archived
+     * entries. Caller must close the cursor.
+     */
+    public static LogCursor query(Context context, String sn, long fromMillis, long toMillis) {
+        flush(context);
+        List<LogCursor> parts = LogArchive.get(context).query(sn, fromMillis, toMillis, 0);
+        parts.add(LogStore.get(context).query(sn, fromMillis, toMillis));
+        return new ChainedLogCursor(parts, Long.MAX_VALUE);
+    }
 
-            prefs.edit()
-                    .putString(LOG_KEY, log.toString())
-                    .putString(LAST_LOGGED_KEY, raw)
-                    .apply();
-        } catch (Exception ignored) {}
+    /**
+     * Next page of entries after {@code afterId} (0 for the first page), in log order.
+     * Does not wait for queued entries; call {@link #flush} first if they matter.
+     */
+    public static LogCursor queryPage(Context context, long afterId, int limit) {
+        List<LogCursor> parts = LogArchive.get(context)
+                .query(null, Long.MIN_VALUE, Long.MAX_VALUE, afterId);
+        parts.add(LogStore.get(context).page(afterId, limit));
+        return new ChainedLogCursor(parts, limit);
     }
 
-    public static JSONArray getLog(Context context) {
-        SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+    /** Tag document of one entry, loaded on demand. */
+    public static JSONObject loadEntryData(Context context, long id) {
         try {
-            return new JSONArray(prefs.getString(LOG_KEY, "[]"));
+            String json = loadEntryJson(context, id);
+            return json == null ? null : new JSONObject(json);
         } catch (Exception e) {
-            return new JSONArray();
+            return null;
         }
     }
 
-    public static void clearLog(Context context) {
-        context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE)
-                .edit().remove(LOG_KEY).apply();
+    /** JSON text of one entry's tag document (live or archived), or null if it is gone. */
+    static String loadEntryJson(Context context, long id) {
+        String json = LogStore.get(context).loadData(id);
+        return json != null ? json : LogArchive.get(context).loadData(id);
     }
 
-    public static String getLastLoggedRaw(Context context) {
-        return context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE)
-                .getString(LAST_LOGGED_KEY, null);
+    /** Number of entries in the log, live and archived (after queued entries are committed). */
+    public static long count(Context context) {
+        flush(context);
+        return LogStore.get(context).count() + LogArchive.get(context).count();
+    }
+
+    /** Erase the live log and all archive segments. */
+    public static void clearLog(Context context) {
+        synchronized (LogCompactor.class) {
+            LogWriter.get(context).clear();
+            LogArchive.get(context).clear();
+            FleetIndex.reset(context);
+        }
+        LogDedup.get(context).clear();
     }
 
     // ------------------------------------------------------------------------
@@ -88,63 +115,44 @@ public class LogHelper {
      * }
      */
     public static String generateDemoJson() {
-        try {
-            // Top-level values
-            String sn = makeDemoSN(); // "DEMO-%03d"
-            String fu = makeRandomFUwithinLastYearYYMMDDHHMM(); // past within last year
-            int startNumber = randBetween(1, 20);
-            int recordCount = randBetween(2, 5);
-
-            // Usage array: strictly increasing FUTURE timestamps (from today 00:00),
-            // and ensure no two chargers (d=2) consecutively.
-            JSONArray u = new JSONArray(); // << Android expects "u"
-            TimeZone tz = TimeZone.getTimeZone("America/Toronto");
-            SimpleDateFormat yymmddhhmm = new SimpleDateFormat("yyMMddHHmm", Locale.US);
-            yymmddhhmm.setTimeZone(tz);
-
-            long now = System.currentTimeMillis();
-            long startOfToday = startOfDayMillis(now, tz);
-            long last = startOfToday; // begin at today's 00:00, then bump forward
-
-            int lastD = 0;
-            for (int idx = 0; idx < recordCount; idx++) {
-                // Advance by at least 1 day + random minutes
-                int advanceDays = randBetween(1, 20);
-                int advanceMinutes = randBetween(0, (24 * 60) - 1);
-                long candidate = addDaysMinutes(last, advanceDays, advanceMinutes);
-
-                // Ensure strictly increasing
-                if (candidate <= last) candidate = last + 60_000L;
-                last = candidate;
-
-                // d: 1 = robot, 2 = charger; avoid two 2's in a row
-                int dVal = randBetween(1, 2);
-                if (lastD == 2 && dVal == 2) dVal = 1;
-                lastD = dVal;
-
-                JSONObject e = new JSONObject();
-                e.put("i", startNumber + idx);          // << Android expects "i"
-                e.put("t", yymmddhhmm.format(new Date(last)));
-                e.put("d", dVal);
-                e.put("e", randBetween(10, 500));
-                e.put("v", randBetween(7, 14));
-
-                u.put(e);
-            }
-
-            // Final object with Android-expected keys
-            JSONObject root = new JSONObject();
-            root.put("sn", sn);
-            root.put("fu", fu);
-            root.put("n", randBetween(0, 2));   // 0..2 (avoid 3 for demo)
-            root.put("cc", randBetween(1, 10)); // << Android expects "cc"
-            root.put("u", u);                   // << Android expects "u"
-
-            return root.toString();
-        } catch (Exception e) {
-            e.printStackTrace();
-            return "{}";
+        // Top-level values
+        String sn = makeDemoSN(); // "DEMO-%03d"
+        String fu = makeRandomFUwithinLastYearYYMMDDHHMM(); // past within last year
+        BatteryDoc doc = new BatteryDoc(sn, fu);
+        doc.setNote(randBetween(0, 2));       // 0..2 (avoid 3 for demo)
+        doc.setCycleCount(randBetween(1, 10));
+        int startNumber = randBetween(1, 20);
+        int recordCount = randBetween(2, 5);
+
+        // Usage array: strictly increasing FUTURE timestamps (from today 00:00),
+        // and ensure no two chargers (d=2) consecutively.
+        TimeZone tz = TimeZone.getTimeZone("America/Toronto");
+
+        long now = System.currentTimeMillis();
+        long startOfToday = startOfDayMillis(now, tz);
+        long last = startOfToday; // begin at today's 00:00, then bump forward
+
+        int lastD = 0;
+        for (int idx = 0; idx < recordCount; idx++) {
+            // Advance by at least 1 day + random minutes
+            int advanceDays = randBetween(1, 20);
+            int advanceMinutes = randBetween(0, (24 * 60) - 1);
+            long candidate = addDaysMinutes(last, advanceDays, advanceMinutes);
+
+            // Ensure strictly increasing
+            if (candidate <= last) candidate = last + 60_000L;
+            last = candidate;
+
+            // d: 1 = robot, 2 = charger; avoid two 2's in a row
+            int dVal = randBetween(1, 2);
+            if (lastD == 2 && dVal == 2) dVal = 1;
+            lastD = dVal;
+
+            doc.addUsage(startNumber + idx, TagTime.format(last / 60_000L), dVal,
+                    randBetween(10, 500), randBetween(7, 14));
         }
+
+        return doc.toJson();
     }
 
 
@@ -161,23 +169,15 @@ public class LogHelper {
         return a + (int) Math.floor(Math.random() * (b - a + 1));
     }
 
-    /** Random past time within the last year, formatted YYMMDDHHMM in America/Toronto. */
+    /** Random past time within the last year, as tag text (UTC like real tags). */
     private static String makeRandomFUwithinLastYearYYMMDDHHMM() {
-        try {
-            TimeZone tz = TimeZone.getTimeZone("America/Toronto");
-            SimpleDateFormat fmt = new SimpleDateFormat("yyMMddHHmm", Locale.US);
-            fmt.setTimeZone(tz);
-
-            long now = System.currentTimeMillis();
-            // subtract 0..364 days and 0..(24*60-1) minutes
-            int backDays = randBetween(0, 364);
-            int backMinutes = randBetween(0, (24 * 60) - 1);
-            long ts = addDaysMinutes(now, -backDays, -backMinutes);
+        long now = System.currentTimeMillis();
+        // subtract 0..364 days and 0..(24*60-1) minutes
+        int backDays = randBetween(0, 364);
+        int backMinutes = randBetween(0, (24 * 60) - 1);
+        long ts = addDaysMinutes(now, -backDays, -backMinutes);
 
-            return fmt.format(new Date(ts));
-        } catch (Exception e) {
-            return new SimpleDateFormat("yyMMddHHmm", Locale.US).format(new Date());
-        }
+        return TagTime.format(ts / 60_000L);
     }
 
     /** Add days and minutes to a timestamp in ms. */
@@ -0,0 +1,80 @@
+package com.IronMaple.batterytagreader;
+
+import android.content.Context;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The whole log, oldest first, read a little at a time for the log screen.
+ *
+ * Unlike repeated {@link LogHelper#queryPage} calls, archive segments stay
+ * open between pages, so each gzip segment is decompressed once instead of
+ * from its start on every page. Live rows are then read in pages after the
+ * last id seen. When {@link #moveToNext} returns false the reader has caught
+ * up; calling it again later picks up entries logged (or archived) since.
+ *
+ * Not thread-safe: use it from one background thread and close it there.
+ */
+final class LogPager extends LogCursor {
+
+    private static final int LIVE_PAGE = 200;
+
+    private final Context context;
+    private LogCursor current;
+    private boolean inArchive;
+    private boolean skipArchive;
+    private int rows;      // rows read from current
+    private long lastId;
+
+    LogPager(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public boolean moveToNext() {
+        while (true) {
+            if (current == null) open();
+            if (current.moveToNext()) {
+                lastId = current.getId();
+                rows++;
+                return true;
+            }
+            current.close();
+            current = null;
+            if (inArchive) {
+                // Segments that yielded nothing (unreadable rows) must not be reopened forever
+                skipArchive = rows == 0;
+                continue;
+            }
+            if (rows < LIVE_PAGE) return false;
+        }
+    }
+
+    /** Archive segments past lastId (normally only on the first call, or after compaction), else a live page. */
+    private void open() {
+        List<LogCursor> parts = skipArchive
+                ? Collections.emptyList()
+                : LogArchive.get(context).query(null, Long.MIN_VALUE, Long.MAX_VALUE, lastId);
+        skipArchive = false;
+        rows = 0;
+        inArchive = !parts.isEmpty();
+        current = inArchive
+                ? new ChainedLogCursor(parts, Long.MAX_VALUE)
+                : LogStore.get(context).page(lastId, LIVE_PAGE);
+    }
+
+    @Override public long getId()          { return current.getId(); }
+    @Override public long getTimeMillis()  { return current.getTimeMillis(); }
+    @Override public String getType()      { return current.getType(); }
+    @Override public String getSerial()    { return current.getSerial(); }
+    @Override public int getCycleCount()   { return current.getCycleCount(); }
+    @Override public int getNote()         { return current.getNote(); }
+    @Override public String getDataJson()  { return current.getDataJson(); }
+
+    @Override
+    public void close() {
+        if (current != null) current.close();
+        current = null;
+    }
+}
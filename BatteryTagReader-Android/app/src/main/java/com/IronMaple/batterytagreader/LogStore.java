@@ -0,0 +1,442 @@
+package com.IronMaple.batterytagreader;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * SQLite-backed scan log.
+ *
+ * One row per entry with the fields we filter on pulled out into columns
+ * (time, type, sn, cc, n) and the tag document kept as JSON text. The
+ * (sn, time) and (time) indexes make per-battery and date-range lookups
+ * independent of how much history is kept.
+ *
+ * Most rows hold a {@link LogDelta} against an earlier row of the same battery
+ * (named by {@code base}); rows with base 0 are full keyframes. Cursors and
+ * {@link #loadData} hand out reconstructed documents.
+ */
+final class LogStore extends SQLiteOpenHelper {
+
+    private static final String TAG = "LogStore";
+
+    private static final String DB_NAME = "battery_log.db";
+    private static final int DB_VERSION = 2;
+
+    static final String TABLE = "log";
+    static final String COL_ID = "id";
+    static final String COL_TIME = "time";   // epoch millis, UTC
+    static final String COL_TYPE = "type";
+    static final String COL_SN = "sn";
+    static final String COL_CC = "cc";
+    static final String COL_NOTE = "n";
+    static final String COL_DATA = "data";   // tag document (or delta) as JSON text
+    static final String COL_BASE = "base";   // id the delta applies to, 0 for a keyframe
+
+    /** Longest delta chain we follow; guards against a corrupt base loop. */
+    private static final int MAX_CHAIN = 1000;
+
+    private static final String META_TABLE = "meta";
+    private static final String META_LEGACY_IMPORTED = "legacy_imported";
+
+    // Legacy storage we import from once
+    private static final String LEGACY_PREF_NAME = "BatteryTagLog";
+    private static final String LEGACY_LOG_KEY = "log_data";
+    private static final String LEGACY_JOURNAL = "battery_log.ndjson";
+
+    private static LogStore instance;
+
+    private final Context appContext;
+
+    /**
+     * One log entry, ready to insert. {@link LogWriter} may swap the document
+     * for a delta against {@code base}; {@code id} is filled in on insert.
+     */
+    static final class Record {
+        final long timeMillis;
+        final String type;
+        final String sn;
+        final int cc;
+        final int note;
+        String data;
+        Record base;
+        long id;
+
+        Record(long timeMillis, String type, String sn, int cc, int note, String data) {
+            this.timeMillis = timeMillis;
+            this.type = type;
+            this.sn = sn;
+            this.cc = cc;
+            this.note = note;
+            this.data = data;
+        }
+
+        static Record of(long timeMillis, String type, JSONObject data) {
+            return new Record(timeMillis, type,
+                    data.optString("sn", ""), data.optInt("cc", 0), data.optInt("n", 0),
+                    data.toString());
+        }
+
+        long baseId() {
+            return base == null ? 0 : base.id;
+        }
+    }
+
+    private LogStore(Context appContext) {
+        super(appContext, DB_NAME, null, DB_VERSION);
+        this.appContext = appContext;
+    }
+
+    static synchronized LogStore get(Context context) {
+        if (instance == null) {
+            instance = new LogStore(context.getApplicationContext());
+            instance.importLegacy();
+        }
+        return instance;
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        db.enableWriteAheadLogging();
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + COL_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + COL_TIME + " INTEGER NOT NULL, "
+                + COL_TYPE + " TEXT NOT NULL, "
+                + COL_SN + " TEXT NOT NULL DEFAULT '', "
+                + COL_CC + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_NOTE + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_DATA + " TEXT NOT NULL, "
+                + COL_BASE + " INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("CREATE INDEX idx_log_sn_time ON " + TABLE + " (" + COL_SN + ", " + COL_TIME + ")");
+        db.execSQL("CREATE INDEX idx_log_time ON " + TABLE + " (" + COL_TIME + ")");
+        db.execSQL("CREATE TABLE " + META_TABLE + " (key TEXT PRIMARY KEY, value TEXT)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            // Existing rows are all full documents, i.e. keyframes
+            db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN " + COL_BASE + " INTEGER NOT NULL DEFAULT 0");
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Writes
+    // ------------------------------------------------------------------------
+
+    /** Insert a batch of entries in a single transaction. */
+    void insertBatch(List<Record> records) {
+        if (records.isEmpty()) return;
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            insertAll(db, records);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    void clear() {
+        getWritableDatabase().delete(TABLE, null, null);
+    }
+
+    private static void insertAll(SQLiteDatabase db, List<Record> records) {
+        SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE + " ("
+                + COL_TIME + ", " + COL_TYPE + ", " + COL_SN + ", " + COL_CC + ", "
+                + COL_NOTE + ", " + COL_DATA + ", " + COL_BASE + ") VALUES (?, ?, ?, ?, ?, ?, ?)");
+        try {
+            for (Record r : records) {
+                insert.bindLong(1, r.timeMillis);
+                insert.bindString(2, r.type);
+                insert.bindString(3, r.sn);
+                insert.bindLong(4, r.cc);
+                insert.bindLong(5, r.note);
+                insert.bindString(6, r.data);
+                insert.bindLong(7, r.baseId());
+                r.id = insert.executeInsert();
+            }
+        } finally {
+            insert.close();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Reads
+    // ------------------------------------------------------------------------
+
+    /**
+     * Query entries, oldest first.
+     * @param sn        serial to filter on, or null for all batteries
+     * @param fromMillis inclusive lower bound on time, or {@code Long.MIN_VALUE}
+     * @param toMillis   exclusive upper bound on time, or {@code Long.MAX_VALUE}
+     */
+    LogCursor query(String sn, long fromMillis, long toMillis) {
+        StringBuilder where = new StringBuilder();
+        List<String> args = new ArrayList<>();
+        if (sn != null) {
+            where.append(COL_SN).append(" = ?");
+            args.add(sn);
+        }
+        if (fromMillis != Long.MIN_VALUE) {
+            if (where.length() > 0) where.append(" AND ");
+            where.append(COL_TIME).append(" >= ?");
+            args.add(String.valueOf(fromMillis));
+        }
+        if (toMillis != Long.MAX_VALUE) {
+            if (where.length() > 0) where.append(" AND ");
+            where.append(COL_TIME).append(" < ?");
+            args.add(String.valueOf(toMillis));
+        }
+
+        Cursor c = getReadableDatabase().query(TABLE, null,
+                where.length() == 0 ? null : where.toString(),
+                args.toArray(new String[0]),
+                null, null, COL_TIME + ", " + COL_ID);
+        return new SqlLogCursor(c, this);
+    }
+
+    /**
+     * Highest id that retention says should leave the live store: everything
+     * older than {@code cutoffMillis}, plus the oldest rows beyond {@code maxEntries}.
+     * @return 0 when nothing needs archiving
+     */
+    long retentionCutoffId(long cutoffMillis, long maxEntries) {
+        SQLiteDatabase db = getReadableDatabase();
+        long byAge = DatabaseUtils.longForQuery(db,
+                "SELECT IFNULL(MAX(" + COL_ID + "), 0) FROM " + TABLE + " WHERE " + COL_TIME + " < ?",
+                new String[]{String.valueOf(cutoffMillis)});
+
+        long bySize = 0;
+        long excess = count() - maxEntries;
+        if (maxEntries > 0 && excess > 0) {
+            bySize = DatabaseUtils.longForQuery(db,
+                    "SELECT " + COL_ID + " FROM " + TABLE + " ORDER BY " + COL_ID + " LIMIT 1 OFFSET ?",
+                    new String[]{String.valueOf(excess - 1)});
+        }
+        return Math.max(byAge, bySize);
+    }
+
+    /** Entries with afterId < id <= upToId in id order, at most {@code limit}. */
+    LogCursor range(long afterId, long upToId, int limit) {
+        Cursor c = getReadableDatabase().query(TABLE, null,
+                COL_ID + " > ? AND " + COL_ID + " <= ?",
+                new String[]{String.valueOf(afterId), String.valueOf(upToId)},
+                null, null, COL_ID, String.valueOf(limit));
+        return new SqlLogCursor(c, this);
+    }
+
+    /**
+     * Delete entries with id <= upToId (they have been archived). Deltas that
+     * survive but point into the deleted range are first rewritten as keyframes.
+     * Must run on the {@link LogWriter} thread so no new delta picks a deleted base.
+     */
+    int deleteUpTo(long upToId) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            List<Long> orphans = new ArrayList<>();
+            try (Cursor c = db.query(TABLE, new String[]{COL_ID},
+                    COL_BASE + " != 0 AND " + COL_BASE + " <= ? AND " + COL_ID + " > ?",
+                    new String[]{String.valueOf(upToId), String.valueOf(upToId)},
+                    null, null, COL_ID)) {
+                while (c.moveToNext()) orphans.add(c.getLong(0));
+            }
+            for (long id : orphans) {
+                JSONObject doc = loadSnapshot(id);
+                if (doc == null) continue;
+                ContentValues values = new ContentValues();
+                values.put(COL_DATA, doc.toString());
+                values.put(COL_BASE, 0);
+                db.update(TABLE, values, COL_ID + " = ?", new String[]{String.valueOf(id)});
+            }
+            int deleted = db.delete(TABLE, COL_ID + " <= ?", new String[]{String.valueOf(upToId)});
+            db.setTransactionSuccessful();
+            return deleted;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Copy the write-ahead log into the main database file and truncate it, so
+     * the main file alone is a consistent snapshot (used before backups).
+     */
+    void checkpoint() {
+        try (Cursor c = getWritableDatabase().rawQuery("PRAGMA wal_checkpoint(TRUNCATE)", null)) {
+            c.moveToFirst();
+        }
+    }
+
+    /** Give pages freed by compaction back to the file system. */
+    void vacuum() {
+        getWritableDatabase().execSQL("VACUUM");
+    }
+
+    /** Up to {@code limit} entries with id greater than {@code afterId}, in id order (keyset paging). */
+    LogCursor page(long afterId, int limit) {
+        Cursor c = getReadableDatabase().query(TABLE, null,
+                COL_ID + " > ?", new String[]{String.valueOf(afterId)},
+                null, null, COL_ID, String.valueOf(limit));
+        return new SqlLogCursor(c, this);
+    }
+
+    /** Tag document JSON of a single entry, or null if it no longer exists. */
+    String loadData(long id) {
+        try (Cursor c = getReadableDatabase().query(TABLE, new String[]{COL_BASE, COL_DATA},
+                COL_ID + " = ?", new String[]{String.valueOf(id)}, null, null, null)) {
+            if (!c.moveToFirst()) return null;
+            if (c.getLong(0) == 0) return c.getString(1);
+        }
+        JSONObject doc = loadSnapshot(id);
+        return doc == null ? null : doc.toString();
+    }
+
+    /**
+     * Full document of an entry: walk back to its keyframe and replay the deltas.
+     * @return null if the entry or part of its chain is missing
+     */
+    JSONObject loadSnapshot(long id) {
+        SQLiteDatabase db = getReadableDatabase();
+        Deque<String> deltas = new ArrayDeque<>();
+        long current = id;
+        try {
+            for (int i = 0; i < MAX_CHAIN; i++) {
+                try (Cursor c = db.query(TABLE, new String[]{COL_BASE, COL_DATA},
+                        COL_ID + " = ?", new String[]{String.valueOf(current)}, null, null, null)) {
+                    if (!c.moveToFirst()) return null;
+                    long base = c.getLong(0);
+                    if (base == 0) {
+                        JSONObject doc = new JSONObject(c.getString(1));
+                        while (!deltas.isEmpty()) doc = LogDelta.apply(doc, new JSONObject(deltas.pop()));
+                        return doc;
+                    }
+                    deltas.push(c.getString(1));
+                    current = base;
+                }
+            }
+            Log.w(TAG, "Delta chain too long at entry " + id);
+        } catch (Exception e) {
+            Log.w(TAG, "Cannot rebuild entry " + id, e);
+        }
+        return null;
+    }
+
+    long count() {
+        return DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE);
+    }
+
+    // ------------------------------------------------------------------------
+    // One-time import of older log formats
+    // ------------------------------------------------------------------------
+
+    /**
+     * Import the SharedPreferences JSON blob (original format) and the NDJSON
+     * journal (previous version) in one transaction. A meta row written in the
+     * same transaction makes the import idempotent if we crash before the old
+     * copies are deleted.
+     */
+    private void importLegacy() {
+        SharedPreferences prefs = appContext.getSharedPreferences(LEGACY_PREF_NAME, Context.MODE_PRIVATE);
+        String blob = prefs.getString(LEGACY_LOG_KEY, null);
+        File journal = new File(appContext.getFilesDir(), LEGACY_JOURNAL);
+        if (blob == null && !journal.exists()) return;
+
+        SQLiteDatabase db = getWritableDatabase();
+        if (!isLegacyImported(db)) {
+            List<Record> records = new ArrayList<>();
+            // Legacy entries stored "yyyy-MM-dd HH:mm" in UTC
+            SimpleDateFormat legacyTime = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.US);
+            legacyTime.setTimeZone(TimeZone.getTimeZone("UTC"));
+            try {
+                if (blob != null) {
+                    JSONArray log = new JSONArray(blob);
+                    for (int i = 0; i < log.length(); i++) {
+                        addLegacyEntry(records, log.optJSONObject(i), legacyTime);
+                    }
+                }
+                if (journal.exists()) readJournal(journal, records, legacyTime);
+            } catch (Exception e) {
+                Log.e(TAG, "Legacy log import failed; keeping old copies", e);
+                return;
+            }
+
+            db.beginTransaction();
+            try {
+                insertAll(db, records);
+                ContentValues meta = new ContentValues();
+                meta.put("key", META_LEGACY_IMPORTED);
+                meta.put("value", String.valueOf(records.size()));
+                db.insertWithOnConflict(META_TABLE, null, meta, SQLiteDatabase.CONFLICT_REPLACE);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            Log.i(TAG, "Imported " + records.size() + " legacy log entries");
+        }
+
+        prefs.edit().remove(LEGACY_LOG_KEY).commit();
+        journal.delete();
+    }
+
+    private static boolean isLegacyImported(SQLiteDatabase db) {
+        return DatabaseUtils.queryNumEntries(db, META_TABLE, "key = ?",
+                new String[]{META_LEGACY_IMPORTED}) > 0;
+    }
+
+    /** NDJSON, one entry per line; a torn or corrupt line is skipped. */
+    private static void readJournal(File file, List<Record> out, SimpleDateFormat legacyTime)
+            throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                try {
+                    addLegacyEntry(out, new JSONObject(line), legacyTime);
+                } catch (Exception e) {
+                    Log.w(TAG, "Skipping unreadable journal line");
+                }
+            }
+        }
+    }
+
+    private static void addLegacyEntry(List<Record> out, JSONObject entry, SimpleDateFormat legacyTime) {
+        if (entry == null) return;
+        JSONObject data = entry.optJSONObject("data");
+        if (data == null) return;
+
+        long time = 0;
+        try {
+            time = legacyTime.parse(entry.optString("time", "")).getTime();
+        } catch (Exception ignored) {}
+        out.add(Record.of(time, entry.optString("type", ""), data));
+    }
+}
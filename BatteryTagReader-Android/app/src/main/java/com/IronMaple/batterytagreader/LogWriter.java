@@ -0,0 +1,243 @@
+package com.IronMaple.batterytagreader;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single background writer for the scan log.
+ *
+ * Callers hand over fully serialized entries and return immediately. The writer
+ * thread drains everything that queued up while the previous commit was running
+ * and inserts it in one transaction (group commit), so a tap never waits on disk and
+ * entries from concurrent callers are never lost to a read-modify-write race.
+ *
+ * The writer also turns each entry into a {@link LogDelta} against the last
+ * entry of the same battery ({@link LogDeltaEncoder}). Deleting rows goes
+ * through this thread too, so a delta never references a row that is being removed.
+ */
+final class LogWriter {
+
+    private static final String TAG = "LogWriter";
+
+    private static final int MAX_TRACKED_SERIALS = 256;
+
+    private static LogWriter instance;
+
+    private final Context appContext;
+    // LogStore.Record entries, or FutureTask maintenance jobs run between commits
+    private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final Object commitLock = new Object();
+
+    // Sequence numbers: entries handed to enqueue() vs. entries written (or dropped on error)
+    private final AtomicLong enqueued = new AtomicLong();
+    private long committed = 0; // guarded by commitLock
+
+    // --- Metrics ---
+    private static final LatencyHistogram COMMIT = MetricsRegistry.histogram("log.commit");
+    private static final AtomicLong COMMIT_FAILURES = MetricsRegistry.counter("log.commit_failures");
+    private static final AtomicLong KEYFRAMES = MetricsRegistry.counter("log.keyframes");
+    private static final AtomicLong DELTAS = MetricsRegistry.counter("log.deltas");
+
+    /** Last committed entry per serial; only touched on the writer thread. */
+    private final LogDeltaEncoder<LogStore.Record> encoder = new LogDeltaEncoder<>(MAX_TRACKED_SERIALS);
+
+    private LogWriter(Context appContext) {
+        this.appContext = appContext;
+        MetricsRegistry.gauge("log.queue_depth", queue::size);
+        Thread t = new Thread(this::run, "log-writer");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    static synchronized LogWriter get(Context context) {
+        if (instance == null) instance = new LogWriter(context.getApplicationContext());
+        return instance;
+    }
+
+    /** Queue one entry; never blocks. */
+    void enqueue(LogStore.Record record) {
+        enqueued.incrementAndGet();
+        queue.offer(record);
+    }
+
+    /** Block until everything enqueued before this call has been committed. */
+    void flush() {
+        flush(Long.MAX_VALUE);
+    }
+
+    /**
+     * Like {@link #flush()} but gives up after {@code timeoutMs}.
+     * @return true if all earlier entries were committed in time
+     */
+    boolean flush(long timeoutMs) {
+        long target = enqueued.get();
+        long deadline = timeoutMs == Long.MAX_VALUE
+                ? Long.MAX_VALUE
+                : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+
+        synchronized (commitLock) {
+            while (committed < target) {
+                long remaining = deadline == Long.MAX_VALUE ? 0 : deadline - System.nanoTime();
+                if (deadline != Long.MAX_VALUE && remaining <= 0) return false;
+                try {
+                    if (remaining == 0) {
+                        commitLock.wait();
+                    } else {
+                        TimeUnit.NANOSECONDS.timedWait(commitLock, remaining);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Delete live rows with id <= upToId, in order with pending commits. */
+    int deleteUpTo(long upToId) {
+        return runOnWriter(() -> {
+            int deleted = LogStore.get(appContext).deleteUpTo(upToId);
+            encoder.forgetIf(last -> last.id <= upToId);
+            return deleted;
+        });
+    }
+
+    /** Erase the live log, in order with pending commits. */
+    void clear() {
+        runOnWriter(() -> {
+            LogStore.get(appContext).clear();
+            encoder.clear();
+            return null;
+        });
+    }
+
+    private <T> T runOnWriter(Callable<T> job) {
+        FutureTask<T> task = new FutureTask<>(job);
+        queue.offer(task);
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for log writer", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Log maintenance failed", e.getCause());
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Writer thread
+    // ------------------------------------------------------------------------
+
+    private void run() {
+        // Opening may import the legacy log; keep that off the caller's thread too
+        LogStore store = LogStore.get(appContext);
+        List<Object> pending = new ArrayList<>();
+        List<LogStore.Record> batch = new ArrayList<>();
+        while (true) {
+            try {
+                pending.add(queue.take());
+            } catch (InterruptedException e) {
+                continue; // daemon thread; nothing to shut down
+            }
+            queue.drainTo(pending);
+
+            for (Object item : pending) {
+                if (item instanceof LogStore.Record) {
+                    batch.add((LogStore.Record) item);
+                } else {
+                    commit(store, batch);
+                    ((FutureTask<?>) item).run();
+                }
+            }
+            commit(store, batch);
+            pending.clear();
+        }
+    }
+
+    private void commit(LogStore store, List<LogStore.Record> batch) {
+        if (batch.isEmpty()) return;
+
+        boolean ok = false;
+        long start = System.nanoTime();
+        List<BatteryDoc> docs = new ArrayList<>(batch.size());
+        try {
+            for (LogStore.Record r : batch) {
+                docs.add(typed(r)); // before encode() may turn the data into a delta
+                encode(r);
+            }
+            store.insertBatch(batch);
+            COMMIT.recordSince(start);
+            ok = true;
+        } catch (Exception e) {
+            COMMIT_FAILURES.incrementAndGet();
+            // Ids the encoder holds may now point at rows that were never written
+            encoder.clear();
+            Log.e(TAG, "Failed to commit " + batch.size() + " log entries", e);
+        }
+        if (ok) {
+            try {
+                updateFleetIndex(batch, docs);
+            } catch (Exception e) {
+                Log.e(TAG, "Fleet index update failed", e);
+            }
+        }
+
+        synchronized (commitLock) {
+            committed += batch.size();
+            commitLock.notifyAll();
+        }
+        batch.clear();
+    }
+
+    private void updateFleetIndex(List<LogStore.Record> batch, List<BatteryDoc> docs) {
+        FleetIndex index = FleetIndex.get(appContext);
+        for (int i = 0; i < batch.size(); i++) {
+            LogStore.Record r = batch.get(i);
+            BatteryDoc doc = docs.get(i);
+            index.apply(r.id, r.timeMillis, r.sn, doc == null ? new BatteryDoc() : doc);
+        }
+        index.saveIfDirty();
+    }
+
+    /** The record's document, or null if it isn't a battery document. */
+    private static BatteryDoc typed(LogStore.Record r) {
+        try {
+            return BatteryDoc.parse(r.data);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /** Replace the record's document with a delta against the battery's previous entry, when possible. */
+    private void encode(LogStore.Record r) {
+        if (r.sn.isEmpty()) return;
+
+        JSONObject doc;
+        try {
+            doc = new JSONObject(r.data);
+        } catch (Exception e) {
+            return;
+        }
+
+        LogDeltaEncoder.Encoded<LogStore.Record> encoded = encoder.encode(r.sn, doc, r);
+        if (encoded.isKeyframe()) {
+            KEYFRAMES.incrementAndGet();
+        } else {
+            r.data = encoded.delta.toString();
+            r.base = encoded.base;
+            DELTAS.incrementAndGet();
+        }
+    }
+}
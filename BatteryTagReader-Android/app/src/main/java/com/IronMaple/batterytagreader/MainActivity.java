@@ -12,17 +12,16 @@ import android.content.IntentFilter;
 import android.content.SharedPreferences;
 import android.net.Uri;
 import android.nfc.NdefMessage;
-import android.nfc.NdefRecord;
 import android.nfc.NfcAdapter;
 import android.nfc.Tag;
 import android.nfc.tech.Ndef;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Environment;
+import android.os.SystemClock;
 import android.text.Editable;
 import android.text.InputType;
 import android.text.TextWatcher;
-import android.view.Gravity;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
@@ -31,6 +30,7 @@ import android.widget.EditText;
 import android.widget.LinearLayout;
 import android.widget.Spinner;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.core.content.FileProvider;
 import androidx.core.graphics.Insets;
@@ -38,29 +38,25 @@ import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowCompat;
 import androidx.core.view.WindowInsetsCompat;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.charset.Charset;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
-import java.util.List;
-import java.util.ArrayList;
-import java.util.TimeZone;
 
 
 public class MainActivity extends Activity {
 
     private NfcAdapter nfcAdapter;
-    private LinearLayout resultLayout;
+    private ResultView resultView;
     private Tag lastTag = null;
-    private JSONObject lastJson = null;
-    private static final int MAX_RECORDS = 14;
+    private BatteryDoc lastDoc = null;
+    private final TagReader tagReader = new TagReader();
+    private boolean readerModeEnabled = false;
+
+    // Station mode: every tap appends a charger entry in the same NFC session
+    private volatile boolean stationMode = false;
+    private final ThroughputCounter stationCounter = new ThroughputCounter();
 
     // === Added: extra key for demo JSON ===
     public static final String EXTRA_DEMO_JSON = "com.IronMaple.batterytagreader.EXTRA_DEMO_JSON";
@@ -71,6 +67,7 @@ public class MainActivity extends Activity {
         setContentView(R.layout.activity_main);
 
         SoundHelper.init(this);
+        LogCompactionJob.schedule(this);
 
         WindowCompat.setDecorFitsSystemWindows(getWindow(), true);
         final View root = findViewById(android.R.id.content);
@@ -82,7 +79,7 @@ public class MainActivity extends Activity {
             return insets;
         });
 
-        resultLayout = findViewById(R.id.resultLayout);
+        resultView = new ResultView(findViewById(R.id.resultLayout));
 
         showMessage(getString(R.string.msg_hold_battery));
 
@@ -101,6 +98,9 @@ public class MainActivity extends Activity {
         btnExportJson.setOnClickListener(v -> exportJson());
 
 
+        Button btnStation = findViewById(R.id.btnStation);
+        btnStation.setOnClickListener(v -> toggleStationMode(btnStation));
+
         btnCharged.setOnClickListener(v -> writeChargerSession());
         btnInit.setOnClickListener(v -> promptForSerialNumber());
         btnStatus.setOnClickListener(v -> promptForNoteType());
@@ -126,8 +126,8 @@ public class MainActivity extends Activity {
                 try {
                     String jsonStr = intent.getStringExtra("json");
                     if (jsonStr != null && !jsonStr.isEmpty()) {
-                        parseAndDisplayJson(jsonStr);
-                        LogHelper.log(MainActivity.this, "view_import", new JSONObject(jsonStr));
+                        BatteryDoc doc = BatteryDoc.parse(jsonStr);
+                        displayDoc(doc, "view_import");
                     }
                 } catch (Exception e) {
                     showMessage("Error loading imported JSON: " + e.getMessage());
@@ -142,7 +142,16 @@ public class MainActivity extends Activity {
         super.onResume();
         enableImmersiveMode();
 
-        if (nfcAdapter != null) {
+        if (nfcAdapter != null && AppSettings.isReaderMode(this)) {
+            Bundle extras = new Bundle();
+            extras.putInt(NfcAdapter.EXTRA_READER_PRESENCE_CHECK_DELAY, AppSettings.getPresenceCheckDelayMs(this));
+            nfcAdapter.enableReaderMode(this, this::onReaderModeTag,
+                    NfcAdapter.FLAG_READER_NFC_A | NfcAdapter.FLAG_READER_NFC_B
+                            | NfcAdapter.FLAG_READER_NFC_F | NfcAdapter.FLAG_READER_NFC_V
+                            | NfcAdapter.FLAG_READER_NO_PLATFORM_SOUNDS,
+                    extras);
+            readerModeEnabled = true;
+        } else if (nfcAdapter != null) {
             Intent intent = new Intent(this, getClass()).addFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP);
             PendingIntent pendingIntent = PendingIntent.getActivity(
                     this,
@@ -159,10 +168,54 @@ public class MainActivity extends Activity {
     protected void onPause() {
         super.onPause();
         if (nfcAdapter != null) {
-            nfcAdapter.disableForegroundDispatch(this);
+            if (readerModeEnabled) {
+                nfcAdapter.disableReaderMode(this);
+                readerModeEnabled = false;
+            } else {
+                nfcAdapter.disableForegroundDispatch(this);
+            }
         }
     }
 
+    /**
+     * Reader-mode discovery, on a binder thread. The platform has already read
+     * the NDEF message during discovery, so use that copy and chime right away;
+     * only connect again if there is no cached message.
+     */
+    private void onReaderModeTag(Tag tag) {
+        long tapNanos = SystemClock.elapsedRealtimeNanos();
+        if (stationMode) {
+            runOnUiThread(() -> stationTap(tag, tapNanos));
+            return;
+        }
+        Ndef ndef = Ndef.get(tag);
+        NdefMessage cached = ndef == null ? null : ndef.getCachedNdefMessage();
+        if (cached == null) {
+            runOnUiThread(() -> readTag(tag, tapNanos));
+            return;
+        }
+
+        BatteryDoc doc;
+        try {
+            doc = TagCodec.readMessage(cached);
+        } catch (Exception e) {
+            doc = null;
+        }
+        if (doc == null) {
+            // Empty or not a battery document: the regular read reports it
+            runOnUiThread(() -> readTag(tag, tapNanos));
+            return;
+        }
+        SoundHelper.playForNote(doc.getNote(), tapNanos);
+
+        final BatteryDoc parsed = doc;
+        runOnUiThread(() -> {
+            tagReader.cancel(); // a slower read of an earlier tap must not overwrite this one
+            lastTag = tag;
+            showTagResult(null, parsed, tapNanos, false);
+        });
+    }
+
     @Override
     protected void onNewIntent(Intent intent) {
         super.onNewIntent(intent);
@@ -172,11 +225,8 @@ public class MainActivity extends Activity {
             try {
                 String jsonStr = intent.getStringExtra("WRITE_JSON_DIRECT");
                 if (jsonStr != null && !jsonStr.isEmpty()) {
-                    lastJson = new JSONObject(jsonStr);
-                    // Direct NFC write
-                    if (writeToTag(lastJson.toString())) {
-                        LogHelper.log(this, "write", lastJson);
-                    }
+                    lastDoc = BatteryDoc.parse(jsonStr);
+                    writeToTag(lastDoc); // Direct NFC write; logs the write
                 } else {
                     showMessage("No JSON data provided.");
                 }
@@ -192,33 +242,47 @@ public class MainActivity extends Activity {
         }
 
         // === 3. Handle NFC tag read as usual ===
-        lastTag = intent.getParcelableExtra(NfcAdapter.EXTRA_TAG);
-        if (lastTag == null) {
+        Tag tag = intent.getParcelableExtra(NfcAdapter.EXTRA_TAG);
+        if (tag == null) {
             showMessage("No tag detected.");
             return;
         }
+        if (stationMode) {
+            stationTap(tag, SystemClock.elapsedRealtimeNanos());
+        } else {
+            readTag(tag, SystemClock.elapsedRealtimeNanos());
+        }
+    }
 
-        Ndef ndef = Ndef.get(lastTag);
-        if (ndef != null) {
-            try {
-                ndef.connect();
-                NdefMessage message = ndef.getNdefMessage();
-                NdefRecord[] records = message.getRecords();
-
-                if (records.length > 0) {
-                    String raw = getTextFromPayload(records[0].getPayload());
-                    parseAndDisplayJson(raw);
-                } else {
-                    showMessage("NDEF tag has no records.");
-                }
+    /** Read + parse on the I/O thread; a newer tap cancels this one. */
+    private void readTag(Tag tag, long tapNanos) {
+        lastTag = tag;
+        tagReader.read(tag, tapNanos, new TagReader.Callback() {
+            @Override
+            public void onRead(String raw, BatteryDoc doc, long tapNanos) {
+                showTagResult(raw, doc, tapNanos, true);
+            }
 
-                ndef.close();
-            } catch (Exception e) {
-                showMessage("Error reading NDEF: " + e.getMessage());
+            @Override
+            public void onError(String message) {
+                showMessage(message);
             }
-        } else {
-            showMessage("Tag is not NDEF formatted.");
+        });
+    }
+
+    private void showTagResult(String raw, BatteryDoc doc, long tapNanos, boolean chime) {
+        if (doc == null) {
+            showMessage(getString(R.string.error_invalid_json, raw));
+            return;
         }
+        displayDoc(doc, "read", chime, tapNanos);
+        TagReader.recordDisplayed(tapNanos);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        tagReader.shutdown();
     }
 
 
@@ -241,205 +305,185 @@ public class MainActivity extends Activity {
     }
 
     private void parseAndDisplayJson(String rawJson) {
-        resultLayout.removeAllViews();
-
+        BatteryDoc doc;
         try {
-            JSONObject obj = new JSONObject(rawJson);
-            lastJson = obj;
-
-            // Avoid logging duplicate reads (not user-visible; keep as-is)
-            if (!obj.toString().equals(LogHelper.getLastLoggedRaw(this))) {
-                LogHelper.log(this, "read", obj);
-            }
-
-            // Localized labels
-            addLabel(getString(R.string.label_serial_number), obj.optString("sn"));
-            addLabel(getString(R.string.label_first_use), formatDateTime(obj.optString("fu")));
-            addLabel(getString(R.string.label_cycle_count), String.valueOf(obj.optInt("cc")));
-
-            // Check for dark mode once
-            int nightModeFlags = getResources().getConfiguration().uiMode
-                    & android.content.res.Configuration.UI_MODE_NIGHT_MASK;
-            boolean isDark = nightModeFlags == android.content.res.Configuration.UI_MODE_NIGHT_YES;
-
-            // Note Type with background color (text localized via format string)
-            int noteType = obj.optInt("n");
-            SoundHelper.playForNoteDelayed(noteType, 50);
-
-            TextView noteLabel = new TextView(this);
-            noteLabel.setText(getString(R.string.label_note_type, noteTypeName(noteType)));
-            noteLabel.setTextSize(16f);
-            noteLabel.setPadding(0, 12, 0, 4);
-
-            switch (noteType) {
-                case 1: // Practice Only (yellow)
-                    noteLabel.setBackgroundColor(isDark ? 0xFFCCCC00 : 0xFFFFFF99);
-                    noteLabel.setTextColor(0xFF000000);
-                    break;
-                case 2: // Scrap (red)
-                    noteLabel.setBackgroundColor(isDark ? 0xFFCC3333 : 0xFFFF6666);
-                    noteLabel.setTextColor(0xFFFFFFFF);
-                    break;
-                case 3: // Other (blue)
-                    noteLabel.setBackgroundColor(isDark ? 0xFF3366AA : 0xFF99CCFF);
-                    noteLabel.setTextColor(0xFFFFFFFF);
-                    break;
-                default: // Normal
-                    noteLabel.setTextColor(isDark ? 0xFFFFFFFF : 0xFF000000);
-                    break;
-            }
-
-            resultLayout.addView(noteLabel);
-
-            JSONArray usage = obj.optJSONArray("u");
-            if (usage != null && usage.length() > 0) {
-                // Convert to list for sorting
-                List<JSONObject> entries = new ArrayList<>();
-                for (int i = 0; i < usage.length(); i++) {
-                    entries.add(usage.getJSONObject(i));
-                }
+            doc = BatteryDoc.parse(rawJson);
+        } catch (JSONException e) {
+            showMessage(getString(R.string.error_invalid_json, rawJson));
+            return;
+        }
+        displayDoc(doc);
+    }
 
-                // Sort descending by ID
-                entries.sort((a, b) -> Integer.compare(b.optInt("i", 0), a.optInt("i", 0)));
-
-                addHeader(getString(R.string.header_usage_log));
-                for (JSONObject entry : entries) {
-                    int type = entry.optInt("d");
-                    String info = getString(
-                            R.string.usage_entry_format,
-                            entry.optInt("i"),
-                            formatDateTime(entry.optString("t")),
-                            deviceTypeName(type),
-                            entry.optInt("e"),
-                            entry.optInt("v")
-                    );
-
-                    TextView item = new TextView(this);
-                    item.setText(info);
-                    item.setTextSize(15f);
-                    item.setPadding(24, 8, 0, 8);
-
-                    if (type == 2) {  // Charger → green
-                        item.setBackgroundColor(isDark ? 0xFF227733 : 0xFFAAFFAA);
-                        item.setTextColor(isDark ? 0xFFFFFFFF : 0xFF000000);
-                    } else if (type == 1) {  // Robot → blue
-                        item.setBackgroundColor(isDark ? 0xFF224477 : 0xFFADD8E6);
-                        item.setTextColor(isDark ? 0xFFFFFFFF : 0xFF000000);
-                    }
+    private void displayDoc(BatteryDoc doc) {
+        displayDoc(doc, "read");
+    }
 
-                    resultLayout.addView(item);
-                }
-            }
+    private void displayDoc(BatteryDoc doc, String logType) {
+        displayDoc(doc, logType, true, SystemClock.elapsedRealtimeNanos());
+    }
 
-        } catch (Exception e) {
-            showMessage(getString(R.string.error_invalid_json, rawJson));
-        }
+    /**
+     * Show {@code doc} and log it once, as {@code logType}: a document is only
+     * logged the first time it is seen, so a write must not be logged as a read first.
+     * @param chime play the note chime (false when it was already played on detection)
+     * @param tapNanos when the tag was detected, for chime latency
+     */
+    private void displayDoc(BatteryDoc doc, String logType, boolean chime, long tapNanos) {
+        lastDoc = doc;
+
+        // Unchanged re-reads are dropped by the log's duplicate check
+        LogHelper.log(this, logType, doc);
+
+        if (chime) SoundHelper.playForNoteDelayed(doc.getNote(), 50, tapNanos);
+        long start = System.nanoTime();
+        resultView.bind(doc);
+        MetricsRegistry.histogram("ui.render").recordSince(start);
     }
 
     private void writeChargerSession() {
-        if (lastJson == null) {
+        if (lastDoc == null) {
             showMessage("Scan a battery first.");
             return;
         }
 
-        try {
-            JSONArray u = lastJson.optJSONArray("u");
-            if (u == null) u = new JSONArray();
-
-            // Check last entry
-            if (u.length() > 0) {
-                JSONObject lastEntry = u.getJSONObject(u.length() - 1);
-                int lastType = lastEntry.optInt("d", -1); // 2 = charger
-
-                if (lastType == 2) {
+        int policy = AppSettings.getDuplicateChargerPolicy(this);
+        if (lastEntryIsCharger(lastDoc)) {
+            switch (policy) {
+                case AppSettings.DUPLICATE_CHARGER_SKIP:
+                    showMessage(getString(R.string.msg_duplicate_charger_skipped));
+                    return;
+                case AppSettings.DUPLICATE_CHARGER_ADD:
+                    doAddChargerEntry(false);
+                    return;
+                default:
                     new AlertDialog.Builder(this)
                             .setTitle("Duplicate Charger Entry")
                             .setMessage("The last log was already a charger. Add another anyway?")
-                            .setPositiveButton("Yes", (dialog, which) -> doAddChargerEntry())
+                            .setPositiveButton("Yes", (dialog, which) -> doAddChargerEntry(false))
                             .setNegativeButton("No", null)
                             .show();
                     return;
-                }
             }
-
-            // Safe to proceed directly
-            doAddChargerEntry();
-
-        } catch (Exception e) {
-            showMessage("Failed to update charger entry.");
         }
+
+        // Safe to proceed directly; re-checked against the tag unless duplicates are allowed
+        doAddChargerEntry(policy != AppSettings.DUPLICATE_CHARGER_ADD);
     }
 
-    private void doAddChargerEntry() {
-        try {
-            JSONArray u = lastJson.optJSONArray("u");
-            if (u == null) u = new JSONArray();
-
-            // Determine max ID
-            int maxId = 0;
-            for (int i = 0; i < u.length(); i++) {
-                JSONObject entry = u.getJSONObject(i);
-                maxId = Math.max(maxId, entry.optInt("i", 0));
-            }
+    private void doAddChargerEntry(boolean skipDuplicate) {
+        updateTag(chargerEntry(skipDuplicate));
+    }
 
-            JSONObject entry = new JSONObject();
-            entry.put("i", maxId + 1);
-            entry.put("t", currentTimestamp());
-            entry.put("d", 2); // charger
-            entry.put("e", 0);
-            entry.put("v", 0);
-            u.put(entry);
+    /** Adds a charger entry and a cycle; declines if {@code skipDuplicate} and the last entry is already a charger. */
+    private TagTransaction.Mutation chargerEntry(boolean skipDuplicate) {
+        return doc -> {
+            if (skipDuplicate && lastEntryIsCharger(doc)) return false;
+            addUsageEntry(doc, BatteryDoc.DEVICE_CHARGER);
+            doc.setCycleCount(doc.getCycleCount() + 1);
+            return true;
+        };
+    }
 
-            while (u.length() > MAX_RECORDS) u.remove(0); // MAX_RECORDS = 14
-            lastJson.put("u", u);
+    private static boolean lastEntryIsCharger(BatteryDoc doc) {
+        return doc.getLastDevice() == BatteryDoc.DEVICE_CHARGER;
+    }
 
-            int cc = lastJson.optInt("cc", 0);
-            lastJson.put("cc", cc + 1);
+    private void writeRobotSession() {
+        if (lastDoc == null) {
+            showMessage("Scan a battery first.");
+            return;
+        }
 
-            if (writeToTag(lastJson.toString())) {
-                LogHelper.log(this, "write", lastJson);
-            }
+        updateTag(doc -> {
+            addUsageEntry(doc, BatteryDoc.DEVICE_ROBOT);
+            return true;
+        });
+    }
 
-        } catch (Exception e) {
-            showMessage("Failed to write charger entry.");
-        }
+    /** Append a usage entry for {@code device} after the highest id on the tag. */
+    private void addUsageEntry(BatteryDoc doc, int device) {
+        // Trimmed to what the tag holds by TagCodec.fit()
+        doc.addUsage(doc.maxUsageId() + 1, TagTime.now(), device, 0, 0);
     }
 
-    private void writeRobotSession() {
-        if (lastJson == null) {
-            showMessage("Scan a battery first.");
+    /**
+     * Apply {@code mutation} to the battery on the reader in one NFC session
+     * (re-read, check against lastDoc, write, verify), off the UI thread.
+     */
+    private void updateTag(TagTransaction.Mutation mutation) {
+        if (nfcAdapter == null || lastTag == null || lastDoc == null) {
+            showMessage("No tag or NFC unavailable.");
             return;
         }
 
-        try {
-            JSONArray u = lastJson.optJSONArray("u");
-            if (u == null) u = new JSONArray();
-
-            // Determine max ID
-            int maxId = 0;
-            for (int i = 0; i < u.length(); i++) {
-                JSONObject entry = u.getJSONObject(i);
-                maxId = Math.max(maxId, entry.optInt("i", 0));
-            }
+        final Tag tag = lastTag;
+        final BatteryDoc snapshot = lastDoc;
+        final boolean compact = AppSettings.isCompactTagEncoding(this);
+        showMessage(getString(R.string.status_working));
+
+        tagReader.execute(() -> {
+            TagTransaction.Result result = TagTransaction.run(tag, snapshot, mutation, compact, true);
+            runOnUiThread(() -> {
+                if (result.error != null) {
+                    showMessage(result.error);
+                    return;
+                }
+                displayDoc(result.doc, result.written ? "write" : "read");
+                if (!result.written) {
+                    Toast.makeText(this, R.string.msg_duplicate_charger_skipped, Toast.LENGTH_LONG).show();
+                    return;
+                }
+                if (result.newerEntries > 0) {
+                    Toast.makeText(this, getResources().getQuantityString(R.plurals.msg_kept_newer_entries,
+                            result.newerEntries, result.newerEntries), Toast.LENGTH_LONG).show();
+                }
+            });
+        });
+    }
 
-            JSONObject entry = new JSONObject();
-            entry.put("i", maxId + 1);
-            entry.put("t", currentTimestamp());
-            entry.put("d", 1);  // robot
-            entry.put("e", 0);
-            entry.put("v", 0);
-            u.put(entry);
+    // ------------------------------------------------------------------------
+    // Charging station mode
+    // ------------------------------------------------------------------------
 
-            while (u.length() > MAX_RECORDS) u.remove(0);
-            lastJson.put("u", u);
+    private void toggleStationMode(Button button) {
+        stationMode = !stationMode;
+        stationCounter.reset();
+        button.setText(stationMode ? R.string.btn_station_stop : R.string.btn_station);
+        showMessage(getString(stationMode ? R.string.msg_station_ready : R.string.msg_hold_battery));
+    }
 
-            if (writeToTag(lastJson.toString())) {
-                LogHelper.log(this, "write", lastJson);
-            }
+    /** Read, add a charger entry (per the duplicate policy) and write, in one session. */
+    private void stationTap(Tag tag, long tapNanos) {
+        lastTag = tag;
+        final boolean skipDuplicate =
+                AppSettings.getDuplicateChargerPolicy(this) != AppSettings.DUPLICATE_CHARGER_ADD;
+        final boolean compact = AppSettings.isCompactTagEncoding(this);
+
+        tagReader.execute(() -> {
+            TagTransaction.Result result = TagTransaction.run(tag, null, chargerEntry(skipDuplicate), compact, true);
+            runOnUiThread(() -> {
+                // A charger entry already on the tag is shown and logged even if station mode was just left
+                if (!stationMode && !result.written) return;
+                if (result.error != null) {
+                    showMessage(result.error);
+                    addStationStatus(result.error);
+                    return;
+                }
+                displayDoc(result.doc, result.written ? "station" : "read");
+                TagReader.recordDisplayed(tapNanos);
+                if (!stationMode) return;
+                stationCounter.record();
+                addStationStatus(getString(result.written
+                        ? R.string.msg_station_charged : R.string.msg_duplicate_charger_skipped));
+            });
+        });
+    }
 
-        } catch (Exception e) {
-            showMessage("Failed to mock robot session.");
-        }
+    /** Outcome of the last tap and the running count, above the battery details. */
+    private void addStationStatus(String outcome) {
+        resultView.showStatus(outcome + "\n" + getString(R.string.station_status,
+                stationCounter.getTotal(), stationCounter.getPerMinute()));
     }
 
     private void promptForSerialNumber() {
@@ -532,7 +576,7 @@ public class MainActivity extends Activity {
                 .create();
 
         // === Update logic ===
-        @SuppressLint({"SetTextI18n", "DefaultLocale"}) Runnable updatePreview = () -> {
+        @SuppressLint("SetTextI18n") Runnable updatePreview = () -> {
             int mode = modeSpinner.getSelectedItemPosition();
             int type = typeSpinner.getSelectedItemPosition();
             String team = teamInput.getText().toString().trim();
@@ -552,7 +596,7 @@ public class MainActivity extends Activity {
             typeLabel.setVisibility(isBest ? View.VISIBLE : View.GONE);
             typeSpinner.setVisibility(isBest ? View.VISIBLE : View.GONE);
 
-            boolean showId = isBest && type != 2;
+            boolean showId = isBest && type != BestSerial.TYPE_SPECIAL;
             idLabel.setVisibility(showId ? View.VISIBLE : View.GONE);
             idInput.setVisibility(showId ? View.VISIBLE : View.GONE);
 
@@ -560,71 +604,14 @@ public class MainActivity extends Activity {
             String result = null;
             boolean valid = true;
 
-            if (mode == 0) {
-                // Manual Serial Input mode
-                if (manual.isEmpty() || manual.length() > 8) {
-                    preview.setText("Incomplete or too long");
-                    preview.setTextColor(0xFFFF0000);
-                    valid = false;
-                } else if (!manual.matches("\\A\\p{ASCII}+\\z")) {
-                    preview.setText("Illegal input (non-ASCII)");
-                    preview.setTextColor(0xFFFF0000);
-                    valid = false;
-                } else {
-                    result = manual;
-                    preview.setText("Preview: " + result);
-                    preview.setTextColor(0xFF00AA00);
-                }
-            } else {
-                // BEST Scheme mode
-                if (team.isEmpty() || !team.matches("\\d{1,5}")) {
-                    preview.setText("Incomplete team number");
-                    preview.setTextColor(0xFFFF0000);
-                    valid = false;
-                } else {
-                    while (team.length() < 5) team += "-";
-                    int num = 0;
-                    if (type != 2) {
-                        if (idStr.isEmpty() || !idStr.matches("\\d+")) {
-                            preview.setText("Incomplete ID");
-                            preview.setTextColor(0xFFFF0000);
-                            valid = false;
-                        } else {
-                            num = Integer.parseInt(idStr);
-                        }
-                    }
-
-                    if (valid) {
-                        switch (type) {
-                            case 0:
-                                if (num < 0 || num > 899) {
-                                    preview.setText("Illegal ID (0–899)");
-                                    preview.setTextColor(0xFFFF0000);
-                                    valid = false;
-                                } else {
-                                    result = String.format("%s%03d", team, num);
-                                }
-                                break;
-                            case 1:
-                                if (num < 0 || num > 98) {
-                                    preview.setText("Illegal ID (00–98)");
-                                    preview.setTextColor(0xFFFF0000);
-                                    valid = false;
-                                } else {
-                                    result = String.format("%s9%02d", team, num);
-                                }
-                                break;
-                            case 2:
-                                result = team + "999";
-                                break;
-                        }
-
-                        if (valid) {
-                            preview.setText("Preview: " + result);
-                            preview.setTextColor(0xFF00AA00);
-                        }
-                    }
-                }
+            try {
+                result = isManual ? BestSerial.manual(manual) : BestSerial.best(team, type, idStr);
+                preview.setText("Preview: " + result);
+                preview.setTextColor(0xFF00AA00);
+            } catch (IllegalArgumentException e) {
+                preview.setText(e.getMessage());
+                preview.setTextColor(0xFFFF0000);
+                valid = false;
             }
 
             resultHolder[0] = result;
@@ -644,17 +631,9 @@ public class MainActivity extends Activity {
                 String sn = resultHolder[0];
                 if (sn == null || sn.isEmpty()) return;
                 try {
-                    JSONObject json = new JSONObject();
-                    json.put("sn", sn);
-                    json.put("fu", currentTimestamp());
-                    json.put("cc", 0);
-                    json.put("n", 0);
-                    json.put("u", new JSONArray());
-                    lastJson = json;
-
-                    if (writeToTag(lastJson.toString())) {
-                        LogHelper.log(this, "write", lastJson);
-                    }
+                    lastDoc = new BatteryDoc(sn, TagTime.now());
+
+                    writeToTag(lastDoc); // Logs the write
 
                     prefs.edit()
                             .putInt("initMode", modeSpinner.getSelectedItemPosition())
@@ -705,15 +684,14 @@ public class MainActivity extends Activity {
                 .setTitle("Set Note Type")
                 .setItems(items, (dialog, which) -> {
                     try {
-                        if (lastJson == null) {
+                        if (lastDoc == null) {
                             showMessage("Scan a battery first.");
                             return;
                         }
-                        lastJson.put("n", which);
-
-                        if (writeToTag(lastJson.toString())) {
-                            LogHelper.log(this, "write", lastJson);
-                        }
+                        updateTag(doc -> {
+                            doc.setNote(which);
+                            return true;
+                        });
 
                     } catch (Exception e) {
                         showMessage("Failed to set note.");
@@ -721,7 +699,11 @@ public class MainActivity extends Activity {
                 }).show();
     }
 
-    private boolean writeToTag(String data) {
+    /**
+     * Write {@code doc} to the last scanned tag. The oldest usage entries are
+     * dropped from {@code doc} until it fits the tag's capacity, before any radio I/O.
+     */
+    private boolean writeToTag(BatteryDoc doc) {
         if (nfcAdapter == null || lastTag == null) {
             showMessage("No tag or NFC unavailable.");
             return false;
@@ -730,26 +712,21 @@ public class MainActivity extends Activity {
         try {
             Ndef ndef = Ndef.get(lastTag);
             if (ndef != null && ndef.isWritable()) {
+                NdefMessage message = TagCodec.fit(doc, AppSettings.isCompactTagEncoding(this), ndef.getMaxSize());
+                if (message == null) {
+                    showMessage("Data too large for this tag (" + ndef.getMaxSize() + " bytes).");
+                    return false;
+                }
+                long start = System.nanoTime();
                 ndef.connect();
-                byte[] langBytes = "en".getBytes(Charset.forName("US-ASCII"));
-                byte[] textBytes = data.getBytes(Charset.forName("UTF-8"));
-                byte[] payload = new byte[1 + langBytes.length + textBytes.length];
-                payload[0] = (byte) langBytes.length;
-                System.arraycopy(langBytes, 0, payload, 1, langBytes.length);
-                System.arraycopy(textBytes, 0, payload, 1 + langBytes.length, textBytes.length);
-
-                NdefRecord record = new NdefRecord(
-                        NdefRecord.TNF_WELL_KNOWN,
-                        NdefRecord.RTD_TEXT,
-                        new byte[0],
-                        payload
-                );
-
-                ndef.writeNdefMessage(new NdefMessage(new NdefRecord[]{record}));
+                MetricsRegistry.histogram("tag.connect").recordSince(start);
+                start = System.nanoTime();
+                ndef.writeNdefMessage(message);
+                MetricsRegistry.histogram("tag.write").recordSince(start);
                 ndef.close();
 
                 showMessage("Write successful.");
-                parseAndDisplayJson(data);  // Will log the read
+                displayDoc(doc, "write");
 
                 return true;
             } else {
@@ -762,99 +739,8 @@ public class MainActivity extends Activity {
         return false;
     }
 
-    private String currentTimestamp() {
-        SimpleDateFormat utcFormat = new SimpleDateFormat("yyMMddHHmm", Locale.US);
-        utcFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-        return utcFormat.format(new Date());
-    }
-
     private void showMessage(String message) {
-        resultLayout.removeAllViews();
-        TextView tv = new TextView(this);
-        tv.setText(message);
-        tv.setTextSize(18f);
-        tv.setPadding(0, 16, 0, 16);
-        tv.setGravity(Gravity.CENTER);
-        resultLayout.addView(tv);
-    }
-
-    private void addLabel(String label, String value) {
-        TextView tv = new TextView(this);
-        tv.setText(label + ": " + value);
-        tv.setTextSize(16f);
-        tv.setPadding(0, 12, 0, 4);
-        resultLayout.addView(tv);
-    }
-
-    private void addHeader(String text) {
-        TextView tv = new TextView(this);
-        tv.setText(text);
-        tv.setTextSize(18f);
-        tv.setPadding(0, 20, 0, 8);
-        tv.setGravity(Gravity.START);
-        resultLayout.addView(tv);
-    }
-
-    private void addListItem(String text) {
-        TextView tv = new TextView(this);
-        tv.setText(text);
-        tv.setTextSize(15f);
-        tv.setPadding(24, 8, 0, 8);
-        resultLayout.addView(tv);
-    }
-
-    private String noteTypeName(int code) {
-        switch (code) {
-            case 1: return "Practice Only";
-            case 2: return "Scrap";
-            case 3: return "Other";
-            default: return "Normal";
-        }
-    }
-
-    private String deviceTypeName(int code) {
-        return code == 2 ? "Charger" : "Robot";
-    }
-
-    private String formatDateTime(String raw) {
-        // Guard nulls/whitespace first
-        if (raw == null) return "Date not available";
-        raw = raw.trim();
-
-        // If the JSON date is all zeros (e.g., "0000000000" or even just "0"), show N/A
-        if (raw.isEmpty() || raw.matches("^0+$")) {
-            return "Date not available";
-        }
-
-        // Keep the current fallback for non-standard lengths
-        if (raw.length() != 10) return raw;
-
-        try {
-            // Parse raw UTC timestamp encoded as "yyMMddHHmm"
-            java.text.SimpleDateFormat utcFormat =
-                    new java.text.SimpleDateFormat("yyMMddHHmm", java.util.Locale.US);
-            utcFormat.setTimeZone(java.util.TimeZone.getTimeZone("UTC"));
-            java.util.Date date = utcFormat.parse(raw);
-
-            // Format to local time
-            java.text.SimpleDateFormat localFormat =
-                    new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm", java.util.Locale.getDefault());
-            localFormat.setTimeZone(java.util.TimeZone.getDefault());
-            return localFormat.format(date);
-
-        } catch (Exception e) {
-            // If parsing fails for any other reason, fall back to the raw string
-            return raw;
-        }
-    }
-
-    private String getTextFromPayload(byte[] payload) {
-        try {
-            int langCodeLen = payload[0] & 0x3F;
-            return new String(payload, langCodeLen + 1, payload.length - langCodeLen - 1, Charset.forName("UTF-8"));
-        } catch (Exception e) {
-            return "[Invalid Payload]";
-        }
+        resultView.showMessage(message);
     }
 
     private boolean isInLockTaskMode() {
@@ -878,20 +764,19 @@ public class MainActivity extends Activity {
     }
 
     private void exportJson() {
-        if (lastJson == null) {
+        if (lastDoc == null) {
             showMessage("No battery data to export.");
             return;
         }
 
-        // Get serial number field from JSON, or fallback if missing
-        String serial = lastJson.optString("sn", "unknown");
-        String fileName = serial + ".BEST.json";
+        // Named after the serial number, or "unknown" if missing
+        String fileName = BestFile.fileName(lastDoc);
 
         // Build JSON and write to cache for sharing
         File cacheFile = new File(getCacheDir(), fileName);
         try (FileWriter writer = new FileWriter(cacheFile)) {
-            writer.write(lastJson.toString(2));
-        } catch (IOException | JSONException e) {
+            writer.write(BestFile.toText(lastDoc));
+        } catch (IOException e) {
             showMessage("Export failed: " + e.getMessage());
             return;
         }
@@ -907,15 +792,8 @@ public class MainActivity extends Activity {
     }
     private void generateAndOpenPrintPage() {
         try {
-            // Convert JSON to HTML (mirrors battery_print.py structure)
-            String html = BatteryReportHtmlGenerator.generateHtml(lastJson);
-
-            // Save to a temp HTML file
-            File outFile = new File(getCacheDir(), "BatteryReport_" +
-                    new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date()) + ".html");
-            try (FileWriter writer = new FileWriter(outFile)) {
-                writer.write(html);
-            }
+            // Render to the report cache (mirrors battery_print.py structure); reused if the tag is unchanged
+            File outFile = ReportCache.get(this, lastDoc);
 
             // Open in browser
             Uri uri = FileProvider.getUriForFile(this, getPackageName() + ".provider", outFile);
@@ -970,7 +848,7 @@ public class MainActivity extends Activity {
 
             // --- Write JSON content ---
             try (FileWriter writer = new FileWriter(outFile)) {
-                writer.write(lastJson.toString(2));
+                writer.write(BestFile.toText(lastDoc));
             }
 
             // --- Refresh in Files app immediately ---
@@ -0,0 +1,106 @@
+package com.IronMaple.batterytagreader;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Printable reports in cacheDir/reports, keyed by {@link BatteryDoc#fingerprint()}
+ * so printing the same tag again reuses the file instead of rendering it. The
+ * rendered page depends on the tag alone; its "Generated" time is filled in
+ * when the page is opened.
+ *
+ * A file's modification time is its last use; once the directory holds more
+ * than {@link #MAX_BYTES}, the least recently used reports are deleted.
+ */
+final class ReportCache {
+
+    private static final String TAG = "ReportCache";
+    private static final String DIR_NAME = "reports";
+    private static final String PREFIX = "BatteryReport_";
+    private static final String SUFFIX = ".html";
+    /** Part of every file name; bump it when the rendered page changes so old files are not reused. */
+    private static final int FORMAT = 2;
+
+    static final long MAX_BYTES = 2L * 1024 * 1024;
+
+    private static boolean legacyCleaned;
+
+    private ReportCache() {}
+
+    /** The report for {@code doc}, rendered now only if no report of the same content is cached. */
+    static synchronized File get(Context context, BatteryDoc doc) throws IOException {
+        File dir = new File(context.getCacheDir(), DIR_NAME);
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        cleanLegacy(context.getCacheDir());
+
+        File file = new File(dir, fileName(doc));
+        if (file.isFile()) {
+            file.setLastModified(System.currentTimeMillis());
+            MetricsRegistry.counter("report.cache_hits").incrementAndGet();
+            return file;
+        }
+        MetricsRegistry.counter("report.cache_misses").incrementAndGet();
+        long start = System.nanoTime();
+
+        // Rendered to a temp file and renamed, so a cached report is always complete
+        File tmp = new File(dir, file.getName() + ".tmp");
+        try (Writer out = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8), 16 * 1024)) {
+            BatteryReportHtmlGenerator.writeHtml(doc, out);
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Cannot write " + file);
+        }
+
+        MetricsRegistry.histogram("report.render").recordSince(start);
+
+        evict(dir, file);
+        return file;
+    }
+
+    /** Serial (file-safe) for readability, fingerprint and format for identity; older formats age out by LRU. */
+    private static String fileName(BatteryDoc doc) {
+        String sn = doc.getSerial().replaceAll("[^A-Za-z0-9-]", "_");
+        if (sn.length() > 32) sn = sn.substring(0, 32);
+        return String.format(Locale.US, PREFIX + "%s_%016x_v%d" + SUFFIX, sn, doc.fingerprint(), FORMAT);
+    }
+
+    /** Delete least recently used reports until the rest fit in {@link #MAX_BYTES}; never {@code keep}. */
+    private static void evict(File dir, File keep) {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+        long total = 0;
+        for (File f : files) {
+            total += f.length();
+            if (total > MAX_BYTES && !f.equals(keep)) {
+                if (!f.delete()) Log.w(TAG, "Cannot delete " + f);
+            }
+        }
+    }
+
+    /** Timestamped reports older versions wrote straight into the cache dir. */
+    private static void cleanLegacy(File cacheDir) {
+        if (legacyCleaned) return;
+        legacyCleaned = true;
+        File[] old = cacheDir.listFiles((d, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (old == null) return;
+        for (File f : old) f.delete();
+    }
+}
@@ -0,0 +1,233 @@
+package com.IronMaple.batterytagreader;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Configuration;
+import android.graphics.Typeface;
+import android.graphics.drawable.GradientDrawable;
+import android.text.TextUtils;
+import android.view.Gravity;
+import android.view.View;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The scan result on the main screen, bound to one fixed set of views.
+ *
+ * Rebinding only touches what differs from the last document: labels whose
+ * text is unchanged are left alone and usage rows are recycled, so repeated
+ * taps don't rebuild the layout. When the same battery is shown again (a
+ * re-tap, or the re-read after a write), changed fields are set in bold and
+ * usage entries it didn't have before are outlined.
+ */
+final class ResultView {
+
+    private static final int HIGHLIGHT = 0xFFFFA000;
+
+    private final Context context;
+    private final LinearLayout layout;
+
+    private final TextView status;
+    private final TextView message;
+    private final TextView serial;
+    private final TextView firstUse;
+    private final TextView cycleCount;
+    private final TextView note;
+    private final TextView usageHeader;
+    private final List<TextView> rows = new ArrayList<>();
+    private final ColorStateList defaultTextColors;
+
+    /** What the views currently show; null when a message replaced the result. */
+    private BatteryDoc shown;
+
+    private final BatteryDoc.UsageEntry entry = new BatteryDoc.UsageEntry();
+
+    ResultView(LinearLayout layout) {
+        this.context = layout.getContext();
+        this.layout = layout;
+        layout.removeAllViews();
+
+        status = addCentered();
+        message = addCentered();
+        serial = addLabel();
+        firstUse = addLabel();
+        cycleCount = addLabel();
+        note = addLabel();
+
+        usageHeader = new TextView(context);
+        usageHeader.setText(context.getString(R.string.header_usage_log));
+        usageHeader.setTextSize(18f);
+        usageHeader.setPadding(0, 20, 0, 8);
+        usageHeader.setGravity(Gravity.START);
+        layout.addView(usageHeader);
+
+        defaultTextColors = serial.getTextColors();
+        clear();
+    }
+
+    // ------------------------------------------------------------------------
+    // Binding
+    // ------------------------------------------------------------------------
+
+    /** Show {@code doc}, highlighting what changed if the same battery is already shown. */
+    void bind(BatteryDoc doc) {
+        BatteryDoc previous = shown != null && shown.getSerial().equals(doc.getSerial()) ? shown : null;
+        shown = doc;
+        boolean dark = isDark();
+
+        status.setVisibility(View.GONE);
+        message.setVisibility(View.GONE);
+
+        setField(serial, context.getString(R.string.label_serial_number) + ": " + doc.getSerial(), false);
+        setField(firstUse, context.getString(R.string.label_first_use) + ": " + TagTime.display(doc.getFirstUse()),
+                previous != null && !previous.getFirstUse().equals(doc.getFirstUse()));
+        setField(cycleCount, context.getString(R.string.label_cycle_count) + ": " + doc.getCycleCount(),
+                previous != null && previous.getCycleCount() != doc.getCycleCount());
+        setField(note, context.getString(R.string.label_note_type, noteTypeName(doc.getNote())),
+                previous != null && previous.getNote() != doc.getNote());
+        styleNote(doc.getNote(), dark);
+
+        // Descending by ID; entries past the previous newest id are new
+        int[] order = doc.newestFirst();
+        int newAfter = previous != null ? previous.maxUsageId() : Integer.MAX_VALUE;
+        usageHeader.setVisibility(order.length > 0 ? View.VISIBLE : View.GONE);
+        while (rows.size() < order.length) rows.add(addRow());
+        for (int r = 0; r < rows.size(); r++) {
+            TextView row = rows.get(r);
+            if (r >= order.length) {
+                row.setVisibility(View.GONE);
+                continue;
+            }
+            doc.getUsage(order[r], entry);
+            bindRow(row, entry, entry.id > newAfter, dark);
+            row.setVisibility(View.VISIBLE);
+        }
+    }
+
+    /** Replace the result with a message; the next {@link #bind} starts fresh. */
+    void showMessage(String text) {
+        clear();
+        message.setText(text);
+        message.setVisibility(View.VISIBLE);
+    }
+
+    /** A line above the result (station outcome), until the next bind or message. */
+    void showStatus(String text) {
+        status.setText(text);
+        status.setVisibility(View.VISIBLE);
+    }
+
+    private void clear() {
+        shown = null;
+        for (int i = 0; i < layout.getChildCount(); i++) layout.getChildAt(i).setVisibility(View.GONE);
+    }
+
+    private void setField(TextView tv, String text, boolean changed) {
+        if (!TextUtils.equals(tv.getText(), text)) tv.setText(text);
+        tv.setTypeface(null, changed ? Typeface.BOLD : Typeface.NORMAL);
+        tv.setVisibility(View.VISIBLE);
+    }
+
+    private void styleNote(int noteType, boolean dark) {
+        switch (noteType) {
+            case 1: // Practice Only (yellow)
+                note.setBackgroundColor(dark ? 0xFFCCCC00 : 0xFFFFFF99);
+                note.setTextColor(0xFF000000);
+                break;
+            case 2: // Scrap (red)
+                note.setBackgroundColor(dark ? 0xFFCC3333 : 0xFFFF6666);
+                note.setTextColor(0xFFFFFFFF);
+                break;
+            case 3: // Other (blue)
+                note.setBackgroundColor(dark ? 0xFF3366AA : 0xFF99CCFF);
+                note.setTextColor(0xFFFFFFFF);
+                break;
+            default: // Normal
+                note.setBackground(null);
+                note.setTextColor(dark ? 0xFFFFFFFF : 0xFF000000);
+                break;
+        }
+    }
+
+    private void bindRow(TextView row, BatteryDoc.UsageEntry e, boolean isNew, boolean dark) {
+        String info = context.getString(R.string.usage_entry_format,
+                e.id, TagTime.display(e.time), deviceTypeName(e.device), e.energy, e.voltage);
+        if (!TextUtils.equals(row.getText(), info)) row.setText(info);
+
+        int fill;
+        if (e.device == 2) {  // Charger → green
+            fill = dark ? 0xFF227733 : 0xFFAAFFAA;
+        } else if (e.device == 1) {  // Robot → blue
+            fill = dark ? 0xFF224477 : 0xFFADD8E6;
+        } else {
+            fill = 0;
+        }
+        if (fill != 0) {
+            row.setTextColor(dark ? 0xFFFFFFFF : 0xFF000000);
+        } else {
+            row.setTextColor(defaultTextColors);
+        }
+
+        if (isNew) {
+            GradientDrawable outline = new GradientDrawable();
+            outline.setColor(fill);
+            outline.setStroke(6, HIGHLIGHT);
+            row.setBackground(outline);
+        } else if (fill != 0) {
+            row.setBackgroundColor(fill);
+        } else {
+            row.setBackground(null);
+        }
+        row.setTypeface(null, isNew ? Typeface.BOLD : Typeface.NORMAL);
+    }
+
+    // ------------------------------------------------------------------------
+    // Views
+    // ------------------------------------------------------------------------
+
+    private TextView addCentered() {
+        TextView tv = new TextView(context);
+        tv.setTextSize(18f);
+        tv.setPadding(0, 16, 0, 16);
+        tv.setGravity(Gravity.CENTER);
+        layout.addView(tv);
+        return tv;
+    }
+
+    private TextView addLabel() {
+        TextView tv = new TextView(context);
+        tv.setTextSize(16f);
+        tv.setPadding(0, 12, 0, 4);
+        layout.addView(tv);
+        return tv;
+    }
+
+    private TextView addRow() {
+        TextView tv = new TextView(context);
+        tv.setTextSize(15f);
+        tv.setPadding(24, 8, 0, 8);
+        layout.addView(tv);
+        return tv;
+    }
+
+    private boolean isDark() {
+        int nightModeFlags = context.getResources().getConfiguration().uiMode & Configuration.UI_MODE_NIGHT_MASK;
+        return nightModeFlags == Configuration.UI_MODE_NIGHT_YES;
+    }
+
+    private static String noteTypeName(int code) {
+        switch (code) {
+            case 1: return "Practice Only";
+            case 2: return "Scrap";
+            case 3: return "Other";
+            default: return "Normal";
+        }
+    }
+
+    private static String deviceTypeName(int code) {
+        return code == 2 ? "Charger" : "Robot";
+    }
+}
@@ -4,24 +4,115 @@ import android.content.Context;
 import android.media.AudioAttributes;
 import android.media.SoundPool;
 import android.os.Handler;
-import android.os.Looper;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Note chimes, played from a dedicated audio thread.
+ *
+ * The SoundPool is created and its samples decoded on that thread, so
+ * {@link #init} never blocks the UI. Readiness is tracked per sample: a chime
+ * requested before its sample has loaded is queued and played as soon as it
+ * is ready instead of being dropped. Delayed chimes go through the same
+ * thread's Handler. Latency from tag detection to the chime starting is
+ * recorded as "tap.to_chime" in {@link MetricsRegistry}.
+ */
 public final class SoundHelper {
 
+    private static final String TAG = "SoundHelper";
+
+    /** Queued chimes beyond this are dropped (oldest first); a backlog that long is stale anyway. */
+    private static final int MAX_PENDING = 8;
+
+    private static final int[] SAMPLES = {
+            R.raw.chime_normal, R.raw.chime_practice, R.raw.chime_scrap, R.raw.chime_other
+    };
+
+    private static HandlerThread thread;
+    private static Handler handler;
+
+    // --- Audio thread only ---
     private static SoundPool soundPool;
-    private static boolean loaded = false;
+    private static final int[] sampleIds = new int[SAMPLES.length];
+    private static final boolean[] ready = new boolean[SAMPLES.length];
+    private static final boolean[] failed = new boolean[SAMPLES.length];
+    private static final ArrayDeque<long[]> pending = new ArrayDeque<>(); // {note, tapNanos}
 
-    private static int sNormal = 0;
-    private static int sPractice = 0;
-    private static int sScrap = 0;
-    private static int sOther = 0;
+    /** Tag detected → chime started. */
+    private static final LatencyHistogram TAP_TO_CHIME = MetricsRegistry.histogram("tap.to_chime");
 
     private SoundHelper() {}
 
-    /** Call once (e.g., MainActivity.onCreate) */
-    public static void init(Context ctx) {
-        if (soundPool != null) return;
+    /** Call once (e.g., MainActivity.onCreate); loading continues in the background. */
+    public static synchronized void init(Context ctx) {
+        if (handler != null) return;
+
+        final Context app = ctx.getApplicationContext();
+        thread = new HandlerThread("SoundHelper", Process.THREAD_PRIORITY_URGENT_AUDIO);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        handler.post(() -> load(app));
+    }
+
+    /** Play immediately for a given note type. */
+    public static void playForNote(int noteType) {
+        playForNote(noteType, SystemClock.elapsedRealtimeNanos());
+    }
+
+    /** @param tapNanos when the tag was detected ({@code SystemClock.elapsedRealtimeNanos()}) */
+    public static void playForNote(int noteType, long tapNanos) {
+        Handler h = handler;
+        if (h == null) {
+            Log.w(TAG, "Chime requested before init");
+            return;
+        }
+        h.post(() -> play(indexOf(noteType), tapNanos));
+    }
+
+    /** Play after a delay (e.g., to avoid overlapping system NFC beep). */
+    public static void playForNoteDelayed(int noteType, long delayMs) {
+        playForNoteDelayed(noteType, delayMs, SystemClock.elapsedRealtimeNanos());
+    }
+
+    public static void playForNoteDelayed(int noteType, long delayMs, long tapNanos) {
+        Handler h = handler;
+        if (h == null) {
+            Log.w(TAG, "Chime requested before init");
+            return;
+        }
+        h.postDelayed(() -> play(indexOf(noteType), tapNanos), delayMs);
+    }
+
+    // Convenience wrappers
+    public static void playNormal()   { playForNote(0); }
+    public static void playPractice() { playForNote(1); }
+    public static void playScrap()    { playForNote(2); }
+    public static void playOther()    { playForNote(3); }
+
+    public static synchronized void release() {
+        if (handler == null) return;
+        handler.post(() -> {
+            if (soundPool != null) soundPool.release();
+            soundPool = null;
+            Arrays.fill(ready, false);
+            Arrays.fill(failed, false);
+            pending.clear();
+        });
+        thread.quitSafely();
+        handler = null;
+        thread = null;
+    }
+
+    // ------------------------------------------------------------------------
+    // Audio thread
+    // ------------------------------------------------------------------------
 
+    private static void load(Context ctx) {
         AudioAttributes attrs = new AudioAttributes.Builder()
                 .setUsage(AudioAttributes.USAGE_ASSISTANCE_SONIFICATION)
                 .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
@@ -32,51 +123,60 @@ public final class SoundHelper {
                 .setAudioAttributes(attrs)
                 .build();
 
-        // Load your 4 chime sounds from res/raw
-        sNormal   = soundPool.load(ctx, R.raw.chime_normal,   1);
-        sPractice = soundPool.load(ctx, R.raw.chime_practice, 1);
-        sScrap    = soundPool.load(ctx, R.raw.chime_scrap,    1);
-        sOther    = soundPool.load(ctx, R.raw.chime_other,    1);
-
+        // Load-complete callbacks arrive on this thread's looper
         soundPool.setOnLoadCompleteListener((sp, sampleId, status) -> {
-            if (status == 0) loaded = true;
+            for (int i = 0; i < sampleIds.length; i++) {
+                if (sampleIds[i] != sampleId) continue;
+                if (status == 0) {
+                    ready[i] = true;
+                } else {
+                    Log.w(TAG, "Chime " + i + " failed to load (status " + status + ")");
+                    failed[i] = true;
+                }
+            }
+            replayPending();
         });
+
+        // Load your 4 chime sounds from res/raw
+        for (int i = 0; i < SAMPLES.length; i++) sampleIds[i] = soundPool.load(ctx, SAMPLES[i], 1);
     }
 
-    /** Play immediately for a given note type */
-    public static void playForNote(int noteType) {
-        if (!loaded || soundPool == null) return;
-
-        int id;
-        switch (noteType) {
-            case 1:  id = sPractice; break;
-            case 2:  id = sScrap;    break;
-            case 3:  id = sOther;    break;
-            case 0:
-            default: id = sNormal;   break;
+    private static void play(int index, long tapNanos) {
+        if (soundPool == null) {
+            Log.w(TAG, "Chime requested after release");
+            return;
+        }
+        if (failed[index] && !failed[0]) index = 0; // the normal chime beats silence
+        if (failed[index]) {
+            Log.w(TAG, "No chime could be loaded for " + index);
+            return;
         }
-        soundPool.play(id, 1f, 1f, 1, 0, 1f);
+        if (!ready[index]) {
+            if (pending.size() == MAX_PENDING) Log.w(TAG, "Dropping stale chime " + pending.poll()[0]);
+            pending.add(new long[]{index, tapNanos});
+            return;
+        }
+        if (soundPool.play(sampleIds[index], 1f, 1f, 1, 0, 1f) == 0) {
+            Log.w(TAG, "Chime " + index + " did not play");
+            return;
+        }
+        TAP_TO_CHIME.recordNanos(SystemClock.elapsedRealtimeNanos() - tapNanos);
     }
 
-    /** Play after a delay (e.g., to avoid overlapping system NFC beep) */
-    public static void playForNoteDelayed(int noteType, long delayMs) {
-        new Handler(Looper.getMainLooper()).postDelayed(
-                () -> playForNote(noteType),
-                delayMs
-        );
+    /** Play queued chimes whose samples are now ready, in request order; the rest keep waiting. */
+    private static void replayPending() {
+        for (int n = pending.size(); n > 0; n--) {
+            long[] p = pending.poll();
+            int index = (int) p[0];
+            if (ready[index] || failed[index]) {
+                play(index, p[1]);
+            } else {
+                pending.add(p);
+            }
+        }
     }
 
-    // Convenience wrappers
-    public static void playNormal()   { playForNote(0); }
-    public static void playPractice() { playForNote(1); }
-    public static void playScrap()    { playForNote(2); }
-    public static void playOther()    { playForNote(3); }
-
-    public static void release() {
-        if (soundPool != null) {
-            soundPool.release();
-            soundPool = null;
-            loaded = false;
-        }
+    private static int indexOf(int noteType) {
+        return noteType >= 1 && noteType <= 3 ? noteType : 0;
     }
 }
@@ -0,0 +1,102 @@
+package com.IronMaple.batterytagreader;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link LogCursor} over rows of the live SQLite store.
+ *
+ * Delta rows are rebuilt against the last document this cursor produced for
+ * the same battery; only when that isn't the row's base (first row of a
+ * battery, or a filtered query) is the chain loaded from the store.
+ */
+final class SqlLogCursor extends LogCursor {
+
+    private static final String TAG = "SqlLogCursor";
+
+    private final Cursor cursor;
+    private final LogStore store;
+    private final int idxId, idxTime, idxType, idxSn, idxCc, idxNote, idxData, idxBase;
+
+    /** Last document handed out per serial, for rebuilding the next delta. */
+    private final Map<String, Snapshot> lastBySerial = new HashMap<>();
+    private Snapshot current;
+
+    private static final class Snapshot {
+        final long id;
+        final String json;
+
+        Snapshot(long id, String json) {
+            this.id = id;
+            this.json = json;
+        }
+    }
+
+    SqlLogCursor(Cursor cursor, LogStore store) {
+        this.cursor = cursor;
+        this.store = store;
+        idxId = cursor.getColumnIndexOrThrow(LogStore.COL_ID);
+        idxTime = cursor.getColumnIndexOrThrow(LogStore.COL_TIME);
+        idxType = cursor.getColumnIndexOrThrow(LogStore.COL_TYPE);
+        idxSn = cursor.getColumnIndexOrThrow(LogStore.COL_SN);
+        idxCc = cursor.getColumnIndexOrThrow(LogStore.COL_CC);
+        idxNote = cursor.getColumnIndexOrThrow(LogStore.COL_NOTE);
+        idxData = cursor.getColumnIndexOrThrow(LogStore.COL_DATA);
+        idxBase = cursor.getColumnIndexOrThrow(LogStore.COL_BASE);
+    }
+
+    @Override
+    public boolean moveToNext() {
+        current = null;
+        return cursor.moveToNext();
+    }
+
+    @Override public long getId()          { return cursor.getLong(idxId); }
+    @Override public long getTimeMillis()  { return cursor.getLong(idxTime); }
+    @Override public String getType()      { return cursor.getString(idxType); }
+    @Override public String getSerial()    { return cursor.getString(idxSn); }
+    @Override public int getCycleCount()   { return cursor.getInt(idxCc); }
+    @Override public int getNote()         { return cursor.getInt(idxNote); }
+
+    /** @return null if the entry is a delta whose base can't be rebuilt */
+    @Override
+    public String getDataJson() {
+        if (current != null) return current.json;
+
+        long id = getId();
+        long base = cursor.getLong(idxBase);
+        String json = cursor.getString(idxData);
+        if (base != 0) {
+            json = null;
+            try {
+                Snapshot previous = lastBySerial.get(getSerial());
+                JSONObject baseDoc = previous != null && previous.id == base
+                        ? new JSONObject(previous.json)
+                        : store.loadSnapshot(base);
+                if (baseDoc != null) json = LogDelta.apply(baseDoc, new JSONObject(cursor.getString(idxData))).toString();
+                else Log.w(TAG, "Missing base " + base + " for entry " + id);
+            } catch (Exception e) {
+                Log.w(TAG, "Cannot rebuild entry " + id, e);
+            }
+        }
+
+        current = new Snapshot(id, json);
+        if (json != null) {
+            lastBySerial.put(getSerial(), current);
+        } else {
+            // A delta text is not a document: never hand it out or rebuild later entries on it
+            lastBySerial.remove(getSerial());
+        }
+        return json;
+    }
+
+    @Override
+    public void close() {
+        cursor.close();
+    }
+}
@@ -0,0 +1,264 @@
+package com.IronMaple.batterytagreader;
+
+import android.nfc.NdefMessage;
+import android.nfc.NdefRecord;
+
+import org.json.JSONException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts the battery document to and from NDEF messages.
+ *
+ * Two encodings are understood on read:
+ * <ul>
+ *   <li>legacy: the JSON text in an RTD_TEXT record ("en");</li>
+ *   <li>compact: a binary record of MIME type {@link #MIME_TYPE}.</li>
+ * </ul>
+ *
+ * Compact layout (version 1), all integers unsigned LEB128 varints:
+ * <pre>
+ * version=1 | sn length | sn UTF-8 | fu | cc | n | entry count
+ * per entry: (i &lt;&lt; 1 | charger) | t delta | e | v
+ * </pre>
+ * Times are minutes since 2000-01-01 00:00 UTC plus one (0 = "0000000000").
+ * Entry times are zigzag deltas from the previous entry (the first from fu).
+ * A document with fields outside the layout, or values it can't carry exactly,
+ * is written as JSON instead.
+ */
+final class TagCodec {
+
+    static final String MIME_TYPE = "application/vnd.ironmaple.battery";
+    static final int VERSION = 1;
+
+    private static final long EPOCH_MINUTES = TagTime.parse("0001010000"); // 2000-01-01 00:00 UTC
+
+    private TagCodec() {}
+
+    // ------------------------------------------------------------------------
+    // NDEF messages
+    // ------------------------------------------------------------------------
+
+    /** Message for {@code doc}: compact when asked for and possible, JSON text otherwise. */
+    static NdefMessage toMessage(BatteryDoc doc, boolean compact) {
+        return toMessage(doc, compact, 0);
+    }
+
+    /** Same, with only the usage entries from index {@code from} on. */
+    private static NdefMessage toMessage(BatteryDoc doc, boolean compact, int from) {
+        if (compact) {
+            byte[] binary = encode(doc, from);
+            if (binary != null) {
+                return new NdefMessage(new NdefRecord[]{NdefRecord.createMime(MIME_TYPE, binary)});
+            }
+        }
+        return new NdefMessage(new NdefRecord[]{textRecord(doc.toJson(from))});
+    }
+
+    /**
+     * Message for a tag that holds {@code maxSize} bytes, keeping as many of the
+     * newest usage entries as fit. {@code doc}'s history is trimmed in place to match.
+     *
+     * @param maxSize {@code Ndef.getMaxSize()}; 0 or less means unknown (no trimming)
+     * @return the message, or null if it won't fit even without usage history
+     */
+    static NdefMessage fit(BatteryDoc doc, boolean compact, int maxSize) {
+        NdefMessage full = toMessage(doc, compact);
+        if (maxSize <= 0 || full.getByteArrayLength() <= maxSize) return full;
+
+        int count = doc.getUsageCount();
+        if (count == 0) return null;
+
+        // Size grows with the number of entries kept; binary search the largest count that fits
+        int lo = 0, hi = count - 1, keep = -1;
+        NdefMessage best = null;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            NdefMessage candidate = toMessage(doc, compact, count - mid);
+            if (candidate.getByteArrayLength() <= maxSize) {
+                best = candidate;
+                keep = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (best != null) doc.keepNewest(keep);
+        return best;
+    }
+
+    /**
+     * Battery document from a tag message, whichever encoding it uses.
+     * @return null if the message has no records
+     * @throws JSONException if the record isn't a battery document
+     */
+    static BatteryDoc readMessage(NdefMessage message) throws JSONException {
+        NdefRecord record = firstRecord(message);
+        if (record == null) return null;
+        if (isCompact(record)) return decode(record.getPayload());
+        return BatteryDoc.parse(textFromPayload(record.getPayload()));
+    }
+
+    /**
+     * Document JSON text from a tag message, whichever encoding it uses
+     * (for showing a tag that {@link #readMessage} rejected).
+     * @return null if the message has no records
+     */
+    static String fromMessage(NdefMessage message) throws JSONException {
+        NdefRecord record = firstRecord(message);
+        if (record == null) return null;
+        if (isCompact(record)) return decode(record.getPayload()).toJson();
+        return textFromPayload(record.getPayload());
+    }
+
+    private static NdefRecord firstRecord(NdefMessage message) {
+        if (message == null) return null;
+        NdefRecord[] records = message.getRecords();
+        return records.length == 0 ? null : records[0];
+    }
+
+    private static boolean isCompact(NdefRecord record) {
+        return record.getTnf() == NdefRecord.TNF_MIME_MEDIA
+                && MIME_TYPE.equals(new String(record.getType(), StandardCharsets.US_ASCII));
+    }
+
+    private static NdefRecord textRecord(String text) {
+        byte[] langBytes = "en".getBytes(StandardCharsets.US_ASCII);
+        byte[] textBytes = text.getBytes(StandardCharsets.UTF_8);
+        byte[] payload = new byte[1 + langBytes.length + textBytes.length];
+        payload[0] = (byte) langBytes.length;
+        System.arraycopy(langBytes, 0, payload, 1, langBytes.length);
+        System.arraycopy(textBytes, 0, payload, 1 + langBytes.length, textBytes.length);
+        return new NdefRecord(NdefRecord.TNF_WELL_KNOWN, NdefRecord.RTD_TEXT, new byte[0], payload);
+    }
+
+    static String textFromPayload(byte[] payload) {
+        try {
+            int langCodeLen = payload[0] & 0x3F;
+            return new String(payload, langCodeLen + 1, payload.length - langCodeLen - 1, StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            return "[Invalid Payload]";
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Compact binary
+    // ------------------------------------------------------------------------
+
+    /** @return the compact encoding, or null if {@code doc} has fields or values it can't carry */
+    static byte[] encode(BatteryDoc doc) {
+        return encode(doc, 0);
+    }
+
+    /** Same, with only the usage entries from index {@code from} on. */
+    private static byte[] encode(BatteryDoc doc, int from) {
+        if (doc.hasUnknownFields()) return null;
+        long fu = minutes(doc.getFirstUse());
+        int cc = doc.getCycleCount();
+        int n = doc.getNote();
+        int count = doc.getUsageCount() - from;
+        if (fu < 0 || cc < 0 || n < 0) return null;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + count * 6);
+        out.write(VERSION);
+        byte[] snBytes = doc.getSerial().getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, snBytes.length);
+        out.write(snBytes, 0, snBytes.length);
+        writeVarint(out, fu);
+        writeVarint(out, cc);
+        writeVarint(out, n);
+        writeVarint(out, count);
+
+        long previous = fu;
+        for (int k = from; k < doc.getUsageCount(); k++) {
+            int i = doc.getUsageId(k);
+            long t = minutes(doc.getUsageTime(k));
+            int d = doc.getUsageDevice(k);
+            int e = doc.getUsageEnergy(k);
+            int v = doc.getUsageVoltage(k);
+            if (i < 0 || t < 0 || e < 0 || v < 0
+                    || (d != BatteryDoc.DEVICE_ROBOT && d != BatteryDoc.DEVICE_CHARGER)) return null;
+
+            writeVarint(out, ((long) i << 1) | (d == BatteryDoc.DEVICE_CHARGER ? 1 : 0));
+            writeVarint(out, zigzag(t - previous));
+            writeVarint(out, e);
+            writeVarint(out, v);
+            previous = t;
+        }
+        return out.toByteArray();
+    }
+
+    /** Rebuild the document from its compact encoding. */
+    static BatteryDoc decode(byte[] data) throws JSONException {
+        int[] pos = {0};
+        if (data.length == 0 || (data[0] & 0xFF) != VERSION) {
+            throw new JSONException("Unsupported tag encoding version");
+        }
+        pos[0] = 1;
+
+        int snLength = (int) readVarint(data, pos);
+        if (snLength < 0 || pos[0] + snLength > data.length) throw new JSONException("Truncated tag data");
+        String sn = new String(data, pos[0], snLength, StandardCharsets.UTF_8);
+        pos[0] += snLength;
+
+        long fu = readVarint(data, pos);
+        BatteryDoc doc = new BatteryDoc(sn, formatMinutes(fu));
+        doc.setCycleCount((int) readVarint(data, pos));
+        doc.setNote((int) readVarint(data, pos));
+
+        long count = readVarint(data, pos);
+        long previous = fu;
+        for (long k = 0; k < count; k++) {
+            long head = readVarint(data, pos);
+            long t = previous + unzigzag(readVarint(data, pos));
+            int e = (int) readVarint(data, pos);
+            int v = (int) readVarint(data, pos);
+            doc.addUsage((int) (head >>> 1), formatMinutes(t),
+                    (head & 1) != 0 ? BatteryDoc.DEVICE_CHARGER : BatteryDoc.DEVICE_ROBOT, e, v);
+            previous = t;
+        }
+        return doc;
+    }
+
+    /** Encoded "yyMMddHHmm" time, or -1 if the text wouldn't round-trip exactly. */
+    private static long minutes(String text) {
+        if (text.equals(TagTime.ZERO)) return 0;
+        long minutes = TagTime.parse(text); // strict, so valid text always formats back the same
+        return minutes == TagTime.NONE ? -1 : minutes - EPOCH_MINUTES + 1;
+    }
+
+    private static String formatMinutes(long encoded) {
+        if (encoded <= 0) return TagTime.ZERO;
+        return TagTime.format(EPOCH_MINUTES + encoded - 1);
+    }
+
+    // --- Varints ---
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(byte[] data, int[] pos) throws JSONException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (pos[0] >= data.length) throw new JSONException("Truncated tag data");
+            int b = data[pos[0]++] & 0xFF;
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return result;
+        }
+        throw new JSONException("Malformed varint in tag data");
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,180 @@
+package com.IronMaple.batterytagreader;
+
+import android.nfc.NdefMessage;
+import android.nfc.Tag;
+import android.nfc.tech.Ndef;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads the battery document of a tapped tag on a dedicated I/O thread.
+ *
+ * Only the newest tap matters: starting a read cancels the one in flight,
+ * and a read that hasn't finished after {@link #TIMEOUT_MS} is aborted by
+ * closing the tag connection (which unblocks pending I/O with an IOException).
+ * Results are delivered on the main thread, and only for the current read.
+ */
+final class TagReader {
+
+    private static final String TAG = "TagReader";
+
+    /** Longest we wait for connect + read before giving up on a tag. */
+    static final long TIMEOUT_MS = 3000;
+
+    /** Main-thread callbacks for one read. */
+    interface Callback {
+        /**
+         * @param raw tag text, only set when {@code doc} is null
+         * @param doc parsed document, or null if the tag isn't a battery document
+         */
+        void onRead(String raw, BatteryDoc doc, long tapNanos);
+        void onError(String message);
+    }
+
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "nfc-io");
+        t.setDaemon(true);
+        return t;
+    });
+    // close() must come from another thread than the one blocked in I/O
+    private final ExecutorService canceller = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "nfc-cancel");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Handler main = new Handler(Looper.getMainLooper());
+
+    // Main thread only
+    private int generation = 0;
+    private Ndef inFlight;
+
+    // --- Metrics (shown in DiagnosticsActivity) ---
+    private static final LatencyHistogram CONNECT = MetricsRegistry.histogram("tag.connect");
+    private static final LatencyHistogram READ = MetricsRegistry.histogram("tag.read");
+    private static final LatencyHistogram PARSE = MetricsRegistry.histogram("tag.parse");
+    private static final LatencyHistogram TAP_TO_DISPLAY = MetricsRegistry.histogram("tap.to_display");
+    private static final AtomicLong READ_TIMEOUTS = MetricsRegistry.counter("tag.read_timeouts");
+
+    /**
+     * Start reading {@code tag}; call on the main thread.
+     *
+     * @param tapNanos when the tag was detected ({@code SystemClock.elapsedRealtimeNanos()})
+     */
+    void read(Tag tag, long tapNanos, Callback callback) {
+        cancel();
+        final int gen = generation;
+
+        Ndef ndef = Ndef.get(tag);
+        if (ndef == null) {
+            callback.onError("Tag is not NDEF formatted.");
+            return;
+        }
+        inFlight = ndef;
+
+        Runnable timeout = () -> {
+            if (gen != generation) return;
+            READ_TIMEOUTS.incrementAndGet();
+            cancel();
+            callback.onError("Tag read timed out. Hold the battery still and try again.");
+        };
+        main.postDelayed(timeout, TIMEOUT_MS);
+
+        io.execute(() -> {
+            NdefMessage message = null;
+            String error = null;
+            try {
+                long start = System.nanoTime();
+                ndef.connect();
+                CONNECT.recordSince(start);
+                start = System.nanoTime();
+                message = ndef.getNdefMessage();
+                READ.recordSince(start);
+            } catch (Exception e) {
+                error = "Error reading NDEF: " + e.getMessage();
+            } finally {
+                closeQuietly(ndef);
+            }
+
+            // Parse here too, so the main thread only has to render
+            BatteryDoc doc = null;
+            String raw = null;
+            if (message != null) {
+                long start = System.nanoTime();
+                try {
+                    doc = TagCodec.readMessage(message);
+                } catch (Exception e) {
+                    raw = rawText(message);
+                }
+                PARSE.recordSince(start);
+            }
+
+            final String text = doc != null ? null : raw;
+            final BatteryDoc parsed = doc;
+            final String failure = error;
+            main.post(() -> {
+                if (gen != generation) return; // superseded or timed out
+                main.removeCallbacks(timeout);
+                inFlight = null;
+                if (failure != null) callback.onError(failure);
+                else if (parsed == null && text == null) callback.onError("NDEF tag has no records.");
+                else callback.onRead(text, parsed, tapNanos);
+            });
+        });
+    }
+
+    /** Drop the read in flight, if any; its result will never be delivered. */
+    void cancel() {
+        generation++;
+        main.removeCallbacksAndMessages(null);
+        if (inFlight != null) {
+            Ndef ndef = inFlight;
+            inFlight = null;
+            canceller.execute(() -> closeQuietly(ndef));
+        }
+    }
+
+    /** Run other tag I/O (e.g. a {@link TagTransaction}) on the NFC thread, after cancelling any read. */
+    void execute(Runnable task) {
+        cancel();
+        io.execute(task);
+    }
+
+    void shutdown() {
+        cancel();
+        io.shutdown();
+        canceller.shutdown();
+    }
+
+    /** Text of a record that isn't a battery document, for the error message. */
+    private static String rawText(NdefMessage message) {
+        try {
+            return TagCodec.fromMessage(message);
+        } catch (Exception e) {
+            return "[Invalid Payload]";
+        }
+    }
+
+    private static void closeQuietly(Ndef ndef) {
+        try {
+            ndef.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Closing tag failed", e);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Latency
+    // ------------------------------------------------------------------------
+
+    /** Record tap-to-display time once the result is on screen. */
+    static void recordDisplayed(long tapNanos) {
+        TAP_TO_DISPLAY.recordNanos(SystemClock.elapsedRealtimeNanos() - tapNanos);
+    }
+}
@@ -0,0 +1,116 @@
+package com.IronMaple.batterytagreader;
+
+import android.nfc.NdefMessage;
+import android.nfc.Tag;
+import android.nfc.tech.Ndef;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Read-modify-write of the battery document in a single NFC session.
+ *
+ * The tag is re-read inside the session and checked against the snapshot the
+ * user was looking at (same serial, usage history not older). If the tag has
+ * newer usage entries (e.g. the robot logged a session since our scan), the
+ * mutation is applied to the tag's current document instead of the snapshot,
+ * so nothing on the tag is lost. The result can be read back and compared.
+ *
+ * Blocking; run it on the NFC I/O thread ({@link TagReader#execute}).
+ */
+final class TagTransaction {
+
+    /** Change to make to the document; applied to whatever is on the tag right now. */
+    interface Mutation {
+        /** @return false to leave the tag as it is */
+        boolean apply(BatteryDoc doc);
+    }
+
+    /** Outcome of {@link #run}. Exactly one of {@code doc} and {@code error} is set. */
+    static final class Result {
+        final BatteryDoc doc;
+        final int newerEntries;  // usage entries found on the tag but not in the snapshot
+        final boolean written;   // false if the mutation declined to change anything
+        final String error;
+
+        private Result(BatteryDoc doc, int newerEntries, boolean written, String error) {
+            this.doc = doc;
+            this.newerEntries = newerEntries;
+            this.written = written;
+            this.error = error;
+        }
+
+        static Result failed(String error) {
+            return new Result(null, 0, false, error);
+        }
+    }
+
+    private TagTransaction() {}
+
+    /**
+     * @param snapshot document the mutation was chosen against (not modified), or
+     *                 null to apply to whatever battery is on the reader (station mode)
+     * @param verify   read the tag back after writing and compare
+     */
+    static Result run(Tag tag, BatteryDoc snapshot, Mutation mutation, boolean compact, boolean verify) {
+        Ndef ndef = Ndef.get(tag);
+        if (ndef == null) return Result.failed("Tag is not NDEF formatted.");
+        if (!ndef.isWritable()) return Result.failed("Tag not writable.");
+
+        try {
+            long start = System.nanoTime();
+            ndef.connect();
+            MetricsRegistry.histogram("tag.connect").recordSince(start);
+
+            // 1. Re-read inside this session
+            start = System.nanoTime();
+            NdefMessage onTag = ndef.getNdefMessage();
+            MetricsRegistry.histogram("tag.read").recordSince(start);
+            start = System.nanoTime();
+            BatteryDoc current = TagCodec.readMessage(onTag);
+            MetricsRegistry.histogram("tag.parse").recordSince(start);
+            if (current == null) return Result.failed("NDEF tag has no records.");
+
+            // 2. Still the battery and history we mutated?
+            int newer = 0;
+            if (snapshot != null) {
+                String sn = snapshot.getSerial();
+                if (!sn.equals(current.getSerial())) {
+                    return Result.failed("A different battery (" + current.getSerial()
+                            + ") is on the reader. Scan " + sn + " again.");
+                }
+                int snapshotMax = snapshot.maxUsageId();
+                if (current.maxUsageId() < snapshotMax) {
+                    return Result.failed("The tag has older data than the last scan. Scan it again before updating.");
+                }
+                newer = current.countUsageAfter(snapshotMax);
+            }
+
+            // 3. Apply to the tag's current document, fit and write
+            if (!mutation.apply(current)) return new Result(current, newer, false, null);
+            NdefMessage message = TagCodec.fit(current, compact, ndef.getMaxSize());
+            if (message == null) {
+                return Result.failed("Data too large for this tag (" + ndef.getMaxSize() + " bytes).");
+            }
+            start = System.nanoTime();
+            ndef.writeNdefMessage(message);
+            MetricsRegistry.histogram("tag.write").recordSince(start);
+
+            // 4. Optional read-back
+            if (verify) {
+                NdefMessage written = ndef.getNdefMessage();
+                if (written == null || !Arrays.equals(written.toByteArray(), message.toByteArray())) {
+                    return Result.failed("Write could not be verified. Scan the tag again.");
+                }
+            }
+            return new Result(current, newer, true, null);
+        } catch (Exception e) {
+            MetricsRegistry.counter("tag.write_errors").incrementAndGet();
+            return Result.failed("Write error: " + e.getMessage());
+        } finally {
+            try {
+                ndef.close();
+            } catch (IOException ignored) {}
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.IronMaple.batterytagreader;
+
+import android.os.SystemClock;
+
+import java.util.ArrayDeque;
+
+/** Counts events and how many happened in the last minute (station mode). Main thread only. */
+final class ThroughputCounter {
+
+    private static final long WINDOW_MS = 60_000L;
+
+    private final ArrayDeque<Long> recent = new ArrayDeque<>();
+    private int total = 0;
+
+    void record() {
+        total++;
+        recent.addLast(SystemClock.elapsedRealtime());
+        trim();
+    }
+
+    void reset() {
+        total = 0;
+        recent.clear();
+    }
+
+    int getTotal() {
+        return total;
+    }
+
+    /** Events in the last 60 seconds. */
+    int getPerMinute() {
+        trim();
+        return recent.size();
+    }
+
+    private void trim() {
+        long cutoff = SystemClock.elapsedRealtime() - WINDOW_MS;
+        while (!recent.isEmpty() && recent.peekFirst() < cutoff) recent.removeFirst();
+    }
+}
@@ -0,0 +1,101 @@
+package com.IronMaple.batterytagreader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Deterministic benchmark data: the same seed gives the same batteries and
+ * log on every run, so results are comparable between builds.
+ */
+final class BenchData {
+
+    static final long SEED = 0x5EED_1234L;
+
+    /** Usage entries an NTAG216 holds in the JSON encoding, roughly. */
+    static final int TAG_CAPACITY = 30;
+
+    /** 2025-01-04 12:00 UTC; all generated times are relative to this. */
+    static final long START_MINUTES = TagTime.parse("2501041200");
+
+    /** One row of the scan log. */
+    static final class LogEntry {
+        final long timeMillis;
+        final String type;
+        final String sn;
+        final int cc;
+        final int note;
+        final String json;
+
+        LogEntry(long timeMillis, String type, String sn, int cc, int note, String json) {
+            this.timeMillis = timeMillis;
+            this.type = type;
+            this.sn = sn;
+            this.cc = cc;
+            this.note = note;
+            this.json = json;
+        }
+    }
+
+    private BenchData() {}
+
+    static String serial(int n) {
+        return String.format(Locale.US, "%04d-%03d", 1000 + n % 9000, n % 1000);
+    }
+
+    /** A battery with {@code entries} usage entries, alternating robot use and charges at random. */
+    static BatteryDoc battery(Random random, String sn, int entries) {
+        long minute = START_MINUTES - (long) entries * 2 * 1440;
+        BatteryDoc doc = new BatteryDoc(sn, TagTime.format(minute));
+        int charges = 0;
+        for (int k = 0; k < entries; k++) {
+            minute += 60 + random.nextInt(2 * 1440);
+            charges += addEntry(random, doc, TagTime.format(minute));
+        }
+        doc.setCycleCount(charges);
+        doc.setNote(random.nextInt(10) == 0 ? 1 : 0);
+        return doc;
+    }
+
+    /**
+     * A scan log of {@code entries} rows over {@code batteries} batteries: mostly
+     * reads, with robot sessions and charges appended as they would be at an event.
+     */
+    static List<LogEntry> log(int entries, int batteries) {
+        Random random = new Random(SEED);
+        BatteryDoc[] fleet = new BatteryDoc[batteries];
+        for (int b = 0; b < batteries; b++) {
+            fleet[b] = battery(random, serial(b), random.nextInt(TAG_CAPACITY / 2));
+        }
+
+        List<LogEntry> log = new ArrayList<>(entries);
+        long millis = TagTime.toMillis(START_MINUTES);
+        for (int i = 0; i < entries; i++) {
+            millis += 30_000 + random.nextInt(600_000);
+            BatteryDoc doc = fleet[random.nextInt(batteries)];
+            String type = "read";
+            int roll = random.nextInt(10);
+            if (roll < 4) {
+                int charged = addEntry(random, doc, TagTime.format(millis / 60_000));
+                doc.setCycleCount(doc.getCycleCount() + charged);
+                doc.keepNewest(TAG_CAPACITY);
+                type = "write";
+            }
+            log.add(new LogEntry(millis, type, doc.getSerial(), doc.getCycleCount(), doc.getNote(), doc.toJson()));
+        }
+        return log;
+    }
+
+    /** Append a robot or charger entry; returns 1 for a charge. */
+    private static int addEntry(Random random, BatteryDoc doc, String time) {
+        boolean charger = doc.getLastDevice() != BatteryDoc.DEVICE_CHARGER && random.nextBoolean();
+        if (charger) {
+            doc.addUsage(doc.maxUsageId() + 1, time, BatteryDoc.DEVICE_CHARGER, 0, 0);
+            return 1;
+        }
+        doc.addUsage(doc.maxUsageId() + 1, time, BatteryDoc.DEVICE_ROBOT,
+                50 + random.nextInt(450), 11 + random.nextInt(3));
+        return 0;
+    }
+}
@@ -0,0 +1,110 @@
+package com.IronMaple.batterytagreader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSV, NDJSON and JSON (compact and indented) export formatting
+ * ({@link LogExportFormat}) into a discarding writer, so only formatting is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ExportBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int entries;
+
+    private List<BenchData.LogEntry> log;
+
+    @Setup
+    public void setup() {
+        log = BenchData.log(entries, 40);
+    }
+
+    @Benchmark
+    public long csv() throws IOException {
+        CountingWriter out = new CountingWriter();
+        out.write(LogExportFormat.CSV_HEADER);
+        StringBuilder prefix = new StringBuilder();
+        for (BenchData.LogEntry e : log) {
+            LogExportFormat.writeCsvRows(out, prefix, LogTimeFormatter.formatLocal(e.timeMillis),
+                    e.type, e.sn, e.cc, e.note, e.json);
+        }
+        return out.count;
+    }
+
+    @Benchmark
+    public long ndjson() throws IOException {
+        CountingWriter out = new CountingWriter();
+        for (BenchData.LogEntry e : log) {
+            LogExportFormat.writeNdjsonLine(out, LogTimeFormatter.formatUtc(e.timeMillis), e.type, e.json);
+        }
+        return out.count;
+    }
+
+    @Benchmark
+    public long json() throws IOException {
+        return json(false);
+    }
+
+    @Benchmark
+    public long jsonIndented() throws IOException {
+        return json(true);
+    }
+
+    private long json(boolean indent) throws IOException {
+        CountingWriter out = new CountingWriter();
+        StringBuilder scratch = new StringBuilder();
+        boolean first = true;
+        for (BenchData.LogEntry e : log) {
+            LogExportFormat.writeJsonElement(out, scratch, first, indent,
+                    LogTimeFormatter.formatUtc(e.timeMillis), e.type, e.json);
+            first = false;
+        }
+        LogExportFormat.endJsonArray(out, first, indent);
+        return out.count;
+    }
+
+    /** Discards output; the count keeps the JIT from skipping the work. */
+    private static final class CountingWriter extends Writer {
+        long count;
+
+        @Override
+        public void write(char[] buf, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public Writer append(CharSequence csq) {
+            count += csq.length();
+            return this;
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,84 @@
+package com.IronMaple.batterytagreader;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Growing the scan log to 1k / 10k / 100k entries, without SQLite: the per-entry
+ * work LogHelper.log and the log writer do before the insert (serialize, then
+ * {@link LogDeltaEncoder} against the battery's previous entry), and rebuilding
+ * every document from the stored chain the way log cursors do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LogAppendBenchmark {
+
+    private static final int BATTERIES = 40;
+
+    @Param({"1000", "10000", "100000"})
+    public int entries;
+
+    private List<BenchData.LogEntry> log;
+    private List<String> stored;        // keyframes and deltas, as appendDeltaEncoded() produces them
+    private boolean[] keyframe;
+
+    @Setup
+    public void setup() throws Exception {
+        log = BenchData.log(entries, BATTERIES);
+        stored = new ArrayList<>(entries);
+        keyframe = new boolean[entries];
+        encode(stored, keyframe);
+    }
+
+    @Benchmark
+    public long appendDeltaEncoded() throws Exception {
+        List<String> out = new ArrayList<>(entries);
+        encode(out, new boolean[entries]);
+        long bytes = 0;
+        for (String data : out) bytes += data.length();
+        return bytes;
+    }
+
+    @Benchmark
+    public long replay() throws Exception {
+        Map<String, JSONObject> last = new HashMap<>();
+        long bytes = 0;
+        for (int i = 0; i < entries; i++) {
+            String sn = log.get(i).sn;
+            JSONObject doc = keyframe[i]
+                    ? new JSONObject(stored.get(i))
+                    : LogDelta.apply(last.get(sn), new JSONObject(stored.get(i)));
+            last.put(sn, doc);
+            bytes += doc.toString().length();
+        }
+        return bytes;
+    }
+
+    private void encode(List<String> out, boolean[] isKeyframe) throws Exception {
+        LogDeltaEncoder<Integer> encoder = new LogDeltaEncoder<>(BATTERIES);
+        for (int i = 0; i < entries; i++) {
+            BenchData.LogEntry e = log.get(i);
+            LogDeltaEncoder.Encoded<Integer> encoded = encoder.encode(e.sn, new JSONObject(e.json), i);
+            isKeyframe[i] = encoded.isKeyframe();
+            out.add(encoded.isKeyframe() ? e.json : encoded.delta.toString());
+        }
+    }
+}
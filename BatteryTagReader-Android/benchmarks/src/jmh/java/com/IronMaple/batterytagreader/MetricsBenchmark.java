@@ -0,0 +1,33 @@
+package com.IronMaple.batterytagreader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/** Cost of recording a timing ({@link LatencyHistogram}), alone and contended. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricsBenchmark {
+
+    private final LatencyHistogram histogram = MetricsRegistry.histogram("bench.record");
+    private long value = 1;
+
+    @Benchmark
+    public void record() {
+        value = value * 6364136223846793005L + 1442695040888963407L;
+        histogram.recordMicros((value >>> 44) & 0xFFFFF);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended() {
+        histogram.recordMicros(System.nanoTime() & 0xFFFF);
+    }
+}
@@ -0,0 +1,51 @@
+package com.IronMaple.batterytagreader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Printable battery report ({@link BatteryReportHtmlGenerator}). */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReportBenchmark {
+
+    @Param({"0", "30", "120"})
+    public int entries;
+
+    private BatteryDoc doc;
+    private final CharArrayWriter out = new CharArrayWriter(16 * 1024);
+
+    @Setup
+    public void setup() {
+        doc = BenchData.battery(new Random(BenchData.SEED), "1042-042", entries);
+    }
+
+    @Benchmark
+    public String generateHtml() {
+        return BatteryReportHtmlGenerator.generateHtml(doc);
+    }
+
+    @Benchmark
+    public int writeHtml() throws IOException {
+        out.reset();
+        BatteryReportHtmlGenerator.writeHtml(doc, out);
+        return out.size();
+    }
+
+    /** Report cache key. */
+    @Benchmark
+    public long fingerprint() {
+        return doc.fingerprint();
+    }
+}
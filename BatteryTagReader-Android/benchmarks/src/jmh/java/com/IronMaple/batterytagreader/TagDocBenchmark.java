@@ -0,0 +1,79 @@
+package com.IronMaple.batterytagreader;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tag document parse, serialize and newest-first sort: {@link BatteryDoc}
+ * against the org.json tree the app used before. (Desktop org.json is not
+ * Android's implementation, so the baseline is indicative only.)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TagDocBenchmark {
+
+    /** Usage entries on the tag: new battery, a season on a full tag, an oversized import. */
+    @Param({"0", "30", "120"})
+    public int entries;
+
+    private String json;
+    private BatteryDoc doc;
+    private JSONObject tree;
+
+    @Setup
+    public void setup() throws Exception {
+        doc = BenchData.battery(new Random(BenchData.SEED), "1042-042", entries);
+        json = doc.toJson();
+        tree = new JSONObject(json);
+    }
+
+    @Benchmark
+    public BatteryDoc parse() throws Exception {
+        return BatteryDoc.parse(json);
+    }
+
+    @Benchmark
+    public String serialize() {
+        doc.setNote(doc.getNote()); // drop the cached text
+        return doc.toJson();
+    }
+
+    @Benchmark
+    public int[] sortNewestFirst() {
+        return doc.newestFirst();
+    }
+
+    @Benchmark
+    public JSONObject parseOrgJson() throws Exception {
+        return new JSONObject(json);
+    }
+
+    @Benchmark
+    public String serializeOrgJson() {
+        return tree.toString();
+    }
+
+    /** The old display path: copy the usage array into a list and sort by id. */
+    @Benchmark
+    public List<JSONObject> sortOrgJson() throws Exception {
+        JSONArray usage = tree.getJSONArray("u");
+        List<JSONObject> rows = new ArrayList<>(usage.length());
+        for (int i = 0; i < usage.length(); i++) rows.add(usage.getJSONObject(i));
+        rows.sort((a, b) -> Integer.compare(b.optInt("i", 0), a.optInt("i", 0)));
+        return rows;
+    }
+}
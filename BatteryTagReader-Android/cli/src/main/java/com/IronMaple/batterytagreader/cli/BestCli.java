@@ -0,0 +1,192 @@
+package com.IronMaple.batterytagreader.cli;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Command-line tools for battery and log exports collected from several phones:
+ * <pre>
+ * best validate [-j N] PATH...
+ * best convert  --to csv|ndjson|json -o DIR [-j N] PATH...
+ * best merge    -o DIR [-j N] PATH...
+ * best report   -o DIR [-j N] PATH...
+ * </pre>
+ * Directories are searched recursively for *.BEST.json, *.json and *.ndjson
+ * exports. Files are processed in parallel on a fork/join pool ({@code -j},
+ * default: all cores); output is the same whatever the thread count.
+ *
+ * Exit status: 0 ok, 1 some inputs had problems, 2 usage error.
+ */
+public final class BestCli {
+
+    static final int EXIT_OK = 0;
+    static final int EXIT_PROBLEMS = 1;
+    static final int EXIT_USAGE = 2;
+
+    private static final List<String> COMMANDS = Arrays.asList("validate", "convert", "merge", "report");
+
+    private static final String USAGE = String.join("\n",
+            "usage: best validate [-j N] PATH...",
+            "       best convert  --to csv|ndjson|json -o DIR [-j N] PATH...",
+            "       best merge    -o DIR [-j N] PATH...",
+            "       best report   -o DIR [-j N] PATH...",
+            "",
+            "  validate  check every battery document and log entry against the tag schema",
+            "  convert   rewrite each export in another format (battery files: json = .BEST.json)",
+            "  merge     one .BEST.json per battery with the usage history of all inputs,",
+            "            plus merged.ndjson with every log entry in time order, duplicates removed",
+            "  report    merge, then write an HTML report per battery and an index.html");
+
+    /** Everything a command needs: parsed options, the inputs and the pool. */
+    static final class Job {
+        final List<InputFile> inputs;
+        final Path outDir;
+        final String format;
+        final ForkJoinPool pool;
+        final PrintStream out;
+        private final PrintStream err;
+        private final Map<Path, List<String>> problems = new ConcurrentHashMap<>();
+
+        Job(List<InputFile> inputs, Path outDir, String format, ForkJoinPool pool,
+            PrintStream out, PrintStream err) {
+            this.inputs = inputs;
+            this.outDir = outDir;
+            this.format = format;
+            this.pool = pool;
+            this.out = out;
+            this.err = err;
+        }
+
+        /** Record the problems found in one file (safe from any worker). */
+        void report(InputFile file, List<String> found) {
+            if (!found.isEmpty()) problems.put(file.path, found);
+        }
+
+        /** Print problems in input order, then the summary; returns the exit status. */
+        int finish(String summary) {
+            int count = 0;
+            for (InputFile file : inputs) {
+                List<String> found = problems.get(file.path);
+                if (found == null) continue;
+                for (String problem : found) err.println(file + ": " + problem);
+                count += found.size();
+            }
+            out.println(summary + (count == 0 ? "" : ", " + count + " problem(s)"));
+            return count == 0 ? EXIT_OK : EXIT_PROBLEMS;
+        }
+    }
+
+    private BestCli() {}
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        if (args.length == 0 || args[0].equals("-h") || args[0].equals("--help")) {
+            out.println(USAGE);
+            return args.length == 0 ? EXIT_USAGE : EXIT_OK;
+        }
+
+        String command = args[0];
+        Path outDir = null;
+        String format = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Path> paths = new ArrayList<>();
+        try {
+            if (!COMMANDS.contains(command)) throw new IllegalArgumentException("unknown command " + command);
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-o":
+                    case "--out":
+                        outDir = Paths.get(value(args, ++i));
+                        break;
+                    case "--to":
+                        format = value(args, ++i);
+                        break;
+                    case "-j":
+                    case "--threads":
+                        threads = Integer.parseInt(value(args, ++i));
+                        break;
+                    default:
+                        if (args[i].startsWith("-")) throw new IllegalArgumentException("unknown option " + args[i]);
+                        paths.add(Paths.get(args[i]));
+                }
+            }
+            if (paths.isEmpty()) throw new IllegalArgumentException("no input paths");
+            if (threads < 1) throw new IllegalArgumentException("-j must be at least 1");
+            if (!command.equals("validate") && outDir == null) {
+                throw new IllegalArgumentException(command + " needs -o DIR");
+            }
+            if (command.equals("convert") && !("csv".equals(format) || "ndjson".equals(format)
+                    || "json".equals(format))) {
+                throw new IllegalArgumentException("convert needs --to csv, ndjson or json");
+            }
+        } catch (IllegalArgumentException e) {
+            err.println("best: " + e.getMessage());
+            err.println(USAGE);
+            return EXIT_USAGE;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<InputFile> inputs = InputFile.collect(paths);
+            if (outDir != null) Files.createDirectories(outDir);
+            Job job = new Job(inputs, outDir, format, pool, out, err);
+
+            switch (command) {
+                case "validate": return ValidateCommand.run(job);
+                case "convert":  return ConvertCommand.run(job);
+                case "merge":    return MergeCommand.run(job);
+                case "report":   return ReportCommand.run(job);
+                default:   throw new IllegalStateException(command);
+            }
+        } catch (IOException e) {
+            err.println("best: " + e.getMessage());
+            return EXIT_PROBLEMS;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) throw new IllegalArgumentException(args[i - 1] + " needs a value");
+        return args[i];
+    }
+
+    // ------------------------------------------------------------------------
+    // Output names
+    // ------------------------------------------------------------------------
+
+    /** {@code base} made safe as a file name on any OS. */
+    static String safeName(String base) {
+        StringBuilder sb = new StringBuilder(base.length());
+        for (int i = 0; i < base.length(); i++) {
+            char c = base.charAt(i);
+            boolean ok = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.';
+            sb.append(ok ? c : '_');
+        }
+        return sb.length() == 0 ? "unknown" : sb.toString();
+    }
+
+    /** "{base}{ext}", or "{base}_1{ext}", "{base}_2{ext}"... if already taken. Call in input order. */
+    static String uniqueName(String base, String ext, Set<String> taken) {
+        String name = base + ext;
+        for (int counter = 1; !taken.add(name.toLowerCase(Locale.ROOT)); counter++) {
+            name = base + "_" + counter + ext;
+        }
+        return name;
+    }
+}
@@ -0,0 +1,144 @@
+package com.IronMaple.batterytagreader.cli;
+
+import com.IronMaple.batterytagreader.BatteryDoc;
+import com.IronMaple.batterytagreader.BestFile;
+import com.IronMaple.batterytagreader.LogExportFormat;
+import com.IronMaple.batterytagreader.LogTimeFormatter;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@code best convert --to csv|ndjson|json}: rewrite each export in another
+ * format, in the same layouts the app exports. CSV times are local like the
+ * app's CSV export; a battery file as "json" is a normalized .BEST.json.
+ */
+final class ConvertCommand {
+
+    private ConvertCommand() {}
+
+    static int run(BestCli.Job job) {
+        // Output names are fixed up front, in input order, so equal base names
+        // from different directories get the same _1, _2 suffixes on every run
+        Map<InputFile, Path> targets = new HashMap<>();
+        Set<String> taken = new HashSet<>();
+        for (InputFile file : job.inputs) {
+            String name = BestCli.uniqueName(file.baseName(), extension(job.format, file.kind), taken);
+            targets.put(file, job.outDir.resolve(name));
+        }
+
+        int written = ForkJoinMap.run(job.pool, job.inputs, 0,
+                file -> convert(job, file, targets.get(file)), Integer::sum);
+        return job.finish(String.format(Locale.US, "%d of %d file(s) converted to %s in %s",
+                written, job.inputs.size(), job.format, job.outDir));
+    }
+
+    private static String extension(String format, InputFile.Kind kind) {
+        switch (format) {
+            case "csv":    return ".csv";
+            case "ndjson": return ".ndjson";
+            default:       return kind == InputFile.Kind.BATTERY ? BestFile.SUFFIX : ".json";
+        }
+    }
+
+    /** 1 if {@code file} was written to {@code target}, else 0. */
+    private static int convert(BestCli.Job job, InputFile file, Path target) {
+        List<String> problems = new ArrayList<>();
+        if (target.toAbsolutePath().normalize().equals(file.path.toAbsolutePath().normalize())) {
+            problems.add("not converted, would overwrite the input");
+            job.report(file, problems);
+            return 0;
+        }
+
+        int written = 0;
+        try (Writer out = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            if (file.kind == InputFile.Kind.BATTERY) {
+                writeBattery(out, job.format, file.readDoc());
+            } else {
+                writeLog(out, job.format, LogFile.read(file.path, problems));
+            }
+            written = 1;
+        } catch (IOException | JSONException e) {
+            problems.add(e.getMessage());
+            deleteQuietly(target);
+        }
+        job.report(file, problems);
+        return written;
+    }
+
+    private static void writeBattery(Writer out, String format, BatteryDoc doc) throws IOException {
+        switch (format) {
+            case "csv":
+                out.write(LogExportFormat.CSV_HEADER);
+                out.write("\r\n");
+                LogExportFormat.writeCsvRows(out, new StringBuilder(), "", "export", doc.getSerial(),
+                        doc.getCycleCount(), doc.getNote(), doc.toJson());
+                break;
+            case "ndjson":
+                out.write(doc.toJson());
+                out.write('\n');
+                break;
+            default:
+                out.write(BestFile.toText(doc));
+        }
+    }
+
+    private static void writeLog(Writer out, String format, List<LogFile.Entry> entries) throws IOException {
+        switch (format) {
+            case "csv": {
+                out.write(LogExportFormat.CSV_HEADER);
+                out.write("\r\n");
+                StringBuilder prefix = new StringBuilder();
+                for (LogFile.Entry entry : entries) {
+                    long millis = entry.timeMillis();
+                    String local = millis == Long.MIN_VALUE ? entry.time : LogTimeFormatter.formatLocal(millis);
+                    BatteryDoc doc = entry.doc != null ? entry.doc : new BatteryDoc();
+                    LogExportFormat.writeCsvRows(out, prefix, local, entry.type, doc.getSerial(),
+                            doc.getCycleCount(), doc.getNote(), doc.toJson());
+                }
+                break;
+            }
+            case "ndjson":
+                for (LogFile.Entry entry : entries) {
+                    LogExportFormat.writeNdjsonLine(out, entry.time, entry.type, dataJson(entry));
+                }
+                break;
+            default: {
+                // Same layout as the app's indented JSON export
+                StringBuilder array = new StringBuilder().append('[');
+                for (LogFile.Entry entry : entries) {
+                    if (array.length() > 1) array.append(',');
+                    array.append("{\"time\":").append(JSONObject.quote(entry.time))
+                            .append(",\"type\":").append(JSONObject.quote(entry.type))
+                            .append(",\"data\":").append(dataJson(entry)).append('}');
+                }
+                out.write(BestFile.indent(array.append(']').toString()));
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // best effort; the problem is already reported
+        }
+    }
+
+    private static String dataJson(LogFile.Entry entry) {
+        return entry.doc == null ? "null" : entry.doc.toJson();
+    }
+}
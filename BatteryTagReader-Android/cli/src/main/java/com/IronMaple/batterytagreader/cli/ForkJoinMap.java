@@ -0,0 +1,49 @@
+package com.IronMaple.batterytagreader.cli;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Fork/join map-reduce over a list: the list is halved down to single items,
+ * each item is mapped on a pool worker, and results are combined pairwise in
+ * list order, so the outcome doesn't depend on scheduling.
+ */
+final class ForkJoinMap<T, R> extends RecursiveTask<R> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<T> items;
+    private final int from;
+    private final int to;
+    private final Function<T, R> map;
+    private final BinaryOperator<R> combine;
+
+    private ForkJoinMap(List<T> items, int from, int to, Function<T, R> map, BinaryOperator<R> combine) {
+        this.items = items;
+        this.from = from;
+        this.to = to;
+        this.map = map;
+        this.combine = combine;
+    }
+
+    /** {@code empty} for an empty list, else the combined results of {@code map} over every item. */
+    static <T, R> R run(ForkJoinPool pool, List<T> items, R empty, Function<T, R> map,
+                        BinaryOperator<R> combine) {
+        if (items.isEmpty()) return empty;
+        return pool.invoke(new ForkJoinMap<>(items, 0, items.size(), map, combine));
+    }
+
+    @Override
+    protected R compute() {
+        if (to - from == 1) return map.apply(items.get(from));
+
+        int mid = (from + to) >>> 1;
+        ForkJoinMap<T, R> left = new ForkJoinMap<>(items, from, mid, map, combine);
+        left.fork();
+        R right = new ForkJoinMap<>(items, mid, to, map, combine).compute();
+        return combine.apply(left.join(), right);
+    }
+}
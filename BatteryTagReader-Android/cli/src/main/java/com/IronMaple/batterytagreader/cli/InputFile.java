@@ -0,0 +1,104 @@
+package com.IronMaple.batterytagreader.cli;
+
+import com.IronMaple.batterytagreader.BatteryDoc;
+import com.IronMaple.batterytagreader.BestFile;
+
+import org.json.JSONException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * One input: a battery export ({@code *.BEST.json}, a single tag document) or
+ * a log export (NDJSON, or the app's JSON array of {"time","type","data"}).
+ */
+final class InputFile {
+
+    enum Kind { BATTERY, LOG }
+
+    final Path path;
+    final Kind kind;
+
+    private InputFile(Path path, Kind kind) {
+        this.path = path;
+        this.kind = kind;
+    }
+
+    /** File name without the export suffix. */
+    String baseName() {
+        String name = path.getFileName().toString();
+        String lower = name.toLowerCase(Locale.ROOT);
+        for (String suffix : new String[]{BestFile.SUFFIX.toLowerCase(Locale.ROOT), ".ndjson", ".json"}) {
+            if (lower.endsWith(suffix)) return name.substring(0, name.length() - suffix.length());
+        }
+        return name;
+    }
+
+    /** The tag document of a {@link Kind#BATTERY} file. */
+    BatteryDoc readDoc() throws IOException, JSONException {
+        return BatteryDoc.parse(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+
+    /**
+     * Every export under {@code paths} (files are taken as given, directories
+     * are searched recursively), sorted by path. Other files are skipped.
+     */
+    static List<InputFile> collect(List<Path> paths) throws IOException {
+        TreeSet<Path> files = new TreeSet<>();
+        for (Path p : paths) {
+            if (Files.isDirectory(p)) {
+                try (Stream<Path> walk = Files.walk(p)) {
+                    walk.filter(Files::isRegularFile).filter(InputFile::isExport).forEach(files::add);
+                }
+            } else if (Files.isRegularFile(p)) {
+                files.add(p);
+            } else {
+                throw new IOException("No such file or directory: " + p);
+            }
+        }
+
+        List<InputFile> inputs = new ArrayList<>(files.size());
+        for (Path file : files) inputs.add(new InputFile(file, kindOf(file)));
+        return inputs;
+    }
+
+    private static boolean isExport(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".json") || name.endsWith(".ndjson");
+    }
+
+    /**
+     * By name where it tells; otherwise a JSON array is a log, a whole object
+     * on the first line followed by more lines is NDJSON, and anything else is
+     * a (possibly indented) battery document.
+     */
+    private static Kind kindOf(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        if (BestFile.isBestFile(name)) return Kind.BATTERY;
+        if (name.toLowerCase(Locale.ROOT).endsWith(".ndjson")) return Kind.LOG;
+
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                if (line.startsWith("[")) return Kind.LOG;
+                return in.readLine() != null && line.endsWith("}") ? Kind.LOG : Kind.BATTERY;
+            }
+        }
+        return Kind.BATTERY;
+    }
+}
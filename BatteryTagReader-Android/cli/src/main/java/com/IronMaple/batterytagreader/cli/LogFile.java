@@ -0,0 +1,127 @@
+package com.IronMaple.batterytagreader.cli;
+
+import com.IronMaple.batterytagreader.BatteryDoc;
+import com.IronMaple.batterytagreader.TagTime;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the app's log exports: NDJSON, or the JSON array written by the JSON
+ * export. Entries that can't be read are reported and skipped.
+ */
+final class LogFile {
+
+    /** One {"time","type","data"} entry. */
+    static final class Entry {
+        final String where;     // "line 12" / "entry 12", for messages
+        final String time;      // "yyyy-MM-dd HH:mm" UTC, as exported
+        final String type;
+        final BatteryDoc doc;   // null if the entry had no data
+
+        Entry(String where, String time, String type, BatteryDoc doc) {
+            this.where = where;
+            this.time = time;
+            this.type = type;
+            this.doc = doc;
+        }
+
+        /** Epoch millis of {@link #time}, or {@link Long#MIN_VALUE} if it isn't a log time. */
+        long timeMillis() {
+            return LogFile.timeMillis(time);
+        }
+    }
+
+    private LogFile() {}
+
+    /**
+     * Every readable entry of {@code file}, in file order. Problems go to
+     * {@code problems} as "{where}: {message}".
+     */
+    static List<Entry> read(Path file, List<String> problems) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            in.mark(1024);
+            int first;
+            do {
+                first = in.read();
+            } while (first != -1 && Character.isWhitespace(first));
+            in.reset();
+
+            if (first == '[') {
+                readArray(in, entries, problems);
+            } else {
+                readLines(in, entries, problems);
+            }
+        }
+        return entries;
+    }
+
+    private static void readLines(BufferedReader in, List<Entry> entries, List<String> problems)
+            throws IOException {
+        String line;
+        int n = 0;
+        while ((line = in.readLine()) != null) {
+            n++;
+            if (line.trim().isEmpty()) continue;
+            String where = "line " + n;
+            try {
+                entries.add(entry(where, new JSONObject(line)));
+            } catch (JSONException e) {
+                problems.add(where + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static void readArray(BufferedReader in, List<Entry> entries, List<String> problems)
+            throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buf = new char[64 * 1024];
+        int read;
+        while ((read = in.read(buf)) != -1) text.append(buf, 0, read);
+
+        JSONArray array;
+        try {
+            array = new JSONArray(text.toString());
+        } catch (JSONException e) {
+            problems.add("not a JSON array: " + e.getMessage());
+            return;
+        }
+        for (int i = 0; i < array.length(); i++) {
+            String where = "entry " + (i + 1);
+            try {
+                entries.add(entry(where, array.getJSONObject(i)));
+            } catch (JSONException e) {
+                problems.add(where + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static Entry entry(String where, JSONObject obj) throws JSONException {
+        JSONObject data = obj.optJSONObject("data");
+        BatteryDoc doc = data == null ? null : BatteryDoc.parse(data.toString());
+        return new Entry(where, obj.optString("time", ""), obj.optString("type", ""), doc);
+    }
+
+    /** Epoch millis of an exported "yyyy-MM-dd HH:mm" UTC time, or {@link Long#MIN_VALUE}. */
+    static long timeMillis(String time) {
+        // 2025-03-14 15:02 -> 2503141502
+        if (time.length() != 16 || !time.startsWith("20") || time.charAt(4) != '-' || time.charAt(7) != '-'
+                || time.charAt(10) != ' ' || time.charAt(13) != ':') {
+            return Long.MIN_VALUE;
+        }
+        String tag = time.substring(2, 4) + time.substring(5, 7) + time.substring(8, 10)
+                + time.substring(11, 13) + time.substring(14, 16);
+        long minutes = TagTime.parse(tag);
+        return minutes == TagTime.NONE ? Long.MIN_VALUE : TagTime.toMillis(minutes);
+    }
+}
@@ -0,0 +1,148 @@
+package com.IronMaple.batterytagreader.cli;
+
+import com.IronMaple.batterytagreader.BatteryDoc;
+import com.IronMaple.batterytagreader.BestFile;
+import com.IronMaple.batterytagreader.LogExportFormat;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * {@code best merge}: one .BEST.json per battery holding the usage history of
+ * every input (tags only keep their newest entries, so exports and logs from
+ * different phones each hold part of it), plus merged.ndjson with all log
+ * entries in time order and exact duplicates removed.
+ */
+final class MergeCommand {
+
+    static final String MERGED_LOG = "merged.ndjson";
+
+    /** What the inputs add up to. */
+    static final class Merged {
+        final Map<String, BatteryDoc> batteries = new HashMap<>();
+        final List<LogLine> log = new ArrayList<>();
+
+        /** Fold {@code other} in; both sides are owned by the caller. */
+        Merged plus(Merged other) {
+            for (BatteryDoc doc : other.batteries.values()) add(doc);
+            log.addAll(other.log);
+            return this;
+        }
+
+        void add(BatteryDoc doc) {
+            BatteryDoc known = batteries.get(doc.getSerial());
+            if (known == null) {
+                batteries.put(doc.getSerial(), doc);
+                return;
+            }
+            // The snapshot with the newest entry keeps its note and unknown fields
+            BatteryDoc newer = doc.maxUsageId() > known.maxUsageId() ? doc : known;
+            newer.mergeFrom(newer == doc ? known : doc);
+            batteries.put(doc.getSerial(), newer);
+        }
+
+        /** Batteries by serial. */
+        TreeMap<String, BatteryDoc> sorted() {
+            return new TreeMap<>(batteries);
+        }
+    }
+
+    /** One log entry as an NDJSON line, with its time for sorting. */
+    static final class LogLine {
+        final long timeMillis;
+        final String text;
+
+        LogLine(long timeMillis, String text) {
+            this.timeMillis = timeMillis;
+            this.text = text;
+        }
+    }
+
+    private MergeCommand() {}
+
+    static int run(BestCli.Job job) throws IOException {
+        Merged merged = collect(job);
+
+        int written = 0;
+        Set<String> taken = new HashSet<>();
+        taken.add(MERGED_LOG);
+        for (BatteryDoc doc : merged.sorted().values()) {
+            String name = BestCli.uniqueName(BestCli.safeName(doc.getSerial()), BestFile.SUFFIX, taken);
+            write(job, name, BestFile.toText(doc));
+            written++;
+        }
+
+        int entries = 0;
+        if (!merged.log.isEmpty()) {
+            Set<String> lines = timeOrder(merged.log);
+            StringBuilder sb = new StringBuilder();
+            for (String line : lines) sb.append(line);
+            write(job, MERGED_LOG, sb.toString());
+            entries = lines.size();
+        }
+
+        return job.finish(String.format(Locale.US,
+                "%d file(s) merged into %d battery file(s) and %d log entries (%d duplicates dropped) in %s",
+                job.inputs.size(), written, entries, merged.log.size() - entries, job.outDir));
+    }
+
+    /** Merge every input, in parallel. */
+    static Merged collect(BestCli.Job job) {
+        return ForkJoinMap.run(job.pool, job.inputs, new Merged(), file -> read(job, file), Merged::plus);
+    }
+
+    private static Merged read(BestCli.Job job, InputFile file) {
+        Merged merged = new Merged();
+        List<String> problems = new ArrayList<>();
+        try {
+            if (file.kind == InputFile.Kind.BATTERY) {
+                merged.add(file.readDoc());
+            } else {
+                StringWriter line = new StringWriter();
+                for (LogFile.Entry entry : LogFile.read(file.path, problems)) {
+                    // Text first: merging may add other snapshots' entries to the document
+                    line.getBuffer().setLength(0);
+                    LogExportFormat.writeNdjsonLine(line, entry.time, entry.type,
+                            entry.doc == null ? "null" : entry.doc.toJson());
+                    merged.log.add(new LogLine(entry.timeMillis(), line.toString()));
+
+                    if (entry.doc != null) merged.add(entry.doc);
+                }
+            }
+        } catch (IOException | JSONException e) {
+            problems.add(e.getMessage());
+        }
+        job.report(file, problems);
+        return merged;
+    }
+
+    /** Lines sorted by time (stable, so same-minute entries keep input order), without exact repeats. */
+    private static Set<String> timeOrder(List<LogLine> log) {
+        List<LogLine> sorted = new ArrayList<>(log);
+        sorted.sort(Comparator.comparingLong(l -> l.timeMillis));
+        Set<String> lines = new LinkedHashSet<>();
+        for (LogLine line : sorted) lines.add(line.text);
+        return lines;
+    }
+
+    static void write(BestCli.Job job, String name, String text) throws IOException {
+        try (Writer out = Files.newBufferedWriter(job.outDir.resolve(name), StandardCharsets.UTF_8)) {
+            out.write(text);
+        }
+    }
+}
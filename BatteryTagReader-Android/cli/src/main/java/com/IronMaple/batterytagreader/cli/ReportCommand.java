@@ -0,0 +1,111 @@
+package com.IronMaple.batterytagreader.cli;
+
+import com.IronMaple.batterytagreader.BatteryDoc;
+import com.IronMaple.batterytagreader.BatteryReportHtmlGenerator;
+import com.IronMaple.batterytagreader.BestSerial;
+import com.IronMaple.batterytagreader.FleetReport;
+import com.IronMaple.batterytagreader.TagTime;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * {@code best report}: merge the inputs like {@code best merge}, then write the
+ * app's printable report for every battery (rendered in parallel), an
+ * index.html linking them and fleet.html with all of them as printable pages.
+ */
+final class ReportCommand {
+
+    static final String FLEET_REPORT = "fleet.html";
+
+    private ReportCommand() {}
+
+    /** A battery and the file its report goes to. */
+    private static final class Page {
+        final BatteryDoc doc;
+        final String fileName;
+
+        Page(BatteryDoc doc, String fileName) {
+            this.doc = doc;
+            this.fileName = fileName;
+        }
+    }
+
+    static int run(BestCli.Job job) throws IOException {
+        MergeCommand.Merged merged = MergeCommand.collect(job);
+
+        List<Page> pages = new ArrayList<>();
+        Set<String> taken = new HashSet<>();
+        taken.add("index.html");
+        taken.add(FLEET_REPORT);
+        for (BatteryDoc doc : merged.sorted().values()) {
+            pages.add(new Page(doc, BestCli.uniqueName(BestCli.safeName(doc.getSerial()), ".html", taken)));
+        }
+
+        try {
+            ForkJoinMap.run(job.pool, pages, 0, page -> {
+                try {
+                    MergeCommand.write(job, page.fileName, BatteryReportHtmlGenerator.generateHtml(page.doc));
+                    return 1;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, Integer::sum);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        MergeCommand.write(job, "index.html", index(pages));
+
+        List<BatteryDoc> docs = new ArrayList<>(pages.size());
+        for (Page page : pages) docs.add(page.doc);
+        try (Writer out = Files.newBufferedWriter(job.outDir.resolve(FLEET_REPORT), StandardCharsets.UTF_8)) {
+            FleetReport.writeHtml(docs, out, job.pool);
+        }
+
+        return job.finish(String.format(Locale.US, "%d file(s) read, %d battery report(s) written to %s",
+                job.inputs.size(), pages.size(), job.outDir));
+    }
+
+    private static String index(List<Page> pages) {
+        StringBuilder html = new StringBuilder(512 + 256 * pages.size());
+        html.append("<!doctype html>\n<html><head><meta charset='utf-8'>\n")
+                .append("<title>Battery Reports</title>\n")
+                .append("<style>\n")
+                .append("body{font-family:Arial,Helvetica,sans-serif;margin:24px;}\n")
+                .append("table{border-collapse:collapse;}\n")
+                .append("th,td{border:1px solid #ccc;padding:4px 10px;text-align:left;}\n")
+                .append("th{background:#f2f2f2;}\n")
+                .append("</style></head><body>\n")
+                .append("<h2>Battery Reports</h2>\n")
+                .append("<table>\n<tr><th>Serial</th><th>Team</th><th>Cycles</th>")
+                .append("<th>Usage entries</th><th>First use</th><th>Last entry</th></tr>\n");
+
+        for (Page page : pages) {
+            BatteryDoc doc = page.doc;
+            String team = BestSerial.team(doc.getSerial());
+            int count = doc.getUsageCount();
+            String last = count == 0 ? "" : TagTime.display(doc.getUsageTime(doc.newestFirst()[0]));
+            html.append("<tr><td><a href='").append(esc(page.fileName)).append("'>")
+                    .append(esc(doc.getSerial().isEmpty() ? "(no serial)" : doc.getSerial())).append("</a></td>")
+                    .append("<td>").append(team == null ? "" : esc(team)).append("</td>")
+                    .append("<td>").append(doc.getCycleCount()).append("</td>")
+                    .append("<td>").append(count).append("</td>")
+                    .append("<td>").append(esc(TagTime.display(doc.getFirstUse()))).append("</td>")
+                    .append("<td>").append(esc(last)).append("</td></tr>\n");
+        }
+        return html.append("</table>\n</body></html>\n").toString();
+    }
+
+    private static String esc(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+                .replace("'", "&#39;").replace("\"", "&quot;");
+    }
+}
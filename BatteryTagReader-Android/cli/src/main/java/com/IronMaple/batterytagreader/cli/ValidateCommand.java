@@ -0,0 +1,53 @@
+package com.IronMaple.batterytagreader.cli;
+
+import com.IronMaple.batterytagreader.BatteryDoc;
+import com.IronMaple.batterytagreader.DocValidator;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/** {@code best validate}: schema-check every battery document and log entry. */
+final class ValidateCommand {
+
+    private ValidateCommand() {}
+
+    static int run(BestCli.Job job) {
+        int documents = ForkJoinMap.run(job.pool, job.inputs, 0, file -> validate(job, file), Integer::sum);
+        return job.finish(String.format(Locale.US, "%d file(s), %d document(s) checked",
+                job.inputs.size(), documents));
+    }
+
+    /** Number of documents checked in {@code file}. */
+    private static int validate(BestCli.Job job, InputFile file) {
+        List<String> problems = new ArrayList<>();
+        int documents = 0;
+        try {
+            if (file.kind == InputFile.Kind.BATTERY) {
+                BatteryDoc doc = file.readDoc();
+                problems.addAll(DocValidator.validate(doc));
+                documents = 1;
+            } else {
+                for (LogFile.Entry entry : LogFile.read(file.path, problems)) {
+                    if (entry.timeMillis() == Long.MIN_VALUE) problems.add(entry.where + ": bad time: " + entry.time);
+                    if (entry.type.isEmpty()) problems.add(entry.where + ": no type");
+                    if (entry.doc == null) {
+                        problems.add(entry.where + ": no data");
+                        continue;
+                    }
+                    for (String problem : DocValidator.validate(entry.doc)) {
+                        problems.add(entry.where + ": " + problem);
+                    }
+                    documents++;
+                }
+            }
+        } catch (IOException | JSONException e) {
+            problems.add(e.getMessage());
+        }
+        job.report(file, problems);
+        return documents;
+    }
+}
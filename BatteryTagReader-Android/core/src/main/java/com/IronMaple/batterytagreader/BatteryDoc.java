@@ -0,0 +1,668 @@
+package com.IronMaple.batterytagreader;
+
+import org.json.JSONException;
+
+import java.util.Arrays;
+
+/**
+ * The battery tag document,
+ * {"sn","fu","cc","n","u":[{"i","t","d","e","v"}, ...]},
+ * with the usage history held in parallel primitive arrays (tag order, oldest first).
+ *
+ * {@link #parse} reads the JSON text in a single pass without building a JSON
+ * tree, and {@link #toJson} writes it back with one StringBuilder, cached until
+ * the document changes. Known fields are read the way optInt/optString read
+ * them; members the schema doesn't know are kept verbatim and written back after
+ * the known ones, so rewriting a tag never drops them.
+ *
+ * Not thread-safe: hand a document from one thread to another, don't share it.
+ */
+public final class BatteryDoc {
+
+    public static final int DEVICE_ROBOT = 1;
+    public static final int DEVICE_CHARGER = 2;
+
+    /** One usage entry, copied out by {@link #getUsage}; reuse one instance across rows. */
+    public static final class UsageEntry {
+        public int id;
+        public String time;
+        public int device;
+        public int energy;
+        public int voltage;
+    }
+
+    private static final int[] NO_INTS = new int[0];
+    private static final String[] NO_STRINGS = new String[0];
+
+    private String sn = "";
+    private String fu = "";
+    private int cc;
+    private int note;
+    private String extra;          // unknown top-level members as raw "k":v text, or null
+
+    private int size;
+    private int[] ids = NO_INTS;
+    private String[] times = NO_STRINGS;
+    private int[] devices = NO_INTS;
+    private int[] energies = NO_INTS;
+    private int[] voltages = NO_INTS;
+    private String[] extras;       // unknown members per entry, allocated on first use
+
+    private String json;           // cached toJson()
+
+    public BatteryDoc() {}
+
+    /** A new battery with no usage history. */
+    public BatteryDoc(String sn, String firstUse) {
+        this.sn = sn;
+        this.fu = firstUse;
+    }
+
+    // ------------------------------------------------------------------------
+    // Fields
+    // ------------------------------------------------------------------------
+
+    public String getSerial()      { return sn; }
+    public String getFirstUse()    { return fu; }
+    public int getCycleCount()     { return cc; }
+    public int getNote()           { return note; }
+
+    public void setCycleCount(int cc) {
+        this.cc = cc;
+        json = null;
+    }
+
+    public void setNote(int note) {
+        this.note = note;
+        json = null;
+    }
+
+    /** True if the document has members outside the tag schema. */
+    public boolean hasUnknownFields() {
+        if (extra != null) return true;
+        if (extras == null) return false;
+        for (int k = 0; k < size; k++) {
+            if (extras[k] != null) return true;
+        }
+        return false;
+    }
+
+    // ------------------------------------------------------------------------
+    // Usage history
+    // ------------------------------------------------------------------------
+
+    public int getUsageCount()             { return size; }
+    public int getUsageId(int k)           { return ids[k]; }
+    public String getUsageTime(int k)      { return times[k]; }
+    public int getUsageDevice(int k)       { return devices[k]; }
+    public int getUsageEnergy(int k)       { return energies[k]; }
+    public int getUsageVoltage(int k)      { return voltages[k]; }
+
+    public UsageEntry getUsage(int k, UsageEntry into) {
+        into.id = ids[k];
+        into.time = times[k];
+        into.device = devices[k];
+        into.energy = energies[k];
+        into.voltage = voltages[k];
+        return into;
+    }
+
+    /** Append an entry (entries are kept in the order they were added). */
+    public void addUsage(int id, String time, int device, int energy, int voltage) {
+        ensureCapacity(size + 1);
+        ids[size] = id;
+        times[size] = time;
+        devices[size] = device;
+        energies[size] = energy;
+        voltages[size] = voltage;
+        if (extras != null) extras[size] = null;
+        size++;
+        json = null;
+    }
+
+    /** Drop all but the last {@code count} entries. */
+    public void keepNewest(int count) {
+        if (count >= size) return;
+        int from = size - Math.max(0, count);
+        size -= from;
+        System.arraycopy(ids, from, ids, 0, size);
+        System.arraycopy(times, from, times, 0, size);
+        System.arraycopy(devices, from, devices, 0, size);
+        System.arraycopy(energies, from, energies, 0, size);
+        System.arraycopy(voltages, from, voltages, 0, size);
+        if (extras != null) System.arraycopy(extras, from, extras, 0, size);
+        json = null;
+    }
+
+    /** Highest usage id, or 0. */
+    public int maxUsageId() {
+        int max = 0;
+        for (int k = 0; k < size; k++) max = Math.max(max, ids[k]);
+        return max;
+    }
+
+    /** Number of entries with an id above {@code id}. */
+    public int countUsageAfter(int id) {
+        int count = 0;
+        for (int k = 0; k < size; k++) {
+            if (ids[k] > id) count++;
+        }
+        return count;
+    }
+
+    /** Number of entries logged by {@code device}. */
+    public int countUsage(int device) {
+        int count = 0;
+        for (int k = 0; k < size; k++) {
+            if (devices[k] == device) count++;
+        }
+        return count;
+    }
+
+    /** Device of the last entry in tag order, or -1 if there are none. */
+    public int getLastDevice() {
+        return size == 0 ? -1 : devices[size - 1];
+    }
+
+    /** Entry indexes sorted by id, highest first (ties keep tag order). */
+    public int[] newestFirst() {
+        int[] order = new int[size];
+        boolean ascending = true;
+        for (int k = 1; k < size && ascending; k++) ascending = ids[k] > ids[k - 1];
+        if (ascending) {
+            for (int k = 0; k < size; k++) order[k] = size - 1 - k;
+            return order;
+        }
+        // Insertion sort: stable, and histories are a few dozen entries
+        for (int k = 0; k < size; k++) {
+            int j = k;
+            while (j > 0 && ids[order[j - 1]] < ids[k]) {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = k;
+        }
+        return order;
+    }
+
+    /**
+     * Fold in {@code other}, another snapshot of the same battery (an older
+     * export, another phone's log). Usage entries are unioned by id and left
+     * sorted by id; on a clash this document's entry wins. The cycle count
+     * becomes the larger of the two and the first use the earlier one; serial,
+     * note and unknown top-level members stay as they are here.
+     */
+    public void mergeFrom(BatteryDoc other) {
+        long fuHere = TagTime.parse(fu), fuThere = TagTime.parse(other.fu);
+        if (fuThere != TagTime.NONE && (fuHere == TagTime.NONE || fuThere < fuHere)) fu = other.fu;
+        cc = Math.max(cc, other.cc);
+
+        // Both sides by id; stable, so the first copy of a duplicated id is from this document
+        int total = size + other.size;
+        long[] order = new long[total];
+        for (int k = 0; k < size; k++) order[k] = sortKey(ids[k], k);
+        for (int k = 0; k < other.size; k++) order[size + k] = sortKey(other.ids[k], size + k);
+        Arrays.sort(order);
+
+        BatteryDoc merged = new BatteryDoc();
+        merged.ensureCapacity(total);
+        boolean first = true;
+        int lastId = 0;
+        for (long key : order) {
+            int slot = (int) (key & 0xFFFFFFFFL);
+            BatteryDoc from = slot < size ? this : other;
+            int k = slot < size ? slot : slot - size;
+            if (!first && from.ids[k] == lastId) continue;
+            first = false;
+            lastId = from.ids[k];
+            merged.addUsage(from.ids[k], from.times[k], from.devices[k], from.energies[k], from.voltages[k]);
+            if (from.extras != null && from.extras[k] != null) {
+                if (merged.extras == null) merged.extras = new String[merged.ids.length];
+                merged.extras[merged.size - 1] = from.extras[k];
+            }
+        }
+
+        size = merged.size;
+        ids = merged.ids;
+        times = merged.times;
+        devices = merged.devices;
+        energies = merged.energies;
+        voltages = merged.voltages;
+        extras = merged.extras;
+        json = null;
+    }
+
+    private static long sortKey(int id, int slot) {
+        return ((long) id << 32) | slot;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= ids.length) return;
+        int capacity = Math.max(needed, Math.max(8, ids.length * 2));
+        ids = Arrays.copyOf(ids, capacity);
+        times = Arrays.copyOf(times, capacity);
+        devices = Arrays.copyOf(devices, capacity);
+        energies = Arrays.copyOf(energies, capacity);
+        voltages = Arrays.copyOf(voltages, capacity);
+        if (extras != null) extras = Arrays.copyOf(extras, capacity);
+    }
+
+    // ------------------------------------------------------------------------
+    // Serializer
+    // ------------------------------------------------------------------------
+
+    /** Compact JSON text of the document. */
+    public String toJson() {
+        if (json == null) json = toJson(0);
+        return json;
+    }
+
+    /** JSON text with only the usage entries from index {@code from} on (for trimming to a tag's size). */
+    public String toJson(int from) {
+        if (from == 0 && json != null) return json;
+        return appendJson(new StringBuilder(48 + 56 * (size - from)), from).toString();
+    }
+
+    private StringBuilder appendJson(StringBuilder sb, int from) {
+        sb.append("{\"sn\":");
+        appendQuoted(sb, sn);
+        sb.append(",\"fu\":");
+        appendQuoted(sb, fu);
+        sb.append(",\"cc\":").append(cc);
+        sb.append(",\"n\":").append(note);
+        sb.append(",\"u\":[");
+        for (int k = from; k < size; k++) {
+            if (k > from) sb.append(',');
+            sb.append("{\"i\":").append(ids[k]);
+            sb.append(",\"t\":");
+            appendQuoted(sb, times[k]);
+            sb.append(",\"d\":").append(devices[k]);
+            sb.append(",\"e\":").append(energies[k]);
+            sb.append(",\"v\":").append(voltages[k]);
+            if (extras != null && extras[k] != null) sb.append(',').append(extras[k]);
+            sb.append('}');
+        }
+        sb.append(']');
+        if (extra != null) sb.append(',').append(extra);
+        return sb.append('}');
+    }
+
+    private static void appendQuoted(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':  sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                case '\b': sb.append("\\b"); break;
+                case '\f': sb.append("\\f"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append("\\u00").append(Character.forDigit(c >> 4, 16))
+                                .append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * 64-bit FNV-1a hash of {@link #toJson()}: equal for documents with the same
+     * content, so it can key anything derived from the document.
+     */
+    public long fingerprint() {
+        String text = toJson();
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            h = (h ^ (c & 0xFF)) * 0x100000001b3L;
+            h = (h ^ (c >>> 8)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+
+    // ------------------------------------------------------------------------
+    // Parser
+    // ------------------------------------------------------------------------
+
+    private static final String[] DOC_KEYS = {"sn", "fu", "cc", "n", "u"};
+    private static final String[] ENTRY_KEYS = {"i", "t", "d", "e", "v"};
+
+    /**
+     * Parse a tag document.
+     * @throws JSONException if the text isn't JSON, isn't an object, or a known field has the wrong shape
+     */
+    public static BatteryDoc parse(String text) throws JSONException {
+        if (text == null) throw new JSONException("No document");
+        Parser p = new Parser(text);
+        BatteryDoc doc = new BatteryDoc();
+        StringBuilder unknown = null;
+
+        p.expect('{');
+        if (!p.consume('}')) {
+            do {
+                int memberStart = p.skipWhitespace();
+                int key = p.readKey(DOC_KEYS);
+                p.expect(':');
+                switch (key) {
+                    case 0: doc.sn = p.readText(); break;
+                    case 1: doc.fu = p.readText(); break;
+                    case 2: doc.cc = p.readInt(); break;
+                    case 3: doc.note = p.readInt(); break;
+                    case 4: doc.readUsage(p); break;
+                    default:
+                        p.skipValue();
+                        if (unknown == null) unknown = new StringBuilder();
+                        else unknown.append(',');
+                        unknown.append(text, memberStart, p.pos);
+                }
+            } while (p.consume(','));
+            p.expect('}');
+        }
+        if (p.skipWhitespace() != text.length()) throw p.error("Unexpected text after document");
+
+        if (unknown != null) doc.extra = unknown.toString();
+        return doc;
+    }
+
+    private void readUsage(Parser p) throws JSONException {
+        size = 0;
+        if (p.consumeNull()) return;
+        p.expect('[');
+        if (p.consume(']')) return;
+        do {
+            p.expect('{');
+            int i = 0, d = 0, e = 0, v = 0;
+            String t = "";
+            StringBuilder unknown = null;
+            if (!p.consume('}')) {
+                do {
+                    int memberStart = p.skipWhitespace();
+                    int key = p.readKey(ENTRY_KEYS);
+                    p.expect(':');
+                    switch (key) {
+                        case 0: i = p.readInt(); break;
+                        case 1: t = p.readText(); break;
+                        case 2: d = p.readInt(); break;
+                        case 3: e = p.readInt(); break;
+                        case 4: v = p.readInt(); break;
+                        default:
+                            p.skipValue();
+                            if (unknown == null) unknown = new StringBuilder();
+                            else unknown.append(',');
+                            unknown.append(p.text, memberStart, p.pos);
+                    }
+                } while (p.consume(','));
+                p.expect('}');
+            }
+            addUsage(i, t, d, e, v);
+            if (unknown != null) {
+                if (extras == null) extras = new String[ids.length];
+                extras[size - 1] = unknown.toString();
+            }
+        } while (p.consume(','));
+        p.expect(']');
+    }
+
+    /** Cursor over the JSON text; strings are only materialized for values that are kept. */
+    private static final class Parser {
+        final String text;
+        int pos;
+        boolean escaped;   // the last string skipped had escapes
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        /** Skip whitespace; returns the new position. */
+        int skipWhitespace() {
+            while (pos < text.length()) {
+                char c = text.charAt(pos);
+                if (c != ' ' && c != '\n' && c != '\r' && c != '\t') break;
+                pos++;
+            }
+            return pos;
+        }
+
+        boolean consume(char c) {
+            skipWhitespace();
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) throws JSONException {
+            if (!consume(c)) throw error("Expected '" + c + "'");
+        }
+
+        boolean consumeNull() {
+            skipWhitespace();
+            if (text.startsWith("null", pos)) {
+                pos += 4;
+                return true;
+            }
+            return false;
+        }
+
+        /** Read a member name; returns its index in {@code keys}, or -1 for any other name. */
+        int readKey(String[] keys) throws JSONException {
+            skipWhitespace();
+            if (pos >= text.length() || text.charAt(pos) != '"') throw error("Expected a member name");
+            int start = pos + 1;
+            int end = skipString();
+            int length = end - 1 - start;
+            if (!escaped) {
+                for (int k = 0; k < keys.length; k++) {
+                    if (keys[k].length() == length && text.startsWith(keys[k], start)) return k;
+                }
+                return -1;
+            }
+            String name = unescape(start, end - 1);
+            for (int k = 0; k < keys.length; k++) {
+                if (keys[k].equals(name)) return k;
+            }
+            return -1;
+        }
+
+        /** A string value; numbers and booleans as their text (like optString), null as "". */
+        String readText() throws JSONException {
+            skipWhitespace();
+            if (pos >= text.length()) throw error("Expected a value");
+            char c = text.charAt(pos);
+            if (c == '"') {
+                int start = pos + 1;
+                int end = skipString() - 1;
+                return escaped ? unescape(start, end) : text.substring(start, end);
+            }
+            if (consumeNull()) return "";
+            if (c == '{' || c == '[') throw error("Expected a string");
+            int start = pos;
+            skipValue();
+            return text.substring(start, pos);
+        }
+
+        /** An int value the way optInt reads it: numbers truncated, numeric strings parsed, anything else 0. */
+        int readInt() throws JSONException {
+            skipWhitespace();
+            if (pos >= text.length()) throw error("Expected a value");
+            char c = text.charAt(pos);
+            if (c == '-' || (c >= '0' && c <= '9')) return readNumber();
+            if (c == '"') {
+                String s = readText().trim();
+                try {
+                    return Integer.parseInt(s);
+                } catch (NumberFormatException e) {
+                    try {
+                        return (int) Double.parseDouble(s);
+                    } catch (NumberFormatException e2) {
+                        return 0;
+                    }
+                }
+            }
+            if (c == '{' || c == '[') throw error("Expected a number");
+            skipValue(); // true, false, null
+            return 0;
+        }
+
+        private int readNumber() throws JSONException {
+            int start = pos;
+            boolean negative = text.charAt(pos) == '-';
+            if (negative) pos++;
+            long value = 0;
+            int digits = 0;
+            while (pos < text.length()) {
+                char c = text.charAt(pos);
+                if (c < '0' || c > '9') break;
+                value = value * 10 + (c - '0');
+                digits++;
+                pos++;
+            }
+            if (digits == 0) throw error("Malformed number");
+            char next = pos < text.length() ? text.charAt(pos) : ' ';
+            if (next == '.' || next == 'e' || next == 'E' || digits > 18) {
+                pos = start;
+                skipNumber();
+                return (int) Double.parseDouble(text.substring(start, pos));
+            }
+            return (int) (negative ? -value : value);
+        }
+
+        /** Skip over any JSON value, checking its syntax. */
+        void skipValue() throws JSONException {
+            skipWhitespace();
+            if (pos >= text.length()) throw error("Expected a value");
+            char c = text.charAt(pos);
+            switch (c) {
+                case '"':
+                    skipString();
+                    return;
+                case '{':
+                    pos++;
+                    if (consume('}')) return;
+                    do {
+                        readKey(DOC_KEYS);
+                        expect(':');
+                        skipValue();
+                    } while (consume(','));
+                    expect('}');
+                    return;
+                case '[':
+                    pos++;
+                    if (consume(']')) return;
+                    do {
+                        skipValue();
+                    } while (consume(','));
+                    expect(']');
+                    return;
+                case 't':
+                    skipLiteral("true");
+                    return;
+                case 'f':
+                    skipLiteral("false");
+                    return;
+                case 'n':
+                    skipLiteral("null");
+                    return;
+                default:
+                    skipNumber();
+            }
+        }
+
+        private void skipLiteral(String literal) throws JSONException {
+            if (!text.startsWith(literal, pos)) throw error("Unexpected value");
+            pos += literal.length();
+        }
+
+        private void skipNumber() throws JSONException {
+            int start = pos;
+            if (pos < text.length() && text.charAt(pos) == '-') pos++;
+            int digitsStart = pos;
+            skipDigits();
+            if (pos == digitsStart) throw error("Malformed number");
+            if (pos < text.length() && text.charAt(pos) == '.') {
+                pos++;
+                int fraction = pos;
+                skipDigits();
+                if (pos == fraction) throw error("Malformed number");
+            }
+            if (pos < text.length() && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+                pos++;
+                if (pos < text.length() && (text.charAt(pos) == '+' || text.charAt(pos) == '-')) pos++;
+                int exponent = pos;
+                skipDigits();
+                if (pos == exponent) throw error("Malformed number");
+            }
+            if (pos == start) throw error("Expected a value");
+        }
+
+        private void skipDigits() {
+            while (pos < text.length() && text.charAt(pos) >= '0' && text.charAt(pos) <= '9') pos++;
+        }
+
+        /** Skip the string starting at pos (the opening quote); returns the index after the closing quote. */
+        private int skipString() throws JSONException {
+            escaped = false;
+            pos++;
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '"') return pos;
+                if (c == '\\') {
+                    escaped = true;
+                    if (pos >= text.length()) break;
+                    pos += text.charAt(pos) == 'u' ? 5 : 1;
+                } else if (c < 0x20) {
+                    throw error("Unescaped control character in string");
+                }
+            }
+            throw error("Unterminated string");
+        }
+
+        /** Decode the escapes in text[start, end). */
+        private String unescape(int start, int end) throws JSONException {
+            StringBuilder sb = new StringBuilder(end - start);
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char e = text.charAt(++i);
+                switch (e) {
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        if (i + 4 >= end) throw error("Malformed \\u escape");
+                        try {
+                            sb.append((char) Integer.parseInt(text.substring(i + 1, i + 5), 16));
+                        } catch (NumberFormatException ex) {
+                            throw error("Malformed \\u escape");
+                        }
+                        i += 4;
+                        break;
+                    default:
+                        sb.append(e); // \" \\ \/
+                }
+            }
+            return sb.toString();
+        }
+
+        JSONException error(String message) {
+            return new JSONException(message + " at character " + pos);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.IronMaple.batterytagreader;
+
+import java.io.*;
+import java.text.*;
+import java.util.*;
+
+public class BatteryReportHtmlGenerator {
+
+    static String esc(String s) {
+        if (s == null) return "";
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    private static final int MAX_ROWS = 36;
+
+    private static void writeUsageRows(Appendable out, BatteryDoc doc) throws IOException {
+        // sort by i descending
+        int[] rows = doc.newestFirst();
+        int shown = Math.min(rows.length, MAX_ROWS);
+        int extra = rows.length - shown;
+
+        BatteryDoc.UsageEntry ent = new BatteryDoc.UsageEntry();
+        for (int r = 0; r < shown; r++) {
+            doc.getUsage(rows[r], ent);
+            int d = ent.device;
+            String device = (d == 1) ? "Robot" : (d == 2) ? "Charger" : "Unknown";
+            out.append(d == 2 ? "<tr class='charger-row'>" : "<tr>")
+                    .append("<td class='num'>").append(Integer.toString(ent.id)).append("</td>")
+                    .append("<td>").append(esc(TagTime.display(ent.time))).append("</td>")
+                    .append("<td>").append(device).append("</td>")
+                    .append("<td class='num'>").append(Integer.toString(ent.energy)).append("</td>")
+                    .append("<td class='num'>").append(Integer.toString(ent.voltage)).append("</td>")
+                    .append("</tr>");
+        }
+
+        if (shown == 0) {
+            out.append("<tr><td colspan='5' class='muted'>No usage records.</td></tr>");
+        }
+        if (extra > 0) {
+            out.append("<tr><td colspan='5' class='muted'>(+")
+                    .append(Integer.toString(extra)).append(" more not shown)</td></tr>");
+        }
+    }
+
+    /** Shared stylesheet (inside a style element) for single and fleet reports. */
+    static final String STYLE = new StringBuilder()
+            .append("<style>\n")
+            .append("  :root { --fg:#000; --muted:#222; --line:#000; --bg:#fff; }\n")
+            .append("  * { box-sizing:border-box; }\n")
+            .append("  html, body { background:var(--bg); color:var(--fg); }\n")
+            .append("  body { margin:24px; font:12px/1.35 system-ui,-apple-system,Segoe UI,Roboto,Arial,sans-serif; }\n")
+            .append("  h1 { margin:0 0 6px; font-size:16px; font-weight:700; }\n")
+            .append("  h2 { margin:14px 0 6px; font-size:13px; font-weight:700; }\n")
+            .append("  .grid { display:grid; grid-template-columns:160px 1fr 120px 1fr; gap:6px 10px; padding:8px; border:1px solid var(--line); }\n")
+            .append("  .k { color:var(--muted); text-align:right; }\n")
+            .append("  .code { font-family:ui-monospace,SFMono-Regular,Menlo,Consolas,monospace; }\n")
+            .append("  table { width:100%; border-collapse:collapse; }\n")
+            .append("  th,td { border-top:1px solid var(--line); padding:4px 6px; vertical-align:top; }\n")
+            .append("  thead th { text-align:left; border-top:none; font-size:11px; font-weight:700; }\n")
+            .append("  .num { text-align:right; font-variant-numeric:tabular-nums; }\n")
+            .append("  .muted { color:#444; }\n")
+            .append("  .foot { margin-top:8px; font-size:11px; color:#111; }\n")
+            .append("  .charger-row { background:#000; color:#fff; }\n")
+            .append("  @page { size: letter; margin: 0.5in; }\n")
+            .append("  @media print { body { margin:0; } * { -webkit-print-color-adjust: exact; print-color-adjust: exact; } }\n")
+            .append("</style>\n")
+            .toString();
+
+    /** Opens the print dialog once the page has loaded. */
+    static final String PRINT_SCRIPT =
+            "<script>window.addEventListener('load',function(){setTimeout(function(){window.print();},100);});</script>\n";
+
+    /** "Generated" time shown on reports. */
+    static String generatedNow() {
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(new Date());
+    }
+
+    /**
+     * "Generated" value for reports that are cached and reopened: the page
+     * writes the time it was opened, in the same format as {@link #generatedNow},
+     * so the file depends on the tag alone.
+     */
+    static final String GENERATED_ON_OPEN =
+            "<span></span><script>(function(){var d=new Date();"
+            + "function p(n){return (n<10?'0':'')+n;}"
+            + "document.currentScript.previousSibling.textContent=d.getFullYear()+'-'+p(d.getMonth()+1)+'-'+p(d.getDate())"
+            + "+' '+p(d.getHours())+':'+p(d.getMinutes())+':'+p(d.getSeconds());})();</script>";
+
+    static String noteName(int n) {
+        switch (n) {
+            case 1:
+                return "Practice";
+            case 2:
+                return "Scrap";
+            case 3:
+                return "Other";
+            default:
+                return "Normal";
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Templates
+    // ------------------------------------------------------------------------
+
+    /**
+     * Literal text split at {{slot}} markers once, at class load; rendering
+     * writes text[k], then slot k, and finally the last piece of text.
+     */
+    private static final class Template {
+        final String[] text;
+        final String[] slots;
+
+        Template(String source) {
+            List<String> text = new ArrayList<>();
+            List<String> slots = new ArrayList<>();
+            int from = 0;
+            for (int open; (open = source.indexOf("{{", from)) >= 0; ) {
+                int close = source.indexOf("}}", open);
+                text.add(source.substring(from, open));
+                slots.add(source.substring(open + 2, close));
+                from = close + 2;
+            }
+            text.add(source.substring(from));
+            this.text = text.toArray(new String[0]);
+            this.slots = slots.toArray(new String[0]);
+        }
+    }
+
+    private static final Template PAGE = new Template(
+            "<!DOCTYPE html>\n<html lang='en'><head>\n"
+            + "<meta charset='utf-8' />\n"
+            + "<title>Battery Report — {{sn}}</title>\n"
+            + "<meta name='viewport' content='width=device-width, initial-scale=1' />\n"
+            + STYLE
+            + PRINT_SCRIPT
+            + "</head>\n<body>\n"
+            + "{{section}}"
+            + "</body></html>");
+
+    private static final Template SECTION = new Template(
+            "<h1>Battery Report</h1>\n"
+            + "<div class='grid'>\n"
+            + "  <div class='k'>Serial Number (sn):</div><div class='code'>{{sn}}</div>\n"
+            + "  <div class='k'>First Use (fu):</div><div>{{fu}}</div>\n"
+            + "  <div class='k'>Cycle Count (cc):</div><div class='code'>{{cc}}</div>\n"
+            + "  <div class='k'>Note (n):</div><div class='code'>{{n}} — {{note}}</div>\n"
+            + "</div>\n\n"
+            + "<h2>Usage</h2>\n<table>\n<thead>\n<tr>\n"
+            + "<th style='width:48px'>#</th>\n<th style='width:160px'>Time</th>\n<th style='width:110px'>Device</th>\n"
+            + "<th class='num' style='width:90px'>e</th>\n<th class='num' style='width:90px'>v</th>\n"
+            + "</tr>\n</thead>\n<tbody>\n"
+            + "{{rows}}"
+            + "\n</tbody>\n</table>\n\n"
+            + "<h2>Stats</h2>\n<div class='grid' style='grid-template-columns:160px 1fr 160px 1fr;'>\n"
+            + "  <div class='k'>Robot records:</div><div class='code'>{{robot}}</div>\n"
+            + "  <div class='k'>Charger records:</div><div class='code'>{{charger}}</div>\n"
+            + "  <div class='k'>Total records (u):</div><div class='code'>{{total}}</div>\n"
+            + "  <div class='k'>Generated:</div><div>{{generated}}</div>\n"
+            + "</div>\n\n"
+            + "<div class='foot'>This report only represents the data currently stored on the NFC tag.</div>\n");
+
+    // ------------------------------------------------------------------------
+    // Rendering
+    // ------------------------------------------------------------------------
+
+    public static String generateHtml(BatteryDoc doc) {
+        // --- Build full HTML identical to battery_print.py ---
+        StringBuilder html = new StringBuilder(4096);
+        try {
+            writeHtml(doc, html, generatedNow());
+        } catch (IOException e) {
+            throw new AssertionError(e); // StringBuilder doesn't throw
+        }
+        return html.toString();
+    }
+
+    /**
+     * Stream the full report page for {@code doc} to {@code out}. The output
+     * depends only on {@code doc} (the "Generated" time is filled in when the
+     * page is opened), so it can be cached by {@link BatteryDoc#fingerprint()}.
+     */
+    public static void writeHtml(BatteryDoc doc, Writer out) throws IOException {
+        writeHtml(doc, out, null);
+    }
+
+    /** @param generated the "Generated" time, or null to fill it in when the page is opened */
+    private static void writeHtml(BatteryDoc doc, Appendable out, String generated) throws IOException {
+        String[] text = PAGE.text;
+        for (int k = 0; k < PAGE.slots.length; k++) {
+            out.append(text[k]);
+            if (PAGE.slots[k].equals("sn")) out.append(esc(doc.getSerial()));
+            else writeSection(out, doc, generated);
+        }
+        out.append(text[text.length - 1]);
+    }
+
+    /** The body of one battery's report, from the heading to the footer. */
+    static StringBuilder appendSection(StringBuilder html, BatteryDoc doc, String generated) {
+        try {
+            writeSection(html, doc, generated);
+        } catch (IOException e) {
+            throw new AssertionError(e); // StringBuilder doesn't throw
+        }
+        return html;
+    }
+
+    private static void writeSection(Appendable out, BatteryDoc doc, String generated) throws IOException {
+        String[] text = SECTION.text;
+        for (int k = 0; k < SECTION.slots.length; k++) {
+            out.append(text[k]);
+            switch (SECTION.slots[k]) {
+                case "sn":        out.append(esc(doc.getSerial())); break;
+                case "fu":        out.append(esc(TagTime.display(doc.getFirstUse()))); break;
+                case "cc":        out.append(Integer.toString(doc.getCycleCount())); break;
+                case "n":         out.append(Integer.toString(doc.getNote())); break;
+                case "note":      out.append(noteName(doc.getNote())); break;
+                case "rows":      writeUsageRows(out, doc); break;
+                case "robot":     out.append(Integer.toString(doc.countUsage(BatteryDoc.DEVICE_ROBOT))); break;
+                case "charger":   out.append(Integer.toString(doc.countUsage(BatteryDoc.DEVICE_CHARGER))); break;
+                case "total":     out.append(Integer.toString(doc.getUsageCount())); break;
+                case "generated": out.append(generated != null ? esc(generated) : GENERATED_ON_OPEN); break;
+                default:          throw new IllegalStateException("Unknown slot " + SECTION.slots[k]);
+            }
+        }
+        out.append(text[text.length - 1]);
+    }
+}
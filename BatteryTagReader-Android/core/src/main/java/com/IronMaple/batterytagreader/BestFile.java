@@ -0,0 +1,79 @@
+package com.IronMaple.batterytagreader;
+
+/**
+ * The ".BEST.json" battery export: one tag document, indented two spaces,
+ * fields in tag order. Same layout as JSONObject.toString(2) on Android.
+ */
+public final class BestFile {
+
+    public static final String SUFFIX = ".BEST.json";
+
+    private static final String INDENT = "  ";
+
+    private BestFile() {}
+
+    /** "{serial}.BEST.json", or "unknown.BEST.json" for a battery without one. */
+    public static String fileName(BatteryDoc doc) {
+        String sn = doc.getSerial();
+        return (sn.isEmpty() ? "unknown" : sn) + SUFFIX;
+    }
+
+    public static boolean isBestFile(String name) {
+        return name.regionMatches(true, name.length() - SUFFIX.length(), SUFFIX, 0, SUFFIX.length());
+    }
+
+    /** File contents for {@code doc}. */
+    public static String toText(BatteryDoc doc) {
+        return indent(doc.toJson());
+    }
+
+    /** Re-indent compact JSON text; strings and numbers are copied through unchanged. */
+    public static String indent(String json) {
+        StringBuilder sb = new StringBuilder(json.length() * 2);
+        int depth = 0;
+        for (int i = 0; i < json.length(); i++) {
+            char c = json.charAt(i);
+            switch (c) {
+                case '"': {
+                    int end = i + 1;
+                    while (json.charAt(end) != '"') end += json.charAt(end) == '\\' ? 2 : 1;
+                    sb.append(json, i, end + 1);
+                    i = end;
+                    break;
+                }
+                case '{':
+                case '[': {
+                    char close = c == '{' ? '}' : ']';
+                    if (i + 1 < json.length() && json.charAt(i + 1) == close) {
+                        sb.append(c).append(close);
+                        i++;
+                    } else {
+                        sb.append(c);
+                        newLine(sb, ++depth);
+                    }
+                    break;
+                }
+                case '}':
+                case ']':
+                    newLine(sb, --depth);
+                    sb.append(c);
+                    break;
+                case ',':
+                    sb.append(',');
+                    newLine(sb, depth);
+                    break;
+                case ':':
+                    sb.append(": ");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void newLine(StringBuilder sb, int depth) {
+        sb.append('\n');
+        for (int d = 0; d < depth; d++) sb.append(INDENT);
+    }
+}
@@ -0,0 +1,103 @@
+package com.IronMaple.batterytagreader;
+
+import java.util.Locale;
+
+/**
+ * Battery serial numbers: free-form manual serials (up to 8 ASCII characters)
+ * and the BEST scheme, a 5-character team number padded with '-' followed by
+ * a 3-digit battery id:
+ * <pre>
+ * new battery      "1234-042"   id 000..899
+ * old battery      "1234-905"   9 + id 00..98
+ * special battery  "1234-999"
+ * </pre>
+ * Builders throw {@link IllegalArgumentException} with a message fit to show
+ * the user as-is.
+ */
+public final class BestSerial {
+
+    public static final int TYPE_NEW = 0;
+    public static final int TYPE_OLD = 1;
+    public static final int TYPE_SPECIAL = 2;
+
+    public static final int MAX_LENGTH = 8;
+
+    private static final int TEAM_WIDTH = 5;
+
+    private BestSerial() {}
+
+    /** A manual serial, trimmed. */
+    public static String manual(String text) {
+        String sn = text == null ? "" : text.trim();
+        String problem = check(sn);
+        if (problem != null) throw new IllegalArgumentException(problem);
+        return sn;
+    }
+
+    /**
+     * A BEST scheme serial. {@code id} is ignored for {@link #TYPE_SPECIAL}.
+     */
+    public static String best(String team, int type, String id) {
+        team = team == null ? "" : team.trim();
+        if (!team.matches("\\d{1,5}")) throw new IllegalArgumentException("Incomplete team number");
+        StringBuilder sb = new StringBuilder(MAX_LENGTH).append(team);
+        while (sb.length() < TEAM_WIDTH) sb.append('-');
+
+        if (type == TYPE_SPECIAL) return sb.append("999").toString();
+
+        id = id == null ? "" : id.trim();
+        if (!id.matches("\\d{1,9}")) throw new IllegalArgumentException("Incomplete ID");
+        int num = Integer.parseInt(id);
+        if (type == TYPE_NEW) {
+            if (num > 899) throw new IllegalArgumentException("Illegal ID (0–899)");
+            return sb.append(String.format(Locale.US, "%03d", num)).toString();
+        }
+        if (type == TYPE_OLD) {
+            if (num > 98) throw new IllegalArgumentException("Illegal ID (00–98)");
+            return sb.append(String.format(Locale.US, "9%02d", num)).toString();
+        }
+        throw new IllegalArgumentException("Unknown battery type " + type);
+    }
+
+    /** Why {@code sn} can't be written to a tag, or null if it can. */
+    public static String check(String sn) {
+        if (sn == null || sn.isEmpty()) return "Incomplete or too long";
+        if (sn.length() > MAX_LENGTH) return "Incomplete or too long";
+        for (int i = 0; i < sn.length(); i++) {
+            if (sn.charAt(i) > 0x7F) return "Illegal input (non-ASCII)";
+        }
+        return null;
+    }
+
+    // ------------------------------------------------------------------------
+    // Reading BEST serials back
+    // ------------------------------------------------------------------------
+
+    /** True if {@code sn} follows the BEST scheme. */
+    public static boolean isBest(String sn) {
+        if (sn == null || sn.length() != MAX_LENGTH || !isDigit(sn.charAt(0))) return false;
+        int i = 1;
+        while (i < TEAM_WIDTH && isDigit(sn.charAt(i))) i++;
+        while (i < TEAM_WIDTH && sn.charAt(i) == '-') i++;
+        if (i < TEAM_WIDTH) return false;
+        return isDigit(sn.charAt(5)) && isDigit(sn.charAt(6)) && isDigit(sn.charAt(7));
+    }
+
+    /** Team number of a BEST serial, or null. */
+    public static String team(String sn) {
+        if (!isBest(sn)) return null;
+        int end = sn.indexOf('-');
+        return sn.substring(0, end < 0 || end > TEAM_WIDTH ? TEAM_WIDTH : end);
+    }
+
+    /** {@code TYPE_*} of a BEST serial, or -1. */
+    public static int type(String sn) {
+        if (!isBest(sn)) return -1;
+        if (sn.endsWith("999")) return TYPE_SPECIAL;
+        return sn.charAt(5) == '9' ? TYPE_OLD : TYPE_NEW;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,47 @@
+package com.IronMaple.batterytagreader;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Schema checks for a parsed tag document, beyond what {@link BatteryDoc#parse}
+ * already rejects: a writable serial, real tag times, known devices and note
+ * types, and unique usage ids.
+ */
+public final class DocValidator {
+
+    /** Note types the app can set (Normal, Practice Only, Scrap, Other). */
+    public static final int MAX_NOTE = 3;
+
+    private DocValidator() {}
+
+    /** Problems with {@code doc}, one line each; empty if it is valid. */
+    public static List<String> validate(BatteryDoc doc) {
+        List<String> problems = new ArrayList<>();
+
+        String serialProblem = BestSerial.check(doc.getSerial());
+        if (serialProblem != null) problems.add("sn: " + serialProblem);
+        if (!isTagTimeOrUnset(doc.getFirstUse())) problems.add("fu: not a tag time: " + doc.getFirstUse());
+        if (doc.getCycleCount() < 0) problems.add("cc: negative (" + doc.getCycleCount() + ")");
+        if (doc.getNote() < 0 || doc.getNote() > MAX_NOTE) problems.add("n: unknown note type " + doc.getNote());
+
+        Set<Integer> seen = new HashSet<>();
+        BatteryDoc.UsageEntry entry = new BatteryDoc.UsageEntry();
+        for (int k = 0; k < doc.getUsageCount(); k++) {
+            doc.getUsage(k, entry);
+            String where = "u[" + k + "] (i=" + entry.id + "): ";
+            if (!seen.add(entry.id)) problems.add(where + "duplicate id");
+            if (!isTagTimeOrUnset(entry.time)) problems.add(where + "not a tag time: " + entry.time);
+            if (entry.device != BatteryDoc.DEVICE_ROBOT && entry.device != BatteryDoc.DEVICE_CHARGER) {
+                problems.add(where + "unknown device " + entry.device);
+            }
+        }
+        return problems;
+    }
+
+    private static boolean isTagTimeOrUnset(String text) {
+        return text.isEmpty() || text.equals(TagTime.ZERO) || TagTime.parse(text) != TagTime.NONE;
+    }
+}
@@ -0,0 +1,203 @@
+package com.IronMaple.batterytagreader;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Printable report for a whole fleet: a contents page, then one page per
+ * battery with the same section as {@link BatteryReportHtmlGenerator}.
+ *
+ * Battery sections are rendered in parallel on the given executor and
+ * streamed out in list order as they complete; at most a small window of
+ * rendered sections is held in memory, never the whole document.
+ */
+public final class FleetReport {
+
+    /** Rendered sections allowed to wait for their turn to be written. */
+    private static final int WINDOW = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+    private static final String PAGE_STYLE = "<style>\n"
+            + "  .page { break-after:page; page-break-after:always; }\n"
+            + "  .page:last-child { break-after:auto; page-break-after:auto; }\n"
+            + "  .contents td a { color:inherit; }\n"
+            + "</style>\n";
+
+    private interface Sink {
+        void write(int index, String rendered) throws IOException;
+    }
+
+    private FleetReport() {}
+
+    /**
+     * One paginated HTML document with every battery, in list order. Opens the
+     * print dialog when loaded, like the single-battery report.
+     */
+    public static void writeHtml(List<BatteryDoc> batteries, Writer out, ExecutorService executor)
+            throws IOException {
+        String[] names = pageNames(batteries);
+        String generated = BatteryReportHtmlGenerator.generatedNow();
+
+        out.write("<!DOCTYPE html>\n<html lang='en'><head>\n");
+        out.write("<meta charset='utf-8' />\n");
+        out.write("<title>Fleet Battery Report</title>\n");
+        out.write("<meta name='viewport' content='width=device-width, initial-scale=1' />\n");
+        out.write(BatteryReportHtmlGenerator.STYLE);
+        out.write(PAGE_STYLE);
+        out.write(BatteryReportHtmlGenerator.PRINT_SCRIPT);
+        out.write("</head>\n<body>\n");
+
+        out.write("<section class='page'>\n");
+        out.write(contents(batteries, generated, names, true));
+        out.write("</section>\n");
+
+        renderInOrder(batteries.size(), executor, i -> {
+            StringBuilder html = new StringBuilder(4096)
+                    .append("<section class='page' id='").append(anchorOf(names[i])).append("'>\n");
+            return BatteryReportHtmlGenerator.appendSection(html, batteries.get(i), generated)
+                    .append("</section>\n").toString();
+        }, (index, section) -> out.write(section));
+
+        out.write("</body></html>");
+        out.flush();
+    }
+
+    /**
+     * A ZIP with index.html (the contents page, linking every battery) and one
+     * standalone report page per battery, named after its serial.
+     */
+    public static void writeZip(List<BatteryDoc> batteries, OutputStream out, ExecutorService executor)
+            throws IOException {
+        String[] names = pageNames(batteries);
+        String generated = BatteryReportHtmlGenerator.generatedNow();
+
+        ZipOutputStream zip = new ZipOutputStream(out);
+        Writer text = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+
+        zip.putNextEntry(new ZipEntry("index.html"));
+        text.write("<!DOCTYPE html>\n<html lang='en'><head>\n<meta charset='utf-8' />\n"
+                + "<title>Fleet Battery Report</title>\n");
+        text.write(BatteryReportHtmlGenerator.STYLE);
+        text.write("</head>\n<body>\n");
+        text.write(contents(batteries, generated, names, false));
+        text.write("</body></html>");
+        text.flush();
+        zip.closeEntry();
+
+        Sink pages = (index, page) -> {
+            zip.putNextEntry(new ZipEntry(names[index]));
+            text.write(page);
+            text.flush();
+            zip.closeEntry();
+        };
+        renderInOrder(batteries.size(), executor,
+                i -> BatteryReportHtmlGenerator.generateHtml(batteries.get(i)), pages);
+        zip.finish();
+        zip.flush();
+    }
+
+    /** File name of each battery's page: the serial made file-safe, unique within the report. */
+    static String[] pageNames(List<BatteryDoc> batteries) {
+        String[] names = new String[batteries.size()];
+        Set<String> taken = new HashSet<>();
+        taken.add("index.html");
+        for (int i = 0; i < names.length; i++) {
+            String base = safeName(batteries.get(i).getSerial());
+            String name = base + ".html";
+            for (int n = 1; !taken.add(name.toLowerCase(Locale.ROOT)); n++) name = base + "_" + n + ".html";
+            names[i] = name;
+        }
+        return names;
+    }
+
+    // ------------------------------------------------------------------------
+    // Rendering
+    // ------------------------------------------------------------------------
+
+    /**
+     * Run {@code render} for 0..count-1 on {@code executor}, handing results to
+     * {@code sink} in index order. Keeps at most {@link #WINDOW} renders in flight.
+     */
+    private static void renderInOrder(int count, ExecutorService executor, IntFunction<String> render,
+                                      Sink sink) throws IOException {
+        ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+        int submitted = 0;
+        try {
+            for (int written = 0; written < count; written++) {
+                while (submitted < count && pending.size() < WINDOW) {
+                    int index = submitted++;
+                    pending.add(executor.submit(() -> render.apply(index)));
+                }
+                sink.write(written, pending.poll().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Report cancelled");
+        } catch (ExecutionException e) {
+            throw new IOException("Cannot render battery report", e.getCause());
+        } finally {
+            for (Future<String> f : pending) f.cancel(true);
+        }
+    }
+
+    /** Contents table; rows link to the battery pages, or to their sections when {@code inPage}. */
+    private static String contents(List<BatteryDoc> batteries, String generated, String[] pageNames,
+                                   boolean inPage) {
+        StringBuilder html = new StringBuilder(512 + 160 * batteries.size());
+        html.append("<h1>Fleet Battery Report</h1>\n")
+                .append("<div class='muted'>").append(batteries.size()).append(" batteries — generated ")
+                .append(BatteryReportHtmlGenerator.esc(generated)).append("</div>\n")
+                .append("<h2>Contents</h2>\n<table class='contents'>\n<thead>\n<tr>\n")
+                .append("<th>Serial</th>\n<th class='num'>Cycles</th>\n<th>Note</th>\n")
+                .append("<th class='num'>Records</th>\n<th>Last record</th>\n")
+                .append("</tr>\n</thead>\n<tbody>\n");
+
+        for (int i = 0; i < batteries.size(); i++) {
+            BatteryDoc doc = batteries.get(i);
+            String href = inPage ? "#" + anchorOf(pageNames[i]) : pageNames[i];
+            String sn = doc.getSerial().isEmpty() ? "(no serial)" : doc.getSerial();
+            int count = doc.getUsageCount();
+            String last = count == 0 ? "" : TagTime.display(doc.getUsageTime(doc.newestFirst()[0]));
+            html.append("<tr><td class='code'><a href='").append(href).append("'>")
+                    .append(BatteryReportHtmlGenerator.esc(sn)).append("</a></td>")
+                    .append("<td class='num'>").append(doc.getCycleCount()).append("</td>")
+                    .append("<td>").append(BatteryReportHtmlGenerator.noteName(doc.getNote())).append("</td>")
+                    .append("<td class='num'>").append(count).append("</td>")
+                    .append("<td>").append(BatteryReportHtmlGenerator.esc(last)).append("</td></tr>\n");
+        }
+        if (batteries.isEmpty()) {
+            html.append("<tr><td colspan='5' class='muted'>No batteries in the log.</td></tr>\n");
+        }
+        return html.append("</tbody>\n</table>\n").toString();
+    }
+
+    private static String anchorOf(String pageName) {
+        return pageName.substring(0, pageName.length() - ".html".length());
+    }
+
+    /** Serial reduced to [A-Za-z0-9_-], safe as an element id and a file name. */
+    private static String safeName(String sn) {
+        if (sn.isEmpty()) return "unknown";
+        StringBuilder sb = new StringBuilder(sn.length());
+        for (int i = 0; i < sn.length(); i++) {
+            char c = sn.charAt(i);
+            boolean ok = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-';
+            sb.append(ok ? c : '_');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,117 @@
+package com.IronMaple.batterytagreader;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with log-linear buckets, HDR style: values
+ * (microseconds) below 32 get a bucket each, above that every power of two
+ * is split into 16 buckets, so any recorded value is within about 3% of its
+ * bucket. Recording is a few atomic adds and never allocates.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB = 1 << SUB_BITS;       // linear buckets below this value
+    private static final int HALF = SUB >> 1;           // buckets per power of two above it
+    private static final int MAX_SHIFT = 40 - SUB_BITS; // values up to ~2^40 µs (12 days)
+    private static final int BUCKETS = SUB + MAX_SHIFT * HALF;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** Record a duration measured with {@code System.nanoTime()} or {@code elapsedRealtimeNanos()}. */
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1000);
+    }
+
+    public void recordMicros(long micros) {
+        if (micros < 0) micros = 0;
+        counts.incrementAndGet(bucketOf(micros));
+        totalMicros.addAndGet(micros);
+        long max;
+        do {
+            max = maxMicros.get();
+        } while (micros > max && !maxMicros.compareAndSet(max, micros));
+    }
+
+    /** Convenience for {@code recordNanos(System.nanoTime() - startNanos)}. */
+    public void recordSince(long startNanos) {
+        recordNanos(System.nanoTime() - startNanos);
+    }
+
+    /** A consistent-enough copy for display and export (buckets are read one at a time). */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            n += copy[i];
+        }
+        return new Snapshot(name, copy, n, totalMicros.get(), maxMicros.get());
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        totalMicros.set(0);
+        maxMicros.set(0);
+    }
+
+    static int bucketOf(long v) {
+        if (v < SUB) return (int) v;
+        int shift = 63 - Long.numberOfLeadingZeros(v) - (SUB_BITS - 1);
+        if (shift > MAX_SHIFT) return BUCKETS - 1;
+        return SUB + (shift - 1) * HALF + (int) ((v >>> shift) - HALF);
+    }
+
+    /** Middle of the value range of bucket {@code i}. */
+    static long valueOf(int i) {
+        if (i < SUB) return i;
+        int shift = (i - SUB) / HALF + 1;
+        long low = (long) (HALF + (i - SUB) % HALF) << shift;
+        return low + (1L << (shift - 1));
+    }
+
+    /** Histogram state at one moment; percentiles are computed from it. */
+    public static final class Snapshot {
+        public final String name;
+        public final long count;
+        public final long totalMicros;
+        public final long maxMicros;
+        private final long[] counts;
+
+        Snapshot(String name, long[] counts, long count, long totalMicros, long maxMicros) {
+            this.name = name;
+            this.counts = counts;
+            this.count = count;
+            this.totalMicros = totalMicros;
+            this.maxMicros = maxMicros;
+        }
+
+        /** Value at or below which {@code p} (0..1) of the recordings fall, in microseconds. */
+        public long percentileMicros(double p) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(p * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(valueOf(i), maxMicros);
+            }
+            return maxMicros;
+        }
+
+        public long meanMicros() {
+            return count == 0 ? 0 : totalMicros / count;
+        }
+    }
+}
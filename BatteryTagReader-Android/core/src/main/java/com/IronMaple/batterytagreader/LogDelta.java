@@ -0,0 +1,135 @@
+package com.IronMaple.batterytagreader;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Delta encoding of tag documents for the log.
+ *
+ * A delta holds the top-level fields that changed since the previous snapshot
+ * of the same battery, plus usage entries that appeared ({@code "+u"}) and the
+ * ids of entries trimmed off the tag ({@code "-u"}):
+ * <pre>
+ * {"cc":12,"+u":[{"i":31,"t":"2503141502","d":2,"e":0,"v":0}],"-u":[17]}
+ * </pre>
+ * Anything a delta can't reproduce exactly falls back to a full keyframe.
+ */
+public final class LogDelta {
+
+    public static final String ADDED = "+u";
+    public static final String REMOVED = "-u";
+    private static final String USAGE = "u";
+
+    private LogDelta() {}
+
+    /**
+     * Delta that turns {@code base} into {@code next}, or null when the change
+     * can't be expressed as one (removed fields, edited or reordered usage entries).
+     */
+    public static JSONObject diff(JSONObject base, JSONObject next) throws JSONException {
+        JSONObject delta = new JSONObject();
+
+        // Removed top-level keys need a keyframe
+        Iterator<String> baseKeys = base.keys();
+        while (baseKeys.hasNext()) {
+            if (!next.has(baseKeys.next())) return null;
+        }
+
+        Iterator<String> keys = next.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (key.equals(USAGE)) continue;
+            Object value = next.get(key);
+            if (!base.has(key) || !String.valueOf(base.get(key)).equals(String.valueOf(value))) {
+                delta.put(key, value);
+            }
+        }
+
+        JSONArray baseUsage = base.optJSONArray(USAGE);
+        JSONArray nextUsage = next.optJSONArray(USAGE);
+        if (nextUsage == null) {
+            if (next.has(USAGE)) return null; // "u" present but not an array
+            nextUsage = new JSONArray();
+        }
+        if (baseUsage == null) baseUsage = new JSONArray();
+
+        Map<Integer, String> baseById = usageById(baseUsage);
+        Map<Integer, String> nextById = usageById(nextUsage);
+        if (baseById == null || nextById == null) return null;
+
+        JSONArray added = new JSONArray();
+        for (int i = 0; i < nextUsage.length(); i++) {
+            JSONObject entry = nextUsage.getJSONObject(i);
+            String before = baseById.get(entry.getInt("i"));
+            if (before == null) {
+                added.put(entry);
+            } else if (!before.equals(entry.toString())) {
+                return null; // existing entry was edited
+            }
+        }
+        JSONArray removed = new JSONArray();
+        for (int i = 0; i < baseUsage.length(); i++) {
+            int id = baseUsage.getJSONObject(i).getInt("i");
+            if (!nextById.containsKey(id)) removed.put(id);
+        }
+        if (added.length() > 0) delta.put(ADDED, added);
+        if (removed.length() > 0) delta.put(REMOVED, removed);
+
+        // Only keep the delta if it reproduces next exactly (field and entry order included)
+        if (!apply(base, delta).toString().equals(next.toString())) return null;
+        return delta;
+    }
+
+    /** Rebuild the full document from its base snapshot and a delta. */
+    public static JSONObject apply(JSONObject base, JSONObject delta) throws JSONException {
+        JSONObject doc = new JSONObject(base.toString());
+
+        Iterator<String> keys = delta.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (key.equals(ADDED) || key.equals(REMOVED)) continue;
+            doc.put(key, delta.get(key));
+        }
+
+        JSONArray added = delta.optJSONArray(ADDED);
+        JSONArray removed = delta.optJSONArray(REMOVED);
+        if (added == null && removed == null) return doc;
+
+        Set<Integer> removedIds = new HashSet<>();
+        if (removed != null) {
+            for (int i = 0; i < removed.length(); i++) removedIds.add(removed.getInt(i));
+        }
+
+        JSONArray usage = new JSONArray();
+        JSONArray baseUsage = doc.optJSONArray(USAGE);
+        if (baseUsage != null) {
+            for (int i = 0; i < baseUsage.length(); i++) {
+                JSONObject entry = baseUsage.getJSONObject(i);
+                if (!removedIds.contains(entry.optInt("i"))) usage.put(entry);
+            }
+        }
+        if (added != null) {
+            for (int i = 0; i < added.length(); i++) usage.put(added.get(i));
+        }
+        doc.put(USAGE, usage);
+        return doc;
+    }
+
+    /** Entry text keyed by "i", or null if an entry has no id or ids repeat. */
+    private static Map<Integer, String> usageById(JSONArray usage) throws JSONException {
+        Map<Integer, String> byId = new HashMap<>();
+        for (int i = 0; i < usage.length(); i++) {
+            JSONObject entry = usage.optJSONObject(i);
+            if (entry == null || !entry.has("i")) return null;
+            if (byId.put(entry.getInt("i"), entry.toString()) != null) return null;
+        }
+        return byId;
+    }
+}
@@ -0,0 +1,101 @@
+package com.IronMaple.batterytagreader;
+
+import org.json.JSONObject;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Chooses how each new log entry is stored: as a {@link LogDelta} against the
+ * previous entry of the same battery, or as a full keyframe, with a keyframe
+ * at least every {@link #KEYFRAME_INTERVAL} entries so rebuilding any entry
+ * applies a bounded number of deltas.
+ *
+ * {@code T} is whatever the caller uses to refer to a stored entry (a row, an
+ * index); the encoder hands it back as the base of the next delta. Not
+ * thread-safe: the log writer uses one from its own thread.
+ */
+public final class LogDeltaEncoder<T> {
+
+    /** Entries per battery between full snapshots; bounds the rebuild cost of any entry. */
+    public static final int KEYFRAME_INTERVAL = 16;
+
+    /** How one entry is stored. */
+    public static final class Encoded<T> {
+        /** The delta to store, or null to store the full document (a keyframe). */
+        public final JSONObject delta;
+        /** The entry {@link #delta} applies to; null for a keyframe. */
+        public final T base;
+
+        Encoded(JSONObject delta, T base) {
+            this.delta = delta;
+            this.base = base;
+        }
+
+        public boolean isKeyframe() {
+            return delta == null;
+        }
+    }
+
+    private static final class Chain<T> {
+        T last;
+        JSONObject doc;
+        int sinceKeyframe;
+    }
+
+    private final Map<String, Chain<T>> chains;
+
+    /** @param maxSerials batteries tracked at once; the least recently logged one is forgotten first */
+    public LogDeltaEncoder(int maxSerials) {
+        chains = new LinkedHashMap<String, Chain<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Chain<T>> eldest) {
+                return size() > maxSerials;
+            }
+        };
+    }
+
+    /**
+     * Encode {@code doc}, the next entry of battery {@code sn}, which will be
+     * stored as {@code entry}. The encoder keeps {@code doc}; don't modify it afterwards.
+     */
+    public Encoded<T> encode(String sn, JSONObject doc, T entry) {
+        Chain<T> chain = chains.get(sn);
+        JSONObject delta = null;
+        if (chain != null && chain.sinceKeyframe < KEYFRAME_INTERVAL - 1) {
+            try {
+                delta = LogDelta.diff(chain.doc, doc);
+            } catch (Exception e) {
+                delta = null;
+            }
+        }
+
+        Encoded<T> encoded;
+        if (delta == null) {
+            chain = new Chain<>();
+            chains.put(sn, chain);
+            encoded = new Encoded<>(null, null);
+        } else {
+            encoded = new Encoded<>(delta, chain.last);
+            chain.sinceKeyframe++;
+        }
+        chain.last = entry;
+        chain.doc = doc;
+        return encoded;
+    }
+
+    /** Forget batteries whose last entry matches (e.g. it was deleted); their next entry is a keyframe. */
+    public void forgetIf(Predicate<T> lastEntry) {
+        Iterator<Chain<T>> it = chains.values().iterator();
+        while (it.hasNext()) {
+            if (lastEntry.test(it.next().last)) it.remove();
+        }
+    }
+
+    /** Forget everything; every battery's next entry is a keyframe. */
+    public void clear() {
+        chains.clear();
+    }
+}
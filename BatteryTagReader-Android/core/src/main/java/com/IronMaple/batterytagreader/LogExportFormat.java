@@ -0,0 +1,265 @@
+package com.IronMaple.batterytagreader;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Row formatting for the CSV, NDJSON and JSON log exports, shared by the app's
+ * exporter and the command-line tools.
+ */
+public final class LogExportFormat {
+
+    // Fixed CSV header (do NOT localize)
+    public static final String CSV_HEADER = "time,type,sn,fu,cc,n,i,t,d,e,v";
+
+    private LogExportFormat() {}
+
+    /**
+     * Write one log entry as CSV: a row per usage entry, or a single row with
+     * empty usage columns. {@code prefix} is scratch space reused between calls.
+     */
+    public static void writeCsvRows(Writer out, StringBuilder prefix, String localTime, String type,
+                             String sn, int cc, int note, String dataJson) throws IOException {
+        BatteryDoc data;
+        try {
+            data = BatteryDoc.parse(dataJson);
+        } catch (Exception e) {
+            data = new BatteryDoc();
+        }
+
+        // Columns shared by every usage row of this entry
+        prefix.setLength(0);
+        appendField(prefix, localTime).append(',');
+        appendField(prefix, type).append(',');
+        appendField(prefix, sn).append(',');
+        appendField(prefix, data.getFirstUse()).append(',');
+        prefix.append(cc).append(',');
+        prefix.append(note).append(',');
+
+        if (data.getUsageCount() == 0) {
+            out.append(prefix).append(",,,,\r\n");
+            return;
+        }
+        for (int k = 0; k < data.getUsageCount(); k++) {
+            out.append(prefix)
+                    .append(String.valueOf(data.getUsageId(k))).append(',')
+                    .append(escapeField(data.getUsageTime(k))).append(',')
+                    .append(String.valueOf(data.getUsageDevice(k))).append(',')
+                    .append(String.valueOf(data.getUsageEnergy(k))).append(',')
+                    .append(String.valueOf(data.getUsageVoltage(k))).append("\r\n");
+        }
+    }
+
+    /** Write one compact {"time","type","data"} line; the document text is copied through as-is (null if unreadable). */
+    public static void writeNdjsonLine(Writer out, String utcTime, String type, String dataJson) throws IOException {
+        out.write("{\"time\":");
+        out.write(JSONObject.quote(utcTime));
+        out.write(",\"type\":");
+        out.write(JSONObject.quote(type));
+        out.write(",\"data\":");
+        out.write(dataJson == null ? "null" : dataJson);
+        out.write("}\n");
+    }
+
+    // ------------------------------------------------------------------------
+    // JSON array export
+    // ------------------------------------------------------------------------
+
+    /**
+     * Write one {"time","type","data"} element of the JSON export array, opening
+     * the array before the first one; finish with {@link #endJsonArray}. The
+     * document text is re-laid out token by token (two-space indent, or
+     * compact) rather than parsed into a tree; unreadable text is written as
+     * null. {@code scratch} is reused between calls and holds one element.
+     */
+    public static void writeJsonElement(Writer out, StringBuilder scratch, boolean first, boolean indent,
+                                        String utcTime, String type, String dataJson) throws IOException {
+        String colon = indent ? ": " : ":";
+        scratch.setLength(0);
+        scratch.append(first ? '[' : ',');
+        newline(scratch, indent, 1);
+        scratch.append('{');
+        newline(scratch, indent, 2);
+        scratch.append("\"time\"").append(colon).append(JSONObject.quote(utcTime)).append(',');
+        newline(scratch, indent, 2);
+        scratch.append("\"type\"").append(colon).append(JSONObject.quote(type)).append(',');
+        newline(scratch, indent, 2);
+        scratch.append("\"data\"").append(colon);
+        int mark = scratch.length();
+        if (dataJson == null || !new Relayout(dataJson, scratch, indent).value(2)) {
+            scratch.setLength(mark);
+            scratch.append("null");
+        }
+        newline(scratch, indent, 1);
+        scratch.append('}');
+        out.append(scratch);
+    }
+
+    /** Close the JSON export array; {@code empty} if no element was written. */
+    public static void endJsonArray(Writer out, boolean empty, boolean indent) throws IOException {
+        if (empty) {
+            out.write("[]");
+        } else {
+            out.write(indent ? "\n]" : "]");
+        }
+    }
+
+    private static void newline(StringBuilder sb, boolean indent, int depth) {
+        if (!indent) return;
+        sb.append('\n');
+        for (int i = 0; i < depth; i++) sb.append("  ");
+    }
+
+    /**
+     * Copies one JSON value into the output, keeping strings and numbers as
+     * written and replacing only the whitespace between tokens.
+     */
+    private static final class Relayout {
+        private final String text;
+        private final StringBuilder out;
+        private final boolean indent;
+        private int pos;
+
+        Relayout(String text, StringBuilder out, boolean indent) {
+            this.text = text;
+            this.out = out;
+            this.indent = indent;
+        }
+
+        /** @return false if the text is not exactly one well-formed value */
+        boolean value(int depth) {
+            try {
+                copyValue(depth);
+                skipSpace();
+                return pos == text.length();
+            } catch (IllegalArgumentException | StringIndexOutOfBoundsException e) {
+                return false;
+            }
+        }
+
+        private void copyValue(int depth) {
+            skipSpace();
+            char c = text.charAt(pos);
+            if (c == '{' || c == '[') {
+                char close = c == '{' ? '}' : ']';
+                pos++;
+                skipSpace();
+                if (text.charAt(pos) == close) {
+                    pos++;
+                    out.append(c).append(close);
+                    return;
+                }
+                out.append(c);
+                boolean firstMember = true;
+                do {
+                    if (!firstMember) out.append(',');
+                    firstMember = false;
+                    newline(out, indent, depth + 1);
+                    if (c == '{') {
+                        skipSpace();
+                        copyString();
+                        skipSpace();
+                        expect(':');
+                        out.append(indent ? ": " : ":");
+                    }
+                    copyValue(depth + 1);
+                    skipSpace();
+                } while (consume(','));
+                expect(close);
+                newline(out, indent, depth);
+                out.append(close);
+            } else if (c == '"') {
+                copyString();
+            } else if (text.startsWith("true", pos) || text.startsWith("null", pos)) {
+                out.append(text, pos, pos += 4);
+            } else if (text.startsWith("false", pos)) {
+                out.append(text, pos, pos += 5);
+            } else {
+                copyNumber();
+            }
+        }
+
+        private void copyString() {
+            int start = pos;
+            expect('"');
+            while (true) {
+                char c = text.charAt(pos++);
+                if (c == '"') break;
+                if (c < 0x20) throw new IllegalArgumentException();
+                if (c != '\\') continue;
+                c = text.charAt(pos++);
+                if (c == 'u') {
+                    for (int i = 0; i < 4; i++) {
+                        if (Character.digit(text.charAt(pos++), 16) < 0) throw new IllegalArgumentException();
+                    }
+                } else if ("\"\\/bfnrt".indexOf(c) < 0) {
+                    throw new IllegalArgumentException();
+                }
+            }
+            out.append(text, start, pos);
+        }
+
+        private void copyNumber() {
+            int start = pos;
+            consume('-');
+            if (!consume('0')) digits();
+            if (consume('.')) digits();
+            if (consume('e') || consume('E')) {
+                if (!consume('+')) consume('-');
+                digits();
+            }
+            out.append(text, start, pos);
+        }
+
+        private void digits() {
+            int start = pos;
+            while (pos < text.length() && text.charAt(pos) >= '0' && text.charAt(pos) <= '9') pos++;
+            if (pos == start) throw new IllegalArgumentException();
+        }
+
+        private void skipSpace() {
+            while (pos < text.length()) {
+                char c = text.charAt(pos);
+                if (c != ' ' && c != '\t' && c != '\n' && c != '\r') break;
+                pos++;
+            }
+        }
+
+        private boolean consume(char c) {
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!consume(c)) throw new IllegalArgumentException();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // RFC 4180 quoting
+    // ------------------------------------------------------------------------
+
+    private static StringBuilder appendField(StringBuilder sb, String value) {
+        return sb.append(escapeField(value));
+    }
+
+    /** Quote a field only when it contains a comma, quote or line break; quotes are doubled. */
+    public static String escapeField(String value) {
+        if (value == null || value.isEmpty()) return "";
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == ',' || ch == '"' || ch == '\r' || ch == '\n') {
+                needsQuotes = true;
+                break;
+            }
+        }
+        if (!needsQuotes) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,45 @@
+package com.IronMaple.batterytagreader;
+
+/**
+ * Shared "yyyy-MM-dd HH:mm" formatter for log timestamps.
+ *
+ * Formatting is done by {@link TagTime} (no SimpleDateFormat), and each thread
+ * remembers the last formatted minute: log rows come in time order, so
+ * consecutive rows usually hit the cache instead of formatting again.
+ */
+public final class LogTimeFormatter {
+
+    private static final long MINUTE_MS = 60_000L;
+
+    private static final ThreadLocal<LogTimeFormatter> UTC =
+            ThreadLocal.withInitial(() -> new LogTimeFormatter(true));
+    private static final ThreadLocal<LogTimeFormatter> LOCAL =
+            ThreadLocal.withInitial(() -> new LogTimeFormatter(false));
+
+    private final boolean utc;
+    private long cachedMinute = Long.MIN_VALUE;
+    private String cachedText;
+
+    private LogTimeFormatter(boolean utc) {
+        this.utc = utc;
+    }
+
+    /** UTC time, as stored in the log since the first version. */
+    public static String formatUtc(long millis) {
+        return UTC.get().format(millis);
+    }
+
+    /** Device-local time, for exports and display. */
+    public static String formatLocal(long millis) {
+        return LOCAL.get().format(millis);
+    }
+
+    private String format(long millis) {
+        long minute = Math.floorDiv(millis, MINUTE_MS);
+        if (minute != cachedMinute) {
+            cachedText = utc ? TagTime.formatUtc(millis) : TagTime.formatLocal(millis);
+            cachedMinute = minute;
+        }
+        return cachedText;
+    }
+}
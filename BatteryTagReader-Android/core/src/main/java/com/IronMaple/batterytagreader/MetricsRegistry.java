@@ -0,0 +1,109 @@
+package com.IronMaple.batterytagreader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide latency histograms, counters and gauges, by name ("tag.read",
+ * "log.commit", ...). Lookups are lock-free; callers on hot paths keep the
+ * returned histogram or counter in a static field. Gauges are read only when
+ * metrics are shown or exported.
+ */
+public final class MetricsRegistry {
+
+    private static final ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    private MetricsRegistry() {}
+
+    public static LatencyHistogram histogram(String name) {
+        LatencyHistogram h = histograms.get(name);
+        return h != null ? h : histograms.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    public static AtomicLong counter(String name) {
+        AtomicLong c = counters.get(name);
+        return c != null ? c : counters.computeIfAbsent(name, n -> new AtomicLong());
+    }
+
+    /** Report {@code value} (e.g. a queue's current size) as {@code name}; replaces an earlier gauge of that name. */
+    public static void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /** Snapshots of every histogram, by name. */
+    public static List<LatencyHistogram.Snapshot> histograms() {
+        List<LatencyHistogram.Snapshot> out = new ArrayList<>();
+        for (LatencyHistogram h : new TreeMap<>(histograms).values()) out.add(h.snapshot());
+        return out;
+    }
+
+    /** Current value of every counter, by name. */
+    public static Map<String, Long> counters() {
+        Map<String, Long> out = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> e : counters.entrySet()) out.put(e.getKey(), e.getValue().get());
+        return out;
+    }
+
+    /** Current value of every gauge, by name. */
+    public static Map<String, Long> gauges() {
+        Map<String, Long> out = new TreeMap<>();
+        for (Map.Entry<String, LongSupplier> e : gauges.entrySet()) out.put(e.getKey(), e.getValue().getAsLong());
+        return out;
+    }
+
+    /** Zero histograms and counters; names stay registered. Gauges are live values and are not reset. */
+    public static void reset() {
+        for (LatencyHistogram h : histograms.values()) h.reset();
+        for (AtomicLong c : counters.values()) c.set(0);
+    }
+
+    // ------------------------------------------------------------------------
+    // Export
+    // ------------------------------------------------------------------------
+
+    /**
+     * All metrics as one JSON object: {"histograms":{name:{count,mean_us,p50_us,
+     * p95_us,p99_us,max_us}},"counters":{name:value},"gauges":{name:value}}.
+     */
+    public static String toJson() {
+        StringBuilder sb = new StringBuilder(256).append("{\"histograms\":{");
+        boolean first = true;
+        for (LatencyHistogram.Snapshot s : histograms()) {
+            if (!first) sb.append(',');
+            first = false;
+            sb.append(quote(s.name)).append(String.format(Locale.US,
+                    ":{\"count\":%d,\"mean_us\":%d,\"p50_us\":%d,\"p95_us\":%d,\"p99_us\":%d,\"max_us\":%d}",
+                    s.count, s.meanMicros(), s.percentileMicros(0.50), s.percentileMicros(0.95),
+                    s.percentileMicros(0.99), s.maxMicros));
+        }
+        sb.append("},\"counters\":");
+        appendValues(sb, counters());
+        sb.append(",\"gauges\":");
+        appendValues(sb, gauges());
+        return sb.append('}').toString();
+    }
+
+    private static void appendValues(StringBuilder sb, Map<String, Long> values) {
+        sb.append('{');
+        boolean first = true;
+        for (Map.Entry<String, Long> e : values.entrySet()) {
+            if (!first) sb.append(',');
+            first = false;
+            sb.append(quote(e.getKey())).append(':').append(e.getValue());
+        }
+        sb.append('}');
+    }
+
+    /** Metric names are code constants; only quotes and backslashes need escaping. */
+    private static String quote(String s) {
+        return '"' + s.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+}
@@ -0,0 +1,209 @@
+package com.IronMaple.batterytagreader;
+
+import java.util.TimeZone;
+
+/**
+ * The tag timestamp format, "yyMMddHHmm" in UTC (years 2000-2099), converted
+ * to and from epoch minutes and to "yyyy-MM-dd HH:mm" display text.
+ *
+ * Digits are parsed and written by hand (no SimpleDateFormat), and display
+ * strings for recently shown tag times are cached, so rendering a tag
+ * allocates no formatters. All methods are thread-safe.
+ */
+public final class TagTime {
+
+    /** What tags hold when a time was never set. */
+    public static final String ZERO = "0000000000";
+
+    /** Result of {@link #parse} for empty, all-zero or malformed text. */
+    public static final long NONE = Long.MIN_VALUE;
+
+    public static final String NOT_AVAILABLE = "Date not available";
+
+    private static final long MINUTE_MS = 60_000L;
+
+    // Direct-mapped cache of tag text -> local display text; entries are immutable
+    private static final int CACHE_SIZE = 64;
+    private static final Cached[] cache = new Cached[CACHE_SIZE];
+
+    private static final class Cached {
+        final String text;
+        final String zoneId;
+        final String display;
+
+        Cached(String text, String zoneId, String display) {
+            this.text = text;
+            this.zoneId = zoneId;
+            this.display = display;
+        }
+    }
+
+    private TagTime() {}
+
+    // ------------------------------------------------------------------------
+    // yyMMddHHmm <-> epoch minutes
+    // ------------------------------------------------------------------------
+
+    /** Minutes since 1970-01-01 00:00 UTC, or {@link #NONE} unless {@code text} is a valid, non-zero tag time. */
+    public static long parse(String text) {
+        if (text == null || text.length() != 10) return NONE;
+        int yy = digits(text, 0), month = digits(text, 2), day = digits(text, 4);
+        int hour = digits(text, 6), minute = digits(text, 8);
+        if ((yy | month | day | hour | minute) < 0) return NONE;
+
+        int year = 2000 + yy;
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour > 23 || minute > 59) {
+            return NONE;
+        }
+        return (daysFromCivil(year, month, day) * 24 + hour) * 60 + minute;
+    }
+
+    /** Tag text for {@code epochMinutes} (UTC). */
+    public static String format(long epochMinutes) {
+        char[] out = new char[10];
+        long days = Math.floorDiv(epochMinutes, 1440);
+        int minuteOfDay = Math.floorMod(epochMinutes, 1440);
+        int ymd = civilFromDays(days);
+        put2(out, 0, Math.floorMod(year(ymd), 100));
+        put2(out, 2, month(ymd));
+        put2(out, 4, day(ymd));
+        put2(out, 6, minuteOfDay / 60);
+        put2(out, 8, minuteOfDay % 60);
+        return new String(out);
+    }
+
+    /** The current time as tag text. */
+    public static String now() {
+        return format(Math.floorDiv(System.currentTimeMillis(), MINUTE_MS));
+    }
+
+    public static long toMillis(long epochMinutes) {
+        return epochMinutes * MINUTE_MS;
+    }
+
+    /** Epoch millis of a tag time, or 0 if it has none. */
+    public static long toMillis(String text) {
+        long minutes = parse(text);
+        return minutes == NONE ? 0 : toMillis(minutes);
+    }
+
+    // ------------------------------------------------------------------------
+    // Display
+    // ------------------------------------------------------------------------
+
+    /**
+     * Tag time as device-local "yyyy-MM-dd HH:mm". Empty or all-zero text is
+     * {@link #NOT_AVAILABLE}; anything else that isn't a tag time is returned as-is.
+     */
+    public static String display(String text) {
+        if (text == null) return NOT_AVAILABLE;
+        text = text.trim();
+        if (isZero(text)) return NOT_AVAILABLE;
+        if (text.length() != 10) return text;
+
+        TimeZone zone = TimeZone.getDefault();
+        String zoneId = zone.getID();
+        int slot = (text.hashCode() & 0x7FFFFFFF) % CACHE_SIZE;
+        Cached hit = cache[slot];
+        if (hit != null && hit.text.equals(text) && hit.zoneId.equals(zoneId)) return hit.display;
+
+        long minutes = parse(text);
+        if (minutes == NONE) return text;
+        String display = formatLocal(toMillis(minutes), zone);
+        cache[slot] = new Cached(text, zoneId, display);
+        return display;
+    }
+
+    /** {@code millis} as "yyyy-MM-dd HH:mm" in UTC. */
+    public static String formatUtc(long millis) {
+        return formatDateTime(Math.floorDiv(millis, MINUTE_MS));
+    }
+
+    /** {@code millis} as "yyyy-MM-dd HH:mm" in the device's time zone. */
+    public static String formatLocal(long millis) {
+        return formatLocal(millis, TimeZone.getDefault());
+    }
+
+    private static String formatLocal(long millis, TimeZone zone) {
+        return formatDateTime(Math.floorDiv(millis + zone.getOffset(millis), MINUTE_MS));
+    }
+
+    private static String formatDateTime(long minutes) {
+        char[] out = new char[16];
+        long days = Math.floorDiv(minutes, 1440);
+        int minuteOfDay = Math.floorMod(minutes, 1440);
+        int ymd = civilFromDays(days);
+        put2(out, 0, Math.floorMod(year(ymd) / 100, 100));
+        put2(out, 2, Math.floorMod(year(ymd), 100));
+        out[4] = '-';
+        put2(out, 5, month(ymd));
+        out[7] = '-';
+        put2(out, 8, day(ymd));
+        out[10] = ' ';
+        put2(out, 11, minuteOfDay / 60);
+        out[13] = ':';
+        put2(out, 14, minuteOfDay % 60);
+        return new String(out);
+    }
+
+    private static boolean isZero(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) != '0') return false;
+        }
+        return true; // empty counts as zero
+    }
+
+    // ------------------------------------------------------------------------
+    // Digits and the proleptic Gregorian calendar
+    // ------------------------------------------------------------------------
+
+    /** Two-digit number at {@code offset}, or -1. */
+    private static int digits(String text, int offset) {
+        int hi = text.charAt(offset) - '0';
+        int lo = text.charAt(offset + 1) - '0';
+        if (hi < 0 || hi > 9 || lo < 0 || lo > 9) return -1;
+        return hi * 10 + lo;
+    }
+
+    private static void put2(char[] out, int offset, int value) {
+        out[offset] = (char) ('0' + value / 10);
+        out[offset + 1] = (char) ('0' + value % 10);
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /** Days since 1970-01-01 (H. Hinnant's days_from_civil). */
+    private static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /** Date for days since 1970-01-01 (inverse of {@link #daysFromCivil}), packed as year:month:day. */
+    private static int civilFromDays(long days) {
+        days += 719468;
+        long era = Math.floorDiv(days, 146097);
+        long dayOfEra = days - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+        return (year << 9) | (month << 5) | day;
+    }
+
+    private static int year(int ymd)  { return ymd >> 9; }
+    private static int month(int ymd) { return (ymd >> 5) & 0xF; }
+    private static int day(int ymd)   { return ymd & 0x1F; }
+}
@@ -0,0 +1,125 @@
+package com.IronMaple.batterytagreader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class BatteryDocTest {
+
+    private static final String TAG_JSON =
+            "{\"sn\":\"00254-012\",\"fu\":\"2401151030\",\"cc\":12,\"n\":1,\"u\":["
+            + "{\"i\":1,\"t\":\"2401151100\",\"d\":1,\"e\":180,\"v\":12},"
+            + "{\"i\":2,\"t\":\"2401151300\",\"d\":2,\"e\":0,\"v\":0}]}";
+
+    @Test
+    public void parsesEveryField() throws JSONException {
+        BatteryDoc doc = BatteryDoc.parse(TAG_JSON);
+
+        assertEquals("00254-012", doc.getSerial());
+        assertEquals("2401151030", doc.getFirstUse());
+        assertEquals(12, doc.getCycleCount());
+        assertEquals(1, doc.getNote());
+        assertEquals(2, doc.getUsageCount());
+        assertEquals(1, doc.getUsageId(0));
+        assertEquals("2401151100", doc.getUsageTime(0));
+        assertEquals(BatteryDoc.DEVICE_ROBOT, doc.getUsageDevice(0));
+        assertEquals(180, doc.getUsageEnergy(0));
+        assertEquals(12, doc.getUsageVoltage(0));
+        assertEquals(BatteryDoc.DEVICE_CHARGER, doc.getUsageDevice(1));
+        assertFalse(doc.hasUnknownFields());
+    }
+
+    @Test
+    public void serializesToTheParsedText() throws JSONException {
+        assertEquals(TAG_JSON, BatteryDoc.parse(TAG_JSON).toJson());
+    }
+
+    @Test
+    public void roundTripsThroughOrgJson() throws JSONException {
+        BatteryDoc doc = BatteryDoc.parse(TAG_JSON);
+        JSONObject parsed = new JSONObject(doc.toJson());
+
+        assertEquals("00254-012", parsed.getString("sn"));
+        assertEquals(12, parsed.getInt("cc"));
+        assertEquals(2, parsed.getJSONArray("u").length());
+        assertEquals(doc.toJson(), BatteryDoc.parse(parsed.toString()).toJson());
+    }
+
+    @Test
+    public void keepsUnknownFields() throws JSONException {
+        String text = "{\"sn\":\"A\",\"fu\":\"0000000000\",\"cc\":0,\"n\":0,"
+                + "\"u\":[{\"i\":1,\"t\":\"2401151100\",\"d\":1,\"e\":0,\"v\":0,\"x\":[1,{\"y\":null}]}],"
+                + "\"team\":\"254\"}";
+        BatteryDoc doc = BatteryDoc.parse(text);
+
+        assertTrue(doc.hasUnknownFields());
+        assertEquals(text, doc.toJson());
+    }
+
+    @Test
+    public void escapesSerialOnTheWayOut() throws JSONException {
+        BatteryDoc doc = new BatteryDoc("a\"b\\c\n\u0001", TagTime.ZERO);
+
+        BatteryDoc back = BatteryDoc.parse(doc.toJson());
+
+        assertEquals("a\"b\\c\n\u0001", back.getSerial());
+        assertEquals(doc.toJson(), back.toJson());
+    }
+
+    @Test
+    public void acceptsLooseButValidShapes() throws JSONException {
+        // Whitespace, numbers written as strings and a null usage list are all seen on real tags
+        BatteryDoc doc = BatteryDoc.parse(" { \"sn\" : \"B\" , \"cc\" : \"7\" , \"u\" : null } ");
+
+        assertEquals("B", doc.getSerial());
+        assertEquals(7, doc.getCycleCount());
+        assertEquals(0, doc.getUsageCount());
+    }
+
+    @Test
+    public void fingerprintFollowsContent() throws JSONException {
+        BatteryDoc a = BatteryDoc.parse(TAG_JSON);
+        BatteryDoc b = BatteryDoc.parse(TAG_JSON);
+        assertEquals(a.fingerprint(), b.fingerprint());
+
+        b.setCycleCount(13);
+        assertNotEquals(a.fingerprint(), b.fingerprint());
+    }
+
+    @Test
+    public void rejectsMalformedInput() {
+        String[] bad = {
+                null,
+                "",
+                "   ",
+                "[]",
+                "\"sn\"",
+                "{",
+                "{\"sn\":\"A\"",
+                "{\"sn\":\"A\",}",
+                "{\"sn\" \"A\"}",
+                "{sn:\"A\"}",
+                "{\"cc\":{}}",
+                "{\"cc\":1.}",
+                "{\"sn\":[]}",
+                "{\"u\":{}}",
+                "{\"u\":[1]}",
+                "{\"u\":[{\"i\":1}",
+                "{} trailing",
+        };
+        for (String text : bad) {
+            try {
+                BatteryDoc.parse(text);
+                fail("Parsed malformed document: " + text);
+            } catch (JSONException expected) {
+                // ok
+            }
+        }
+    }
+}
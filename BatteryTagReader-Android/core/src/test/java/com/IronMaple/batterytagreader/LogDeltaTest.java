@@ -0,0 +1,137 @@
+package com.IronMaple.batterytagreader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class LogDeltaTest {
+
+    private static final String BASE =
+            "{\"sn\":\"00254-012\",\"fu\":\"2401151030\",\"cc\":12,\"n\":0,\"u\":["
+            + "{\"i\":1,\"t\":\"2401151100\",\"d\":1,\"e\":180,\"v\":12},"
+            + "{\"i\":2,\"t\":\"2401151300\",\"d\":2,\"e\":0,\"v\":0}]}";
+
+    private static JSONObject json(String text) throws JSONException {
+        return new JSONObject(text);
+    }
+
+    private static void assertRoundTrip(JSONObject base, JSONObject next) throws JSONException {
+        JSONObject delta = LogDelta.diff(base, next);
+        assertNotNull("expected a delta", delta);
+        assertEquals(next.toString(), LogDelta.apply(base, delta).toString());
+    }
+
+    @Test
+    public void unchangedDocumentGivesEmptyDelta() throws JSONException {
+        JSONObject delta = LogDelta.diff(json(BASE), json(BASE));
+
+        assertNotNull(delta);
+        assertEquals(0, delta.length());
+        assertEquals(json(BASE).toString(), LogDelta.apply(json(BASE), delta).toString());
+    }
+
+    @Test
+    public void changedFieldsAndAddedEntry() throws JSONException {
+        JSONObject next = json(BASE);
+        next.put("cc", 13);
+        next.put("n", 2);
+        next.getJSONArray("u").put(json("{\"i\":3,\"t\":\"2401161000\",\"d\":1,\"e\":150,\"v\":12}"));
+
+        JSONObject delta = LogDelta.diff(json(BASE), next);
+
+        assertNotNull(delta);
+        assertEquals(13, delta.getInt("cc"));
+        assertEquals(2, delta.getInt("n"));
+        assertFalse(delta.has("sn"));
+        assertEquals(1, delta.getJSONArray(LogDelta.ADDED).length());
+        assertFalse(delta.has(LogDelta.REMOVED));
+        assertRoundTrip(json(BASE), next);
+    }
+
+    @Test
+    public void trimmedEntriesAreRemovedById() throws JSONException {
+        JSONObject next = json(BASE);
+        next.getJSONArray("u").remove(0);
+        next.getJSONArray("u").put(json("{\"i\":3,\"t\":\"2401161000\",\"d\":2,\"e\":0,\"v\":0}"));
+
+        JSONObject delta = LogDelta.diff(json(BASE), next);
+
+        assertNotNull(delta);
+        assertEquals(1, delta.getJSONArray(LogDelta.REMOVED).getInt(0));
+        assertRoundTrip(json(BASE), next);
+    }
+
+    @Test
+    public void addedTopLevelFieldIsCarried() throws JSONException {
+        JSONObject next = json(BASE);
+        next.put("team", "254");
+
+        assertRoundTrip(json(BASE), next);
+    }
+
+    @Test
+    public void usageFromNothing() throws JSONException {
+        JSONObject base = json("{\"sn\":\"A\",\"fu\":\"0000000000\",\"cc\":0,\"n\":0,\"u\":[]}");
+        JSONObject next = json("{\"sn\":\"A\",\"fu\":\"2401151030\",\"cc\":1,\"n\":0,"
+                + "\"u\":[{\"i\":1,\"t\":\"2401151100\",\"d\":1,\"e\":0,\"v\":0}]}");
+
+        assertRoundTrip(base, next);
+    }
+
+    @Test
+    public void removedFieldNeedsKeyframe() throws JSONException {
+        JSONObject next = json(BASE);
+        next.remove("n");
+
+        assertNull(LogDelta.diff(json(BASE), next));
+    }
+
+    @Test
+    public void editedEntryNeedsKeyframe() throws JSONException {
+        JSONObject next = json(BASE);
+        next.getJSONArray("u").getJSONObject(0).put("e", 999);
+
+        assertNull(LogDelta.diff(json(BASE), next));
+    }
+
+    @Test
+    public void reorderedEntriesNeedKeyframe() throws JSONException {
+        JSONObject next = json(BASE);
+        Object first = next.getJSONArray("u").remove(0);
+        next.getJSONArray("u").put(first);
+
+        assertNull(LogDelta.diff(json(BASE), next));
+    }
+
+    @Test
+    public void duplicateIdsNeedKeyframe() throws JSONException {
+        JSONObject next = json(BASE);
+        next.getJSONArray("u").put(json("{\"i\":2,\"t\":\"2401161000\",\"d\":1,\"e\":0,\"v\":0}"));
+
+        assertNull(LogDelta.diff(json(BASE), next));
+    }
+
+    @Test
+    public void usageThatIsNotAnArrayNeedsKeyframe() throws JSONException {
+        JSONObject next = json(BASE);
+        next.put("u", "corrupt");
+
+        assertNull(LogDelta.diff(json(BASE), next));
+    }
+
+    @Test
+    public void applyLeavesBaseUntouched() throws JSONException {
+        JSONObject base = json(BASE);
+        String before = base.toString();
+
+        LogDelta.apply(base, json("{\"cc\":99,\"-u\":[1,2]}"));
+
+        assertEquals(before, base.toString());
+        assertEquals(2, base.getJSONArray("u").length());
+    }
+}
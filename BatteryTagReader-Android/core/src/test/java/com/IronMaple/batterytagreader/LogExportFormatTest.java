@@ -0,0 +1,79 @@
+package com.IronMaple.batterytagreader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+public class LogExportFormatTest {
+
+    private static final String DOC =
+            "{\"sn\":\"00254-012\",\"cc\":12,\"u\":[{\"i\":1,\"t\":\"2401151100\",\"e\":-1.5e3}],\"x\":{},\"y\":[]}";
+
+    private static String json(boolean indent, String... docs) throws IOException {
+        StringWriter out = new StringWriter();
+        StringBuilder scratch = new StringBuilder();
+        for (int i = 0; i < docs.length; i++) {
+            LogExportFormat.writeJsonElement(out, scratch, i == 0, indent, "2024-01-15 10:30", "read", docs[i]);
+        }
+        LogExportFormat.endJsonArray(out, docs.length == 0, indent);
+        return out.toString();
+    }
+
+    @Test
+    public void compactJsonKeepsTokensAsWritten() throws Exception {
+        String text = json(false, DOC, " { \"sn\" : \"a\\\"b\\u00e9\" , \"ok\" : [ true , false , null ] } ");
+
+        assertEquals("[{\"time\":\"2024-01-15 10:30\",\"type\":\"read\",\"data\":" + DOC + "},"
+                + "{\"time\":\"2024-01-15 10:30\",\"type\":\"read\","
+                + "\"data\":{\"sn\":\"a\\\"b\\u00e9\",\"ok\":[true,false,null]}}]", text);
+        JSONArray parsed = new JSONArray(text);
+        assertEquals("a\"b\u00e9", parsed.getJSONObject(1).getJSONObject("data").getString("sn"));
+    }
+
+    @Test
+    public void indentedJsonUsesTwoSpaces() throws IOException {
+        String expected = "[\n"
+                + "  {\n"
+                + "    \"time\": \"2024-01-15 10:30\",\n"
+                + "    \"type\": \"read\",\n"
+                + "    \"data\": {\n"
+                + "      \"sn\": \"00254-012\",\n"
+                + "      \"cc\": 12,\n"
+                + "      \"u\": [\n"
+                + "        {\n"
+                + "          \"i\": 1,\n"
+                + "          \"t\": \"2401151100\",\n"
+                + "          \"e\": -1.5e3\n"
+                + "        }\n"
+                + "      ],\n"
+                + "      \"x\": {},\n"
+                + "      \"y\": []\n"
+                + "    }\n"
+                + "  }\n"
+                + "]";
+
+        assertEquals(expected, json(true, DOC));
+    }
+
+    @Test
+    public void emptyLog() throws IOException {
+        assertEquals("[]", json(true));
+        assertEquals("[]", json(false));
+    }
+
+    @Test
+    public void unreadableDataIsNull() throws IOException, JSONException {
+        String[] bad = {null, "", "{", "{\"a\":}", "{\"a\":1,}", "{a:1}", "[1 2]", "{\"a\":01}",
+                "{\"a\":\"\\x\"}", "{\"a\":tru}", "{} {}", "\"open"};
+        for (String text : bad) {
+            JSONArray parsed = new JSONArray(json(false, text));
+            assertTrue(String.valueOf(text), parsed.getJSONObject(0).isNull("data"));
+        }
+    }
+}
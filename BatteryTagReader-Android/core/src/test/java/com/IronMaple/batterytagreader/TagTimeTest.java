@@ -0,0 +1,105 @@
+package com.IronMaple.batterytagreader;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+public class TagTimeTest {
+
+    private TimeZone savedZone;
+
+    @Before
+    public void setUp() {
+        savedZone = TimeZone.getDefault();
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(savedZone);
+    }
+
+    private static long minutesOf(String text) throws Exception {
+        SimpleDateFormat f = new SimpleDateFormat("yyMMddHHmm", Locale.US);
+        f.setTimeZone(TimeZone.getTimeZone("UTC"));
+        f.setLenient(false);
+        f.set2DigitYearStart(new Date(946_684_800_000L)); // tags hold 2000-2099
+        return f.parse(text).getTime() / 60_000L;
+    }
+
+    @Test
+    public void parseMatchesSimpleDateFormat() throws Exception {
+        String[] samples = {"0001010000", "2401151030", "2402291159", "9912312359", "2503141502"};
+        for (String text : samples) {
+            assertEquals(text, minutesOf(text), TagTime.parse(text));
+        }
+    }
+
+    @Test
+    public void formatInvertsParse() {
+        // Every day of 2000-2099, at a different minute each day
+        for (long minutes = TagTime.parse("0001010000"); minutes <= TagTime.parse("9912312359");
+                minutes += 1440 + 7) {
+            assertEquals(minutes, TagTime.parse(TagTime.format(minutes)));
+        }
+    }
+
+    @Test
+    public void rejectsInvalidText() {
+        String[] bad = {
+                null, "", TagTime.ZERO, "240115103", "24011510300", "24O1151030",
+                "2413151030", "2400151030", "2401001030", "2302291030", "2404311030",
+                "2401152430", "2401151060", "-401151030",
+        };
+        for (String text : bad) {
+            assertEquals(String.valueOf(text), TagTime.NONE, TagTime.parse(text));
+        }
+    }
+
+    @Test
+    public void toMillisOfNothingIsZero() {
+        assertEquals(0, TagTime.toMillis("garbage"));
+        assertEquals(TagTime.parse("2401151030") * 60_000L, TagTime.toMillis("2401151030"));
+    }
+
+    @Test
+    public void formatsUtcAndLocal() {
+        long millis = TagTime.toMillis("2401151030");
+        assertEquals("2024-01-15 10:30", TagTime.formatUtc(millis));
+
+        TimeZone.setDefault(TimeZone.getTimeZone("America/Los_Angeles"));
+        assertEquals("2024-01-15 02:30", TagTime.formatLocal(millis));
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Kolkata"));
+        assertEquals("2024-01-15 16:00", TagTime.formatLocal(millis));
+    }
+
+    @Test
+    public void formatsTimesBeforeTheEpoch() {
+        assertEquals("1969-12-31 23:59", TagTime.formatUtc(-60_000L));
+    }
+
+    @Test
+    public void displayFollowsTimeZoneChanges() {
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        assertEquals("2024-01-15 10:30", TagTime.display("2401151030"));
+
+        // Cached display text must not outlive a zone change
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+        assertEquals("2024-01-15 19:30", TagTime.display("2401151030"));
+    }
+
+    @Test
+    public void displayOfMissingOrForeignText() {
+        assertEquals(TagTime.NOT_AVAILABLE, TagTime.display(null));
+        assertEquals(TagTime.NOT_AVAILABLE, TagTime.display(""));
+        assertEquals(TagTime.NOT_AVAILABLE, TagTime.display(" 0000000000 "));
+        assertEquals("yesterday", TagTime.display("yesterday"));
+        assertEquals("2413151030", TagTime.display("2413151030"));
+    }
+}